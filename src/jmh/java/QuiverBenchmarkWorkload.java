@@ -0,0 +1,98 @@
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import benchmarks.QuiverWorkload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Implements the operations measured by the benchmarks with the library.
+ */
+public class QuiverBenchmarkWorkload implements QuiverWorkload {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    public int openLibrary(Path library) {
+        return new QuiverLibrary(library, mapper).getNumberOfNotebooks();
+    }
+
+    @Override
+    public long loadNotes(Path library) {
+        long notes = 0;
+        for (QuiverNotebook notebook : new QuiverLibrary(library, mapper).getNotebooks()) {
+            notes += notebook.getNotes().size();
+        }
+
+        return notes;
+    }
+
+    @Override
+    public Object retainLibrary(Path library) {
+        QuiverLibrary loaded = new QuiverLibrary(library, mapper);
+        // The content of a note isn't necessarily cached by the note, so it is held here
+        List<Object> retained = new ArrayList<>();
+        retained.add(loaded);
+        for (QuiverNotebook notebook : loaded.getNotebooks()) {
+            for (QuiverNote note : notebook.getNotes()) {
+                retained.add(note.getContent());
+            }
+        }
+
+        return retained;
+    }
+
+    @Override
+    public int loadContent(Path note) {
+        return new QuiverNote(note, mapper).getContent().size();
+    }
+
+    @Override
+    public long resolveResources(Path note) {
+        long length = 0;
+        for (QuiverCell cell : new QuiverNote(note, mapper).getContent()) {
+            length += cell.getData().length();
+        }
+
+        return length;
+    }
+
+    @Override
+    public long readRawData(Path note) {
+        long length = 0;
+        for (QuiverCell cell : new QuiverNote(note, mapper).getContent()) {
+            length += cell.getRawData().length();
+        }
+
+        return length;
+    }
+
+    @Override
+    public long exportJsonLines(Path library, Executor executor, int bufferSize) {
+        OutputStream discarded = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        return new QuiverLibrary(library, mapper).export()
+                .withExecutor(executor)
+                .withBufferSize(bufferSize)
+                .exportJsonLines(discarded)
+                .getBytes();
+    }
+
+    @Override
+    public long exportMarkdown(Path library, Path directory, Executor executor, int bufferSize) {
+        return new QuiverLibrary(library, mapper).export()
+                .withExecutor(executor)
+                .withBufferSize(bufferSize)
+                .exportMarkdown(directory)
+                .getBytes();
+    }
+}
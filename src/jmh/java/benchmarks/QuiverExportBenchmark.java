@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of exporting a whole library, in exports per second, as the export is parallelized and its
+ * buffer grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuiverExportBenchmark {
+    @Param({"1", "4"})
+    public int parallelism;
+    @Param({"1", "64"})
+    public int bufferSize;
+
+    private final QuiverWorkload workload = QuiverWorkload.create();
+    private ForkJoinPool executor;
+    private Path directory;
+    private Path library;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        executor = new ForkJoinPool(parallelism);
+        directory = Files.createTempDirectory("quiver-benchmark");
+        library = new QuiverLibraryGenerator(10, 50, 8, 1024, 1, 1024, 42)
+                .generate(directory.resolve("Benchmark.qvlibrary"));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        executor.shutdown();
+        QuiverLibraryGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public long exportJsonLines() {
+        return workload.exportJsonLines(library, executor, bufferSize);
+    }
+
+    @Benchmark
+    public long exportMarkdown() {
+        return workload.exportMarkdown(library, directory.resolve("export"), executor, bufferSize);
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap retained by a library once every notebook, note and content is loaded, as the library grows.
+ * <p>
+ * The used heap is read after a full collection before and after loading, while the loaded library is still reachable,
+ * and reported as the {@code retainedBytes} secondary result. The time of every load includes those collections, so
+ * it isn't meant to be compared with the other benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuiverHeapBenchmark {
+    @Param({"10", "50"})
+    public int notebooks;
+    @Param({"20", "200"})
+    public int notesPerNotebook;
+
+    private final QuiverWorkload workload = QuiverWorkload.create();
+    private Path directory;
+    private Path library;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("quiver-benchmark");
+        library = new QuiverLibraryGenerator(notebooks, notesPerNotebook, 8, 256, 1, 1024, 42)
+                .generate(directory.resolve("Benchmark.qvlibrary"));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        QuiverLibraryGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public Object retainLibrary(RetainedHeap heap) {
+        long before = RetainedHeap.usedAfterCollection();
+        Object retained = workload.retainLibrary(library);
+        heap.retainedBytes = RetainedHeap.usedAfterCollection() - before;
+
+        return retained;
+    }
+
+    /**
+     * Represents the heap retained by the library loaded in an iteration, reported by JMH next to the time.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+        private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytes = 0;
+        }
+
+        static long usedAfterCollection() {
+            // A single request may leave garbage behind, e.g. objects waiting to be finalized
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+
+            return MEMORY.getHeapMemoryUsage().getUsed();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures opening a library and loading all of its notebooks and notes as the library grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuiverLibraryBenchmark {
+    @Param({"10", "50"})
+    public int notebooks;
+    @Param({"20", "200"})
+    public int notesPerNotebook;
+
+    private final QuiverWorkload workload = QuiverWorkload.create();
+    private Path directory;
+    private Path library;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("quiver-benchmark");
+        library = new QuiverLibraryGenerator(notebooks, notesPerNotebook, 8, 256, 1, 1024, 42)
+                .generate(directory.resolve("Benchmark.qvlibrary"));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        QuiverLibraryGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public int openLibrary() {
+        return workload.openLibrary(library);
+    }
+
+    @Benchmark
+    public long loadNotes() {
+        return workload.loadNotes(library);
+    }
+}
@@ -0,0 +1,211 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes synthetic libraries on disk, laid out exactly like the ones written by Quiver.
+ * <p>
+ * The generated content is pseudo-random but reproducible: the same seed always writes the same library. Cells cycle
+ * through the text, code, markdown and diagram types, and text cells refer to the resources of their note with
+ * {@code quiver-image-url} references.
+ */
+public class QuiverLibraryGenerator {
+    private static final String[] WORDS = {"quiver", "note", "library", "stream", "lazy", "index", "cache", "cell",
+            "markdown", "diagram", "latex", "java", "kotlin", "search", "token", "parser", "batter", "recipe"};
+    private static final String[] TYPES = {"text", "code", "markdown", "diagram"};
+
+    private final int notebooks;
+    private final int notesPerNotebook;
+    private final int cellsPerNote;
+    private final int cellSize;
+    private final int resourcesPerNote;
+    private final int resourceSize;
+    private final long seed;
+    private final JsonFactory factory = new JsonFactory();
+
+    /**
+     * Creates a generator.
+     *
+     * @param notebooks        The number of notebooks in the library.
+     * @param notesPerNotebook The number of notes in each notebook.
+     * @param cellsPerNote     The number of cells in each note.
+     * @param cellSize         The approximate number of characters of each cell.
+     * @param resourcesPerNote The number of resources of each note, each referred to by one of its text cells.
+     * @param resourceSize     The number of bytes of each resource.
+     * @param seed             The seed of the generated content.
+     */
+    public QuiverLibraryGenerator(int notebooks, int notesPerNotebook, int cellsPerNote, int cellSize,
+                                  int resourcesPerNote, int resourceSize, long seed) {
+        this.notebooks = notebooks;
+        this.notesPerNotebook = notesPerNotebook;
+        this.cellsPerNote = cellsPerNote;
+        this.cellSize = cellSize;
+        this.resourcesPerNote = resourcesPerNote;
+        this.resourceSize = resourceSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Writes a library.
+     *
+     * @param directory The directory to write the library into, e.g. {@code Benchmark.qvlibrary}.
+     * @return The location of the library.
+     * @throws IOException If the library can't be written.
+     */
+    public Path generate(Path directory) throws IOException {
+        Random random = new Random(seed);
+        Files.createDirectories(directory);
+
+        try (JsonGenerator json = create(directory.resolve("meta.json"))) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("children");
+            for (int i = 0; i < notebooks; i++) {
+                json.writeStartObject();
+                json.writeStringField("uuid", notebookId(i));
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeStringField("uuid", "BENCHMARK-LIBRARY");
+            json.writeEndObject();
+        }
+
+        for (int i = 0; i < notebooks; i++) {
+            Path notebook = Files.createDirectories(directory.resolve(notebookId(i) + ".qvnotebook"));
+
+            try (JsonGenerator json = create(notebook.resolve("meta.json"))) {
+                json.writeStartObject();
+                json.writeStringField("name", "Notebook " + i);
+                json.writeStringField("uuid", notebookId(i));
+                json.writeEndObject();
+            }
+
+            for (int j = 0; j < notesPerNotebook; j++) {
+                writeNote(notebook.resolve(noteId(i, j) + ".qvnote"), noteId(i, j), random);
+            }
+        }
+
+        return directory;
+    }
+
+    /**
+     * Deletes a generated library.
+     *
+     * @param directory The location of the library.
+     * @throws IOException If the library can't be deleted.
+     */
+    public static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            // Children come before their parents in reverse order
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void writeNote(Path note, String id, Random random) throws IOException {
+        Files.createDirectories(note);
+
+        try (JsonGenerator json = create(note.resolve("meta.json"))) {
+            json.writeStartObject();
+            json.writeNumberField("created_at", 1500000000 + random.nextInt(50000000));
+            json.writeArrayFieldStart("tags");
+            json.writeString(WORDS[random.nextInt(WORDS.length)]);
+            json.writeString(WORDS[random.nextInt(WORDS.length)]);
+            json.writeEndArray();
+            json.writeStringField("title", sentence(random, 40));
+            json.writeNumberField("updated_at", 1550000000 + random.nextInt(50000000));
+            json.writeStringField("uuid", id);
+            json.writeEndObject();
+        }
+
+        try (JsonGenerator json = create(note.resolve("content.json"))) {
+            json.writeStartObject();
+            json.writeStringField("title", id);
+            json.writeArrayFieldStart("cells");
+            for (int k = 0; k < cellsPerNote; k++) {
+                String type = TYPES[k % TYPES.length];
+
+                json.writeStartObject();
+                json.writeStringField("type", type);
+                if ("code".equals(type)) {
+                    json.writeStringField("language", "java");
+                } else if ("diagram".equals(type)) {
+                    json.writeStringField("diagramType", "sequence");
+                }
+                json.writeStringField("data", cell(type, k, random));
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+
+        if (resourcesPerNote > 0) {
+            Path resources = Files.createDirectories(note.resolve("resources"));
+            byte[] bytes = new byte[resourceSize];
+
+            for (int r = 0; r < resourcesPerNote; r++) {
+                random.nextBytes(bytes);
+                Files.write(resources.resolve(resourceName(r)), bytes);
+            }
+        }
+    }
+
+    private String cell(String type, int index, Random random) {
+        if (!"text".equals(type)) {
+            return sentence(random, cellSize);
+        }
+
+        // Spread the resources of the note over its text cells
+        StringBuilder html = new StringBuilder("<div>").append(sentence(random, cellSize)).append("</div>");
+        int textCells = (cellsPerNote + TYPES.length - 1) / TYPES.length;
+        for (int r = index / TYPES.length; r < resourcesPerNote; r += textCells) {
+            html.append("<img src=\"quiver-image-url/").append(resourceName(r)).append("\" alt=\"\">");
+        }
+
+        return html.toString();
+    }
+
+    private JsonGenerator create(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+
+        return factory.createJsonGenerator(out, JsonEncoding.UTF8).useDefaultPrettyPrinter();
+    }
+
+    private static String sentence(Random random, int size) {
+        StringBuilder sentence = new StringBuilder(size + 16);
+        while (sentence.length() < size) {
+            if (sentence.length() > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        return sentence.toString();
+    }
+
+    private static String notebookId(int notebook) {
+        return String.format("NOTEBOOK-%04d", notebook);
+    }
+
+    private static String noteId(int notebook, int note) {
+        return String.format("NOTE-%04d-%05d", notebook, note);
+    }
+
+    private static String resourceName(int resource) {
+        return "image-" + resource + ".png";
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading the content of a single note and resolving its resource references as the note grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuiverNoteBenchmark {
+    @Param({"10", "100"})
+    public int cellsPerNote;
+    @Param({"256", "16384"})
+    public int cellSize;
+    @Param({"0", "20"})
+    public int resourcesPerNote;
+
+    private final QuiverWorkload workload = QuiverWorkload.create();
+    private Path directory;
+    private Path note;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("quiver-benchmark");
+        Path library = new QuiverLibraryGenerator(1, 1, cellsPerNote, cellSize, resourcesPerNote, 1024, 42)
+                .generate(directory.resolve("Benchmark.qvlibrary"));
+        note = library.resolve("NOTEBOOK-0000.qvnotebook").resolve("NOTE-0000-00000.qvnote");
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        QuiverLibraryGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public int loadContent() {
+        return workload.loadContent(note);
+    }
+
+    @Benchmark
+    public long resolveResources() {
+        return workload.resolveResources(note);
+    }
+
+    @Benchmark
+    public long readRawData() {
+        return workload.readRawData(note);
+    }
+}
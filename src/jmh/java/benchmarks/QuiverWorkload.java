@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+
+/**
+ * Represents the operations of the library measured by the benchmarks.
+ * <p>
+ * The library lives in the default package, which JMH benchmarks can't import from, so the benchmarks go through this
+ * interface. It is implemented in the default package by {@code QuiverBenchmarkWorkload} and loaded with
+ * {@link #create()}.
+ */
+public interface QuiverWorkload {
+    /**
+     * Opens a library and reads its metadata.
+     *
+     * @param library The location of the library.
+     * @return The number of notebooks of the library.
+     */
+    int openLibrary(Path library);
+
+    /**
+     * Opens a library and loads every notebook and note, without their content.
+     *
+     * @param library The location of the library.
+     * @return The number of notes of the library.
+     */
+    long loadNotes(Path library);
+
+    /**
+     * Opens a library and loads every notebook and note together with their content, keeping all of it reachable.
+     *
+     * @param library The location of the library.
+     * @return The loaded library, notes and content, to be held on to while the heap is measured.
+     */
+    Object retainLibrary(Path library);
+
+    /**
+     * Opens a note and loads its content, without reading the data of its cells.
+     *
+     * @param note The location of the note.
+     * @return The number of cells of the note.
+     */
+    int loadContent(Path note);
+
+    /**
+     * Opens a note, loads its content and reads the data of every cell, resolving their resource references.
+     *
+     * @param note The location of the note.
+     * @return The total length of the data of the cells.
+     */
+    long resolveResources(Path note);
+
+    /**
+     * Opens a note, loads its content and reads the data of every cell as stored by Quiver.
+     *
+     * @param note The location of the note.
+     * @return The total length of the data of the cells.
+     */
+    long readRawData(Path note);
+
+    /**
+     * Exports every note of a library as JSON Lines, discarding the output.
+     *
+     * @param library    The location of the library.
+     * @param executor   The executor that parses and renders the notes.
+     * @param bufferSize The maximum number of notes in flight.
+     * @return The number of bytes exported.
+     */
+    long exportJsonLines(Path library, Executor executor, int bufferSize);
+
+    /**
+     * Exports every note of a library as Markdown files.
+     *
+     * @param library    The location of the library.
+     * @param directory  The directory to write the files to.
+     * @param executor   The executor that parses and renders the notes.
+     * @param bufferSize The maximum number of notes in flight.
+     * @return The number of bytes exported.
+     */
+    long exportMarkdown(Path library, Path directory, Executor executor, int bufferSize);
+
+    /**
+     * @return The workload implemented by the library.
+     */
+    static QuiverWorkload create() {
+        try {
+            return (QuiverWorkload) Class.forName("QuiverBenchmarkWorkload").newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The benchmark workload can't be created", e);
+        }
+    }
+}
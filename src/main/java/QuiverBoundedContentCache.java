@@ -0,0 +1,285 @@
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import lombok.Builder;
+
+/**
+ * Represents a {@link QuiverContentCache} bounded by number of notes, by weight and by time.
+ * <p>
+ * Entries are kept in least recently used order. When the cache goes over one of its bounds, the least recently used
+ * entries are evicted first, and entries that weren't accessed for longer than the expiration delay are dropped. With
+ * the {@link Policy#TINY_LFU} policy, a frequency sketch of recent accesses also decides whether new content is worth
+ * admitting at all: it is only cached if it was requested more often than the entry it would evict, which protects hot
+ * notes from one-off scans.
+ */
+public class QuiverBoundedContentCache implements QuiverContentCache {
+    /**
+     * The eviction policies of the cache.
+     */
+    public enum Policy {
+        /**
+         * Evicts the least recently used entries.
+         */
+        LRU,
+        /**
+         * Evicts the least recently used entries, but only admits new content that is requested more often than the
+         * entry it would evict, as in TinyLFU.
+         */
+        TINY_LFU
+    }
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final long expireAfterAccessNanos;
+    private final Policy policy;
+    private final FrequencySketch sketch;
+    // In access order: the least recently used entry comes first
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final QuiverSingleFlight<Path, List<QuiverCell>> loads = new QuiverSingleFlight<>();
+    // The version of every load in flight, dropped when its note is invalidated so its stale content isn't cached
+    private final Map<Path, Object> versions = new HashMap<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache. Bounds that are left {@code null} are unbounded.
+     *
+     * @param maximumSize       The maximum number of notes whose content is cached.
+     * @param maximumWeight     The maximum total weight of the cached content, in bytes of cell data.
+     * @param expireAfterAccess The time after which content that wasn't accessed is dropped.
+     * @param policy            The eviction policy, {@link Policy#LRU} by default.
+     */
+    @Builder
+    private QuiverBoundedContentCache(Long maximumSize, Long maximumWeight, Duration expireAfterAccess,
+                                      Policy policy) {
+        this.maximumSize = null == maximumSize ? Long.MAX_VALUE : maximumSize;
+        this.maximumWeight = null == maximumWeight ? Long.MAX_VALUE : maximumWeight;
+        this.expireAfterAccessNanos = null == expireAfterAccess ? Long.MAX_VALUE : expireAfterAccess.toNanos();
+        this.policy = null == policy ? Policy.LRU : policy;
+        this.sketch = Policy.TINY_LFU == this.policy ? new FrequencySketch(this.maximumSize) : null;
+    }
+
+    @Override
+    public List<QuiverCell> get(Path note, Function<Path, List<QuiverCell>> loader) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (null != sketch) {
+                sketch.increment(note);
+            }
+
+            Entry entry = entries.get(note);
+            if (null != entry && !entry.isExpired(now, expireAfterAccessNanos)) {
+                entry.accessedAt = now;
+                hits++;
+
+                return entry.content;
+            }
+
+            if (null != entry) {
+                remove(note);
+                evictions++;
+            }
+            misses++;
+        }
+
+        // Load outside of the lock, so a slow load doesn't hold up the rest of the cache, and only once for concurrent
+        // misses of the same note
+        return loads.load(note, n -> {
+            Object version = new Object();
+            synchronized (this) {
+                versions.put(n, version);
+            }
+
+            try {
+                List<QuiverCell> content = loader.apply(n);
+                synchronized (this) {
+                    // The note was invalidated while it was loading, so what was loaded may already be stale
+                    if (versions.get(n) == version) {
+                        put(n, content);
+                    }
+                }
+
+                return content;
+            } finally {
+                synchronized (this) {
+                    versions.remove(n, version);
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void invalidate(Path note) {
+        remove(note);
+        versions.remove(note);
+        loads.detach(note);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+        versions.clear();
+        loads.detachAll();
+    }
+
+    @Override
+    public synchronized QuiverCacheStats getStats() {
+        return new QuiverCacheStats(hits, misses, evictions, entries.size(), weight);
+    }
+
+    private void put(Path note, List<QuiverCell> content) {
+        long now = System.nanoTime();
+        Entry entry = new Entry(content, QuiverContentCache.weigh(content), now);
+
+        // Another thread may have loaded the same content in the meantime
+        remove(note);
+        entries.put(note, entry);
+        weight += entry.weight;
+
+        expire(now);
+        evict(note);
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            // Entries are in access order, so the first one that isn't expired is followed by more recent ones
+            if (!entry.isExpired(now, expireAfterAccessNanos)) {
+                return;
+            }
+
+            iterator.remove();
+            weight -= entry.weight;
+            evictions++;
+        }
+    }
+
+    private void evict(Path candidate) {
+        Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+
+        while ((entries.size() > maximumSize || weight > maximumWeight) && iterator.hasNext()) {
+            Map.Entry<Path, Entry> victim = iterator.next();
+
+            if (null != sketch && !victim.getKey().equals(candidate)
+                    && sketch.frequency(candidate) <= sketch.frequency(victim.getKey())) {
+                // The new content isn't more popular than what it would replace, so it's the one that goes
+                remove(candidate);
+                evictions++;
+
+                return;
+            }
+
+            iterator.remove();
+            weight -= victim.getValue().weight;
+            evictions++;
+        }
+    }
+
+    private void remove(Path note) {
+        Entry entry = entries.remove(note);
+        if (null != entry) {
+            weight -= entry.weight;
+        }
+    }
+
+    /**
+     * Represents the cached content of a note.
+     */
+    private static class Entry {
+        private final List<QuiverCell> content;
+        private final long weight;
+        private long accessedAt;
+
+        Entry(List<QuiverCell> content, long weight, long accessedAt) {
+            this.content = content;
+            this.weight = weight;
+            this.accessedAt = accessedAt;
+        }
+
+        boolean isExpired(long now, long expireAfterAccessNanos) {
+            return now - accessedAt > expireAfterAccessNanos;
+        }
+    }
+
+    /**
+     * Estimates how often each note was recently requested with a count-min sketch.
+     * <p>
+     * Counters saturate at 15 and are all halved once enough requests were recorded, so old popularity fades away.
+     */
+    private static class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAXIMUM_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+        private final int[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long maximumSize) {
+            int width = Integer.highestOneBit((int) Math.max(64, Math.min(1 << 20, maximumSize)) - 1) << 1;
+
+            this.table = new int[DEPTH * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (table[index] < MAXIMUM_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+
+            if (added && ++additions == sampleSize) {
+                age();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAXIMUM_COUNT;
+
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, table[indexOf(hash, row)]);
+            }
+
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+
+            return row * (mask + 1) + ((h ^ (h >>> 16)) & mask);
+        }
+
+        private void age() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>>= 1;
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9e3779b9;
+
+            return h ^ (h >>> 16);
+        }
+    }
+}
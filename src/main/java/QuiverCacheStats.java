@@ -0,0 +1,37 @@
+import lombok.Data;
+
+/**
+ * Represents the statistics of a {@link QuiverContentCache}.
+ */
+@Data
+public class QuiverCacheStats {
+    /**
+     * The number of times content was found in the cache.
+     */
+    private final long hits;
+    /**
+     * The number of times content had to be loaded.
+     */
+    private final long misses;
+    /**
+     * The number of entries dropped to respect the bounds of the cache, or because they expired or were reclaimed.
+     */
+    private final long evictions;
+    /**
+     * The number of notes whose content is currently cached.
+     */
+    private final long size;
+    /**
+     * The total weight of the currently cached content, in bytes of cell data.
+     */
+    private final long weight;
+
+    /**
+     * @return The ratio of requests that were served from the cache, or {@code 1} if there were none.
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+
+        return 0 == requests ? 1 : (double) hits / requests;
+    }
+}
@@ -1,6 +1,15 @@
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * Represents the most basic unit of all Quiver notes: a cell.
@@ -11,11 +20,16 @@ import lombok.RequiredArgsConstructor;
 public class QuiverCell {
     /**
      * The type of the cell, e.g. {@code text}.
+     *
+     * @see #getCellType()
      */
     private String type;
     /**
-     * The contents of the cell.
+     * The contents of the cell, as stored by Quiver.
      */
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private String data;
     /**
      * The language used when the type of the cell is {@code code}.
@@ -25,11 +39,245 @@ public class QuiverCell {
      * The type of the diagram when the type of cell is {@code diagram}.
      */
     private String diagramType;
+    /**
+     * The references to the resources of the note found in the contents of the cell.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<QuiverResourceLink> resourceLinks = Collections.emptyList();
+
+    // Where the note of the cell keeps its resources, which tells nothing about the cell itself
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String resourcesLocation;
+    // The contents with their resource references resolved, built on first read
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile String resolvedData;
+    // The contents left undecoded in a memory-mapped file, decoded into data on first read
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile QuiverCellPayload payload;
 
     public QuiverCell(QuiverCell other) {
+        // Read the payload first: once it is gone, the contents were decoded
+        QuiverCellPayload otherPayload = other.payload;
+
         this.type = other.getType();
-        this.data = other.getData();
+        this.data = other.data;
         this.language = other.getLanguage();
         this.diagramType = other.getDiagramType();
+        this.resourceLinks = other.resourceLinks;
+        this.resourcesLocation = other.resourcesLocation;
+        this.resolvedData = other.resolvedData;
+        this.payload = otherPayload;
+    }
+
+    /**
+     * Gets the type of the cell as a {@link QuiverCellType}.
+     *
+     * @return The type of the cell, or {@code null} if it has no type or its type is unknown.
+     */
+    @JsonIgnore
+    public QuiverCellType getCellType() {
+        return QuiverCellType.of(type);
+    }
+
+    /**
+     * Gets the contents of the cell, with references to the resources of the note resolved to their local location.
+     * <p>
+     * The contents are only rewritten the first time they are read, and only if they contain resource references.
+     *
+     * @return The contents of the cell.
+     */
+    public String getData() {
+        String raw = getRawData();
+        if (resourceLinks.isEmpty()) {
+            return raw;
+        }
+
+        String resolved = resolvedData;
+        if (null == resolved) {
+            resolved = resolveResources(resourcesLocation);
+            resolvedData = resolved;
+        }
+
+        return resolved;
+    }
+
+    /**
+     * Gets the contents of the cell, with references to the resources of the note resolved to the given location, e.g.
+     * a path relative to an exported file.
+     *
+     * @param resourcesLocation The location to resolve the references to.
+     * @return The contents of the cell.
+     */
+    public String getData(String resourcesLocation) {
+        String raw = getRawData();
+
+        return resourceLinks.isEmpty() ? raw : resolveResources(resourcesLocation);
+    }
+
+    /**
+     * Gets the contents of the cell as stored by Quiver, without resolving references to resources.
+     * <p>
+     * Contents that were left in a memory-mapped file are decoded the first time they are read.
+     *
+     * @return The raw contents of the cell.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Include
+    @ToString.Include(name = "data")
+    public String getRawData() {
+        if (null != payload) {
+            decodePayload();
+        }
+
+        return data;
+    }
+
+    /**
+     * Gets at most the first characters of the contents of the cell as stored by Quiver, e.g. for a preview.
+     * <p>
+     * Contents that were left in a memory-mapped file are decoded only up to the prefix.
+     *
+     * @param maxLength The maximum number of characters.
+     * @return The start of the raw contents of the cell.
+     */
+    public String getRawDataPrefix(int maxLength) {
+        QuiverCellPayload current = payload;
+        if (null != current) {
+            return current.decode(maxLength);
+        }
+
+        return null == data || data.length() <= maxLength ? data : data.substring(0, maxLength);
+    }
+
+    /**
+     * Gets the contents of the cell as stored by Quiver as a {@link CharSequence}.
+     * <p>
+     * Contents that were left in a memory-mapped file and are plain ASCII are read straight from the file, without
+     * being decoded onto the heap.
+     *
+     * @return The raw contents of the cell.
+     */
+    @JsonIgnore
+    public CharSequence getRawDataSequence() {
+        QuiverCellPayload current = payload;
+
+        return null != current ? current.asCharSequence() : data;
+    }
+
+    /**
+     * Gets the references to the resources of the note found in the contents of the cell, decoding them if needed.
+     *
+     * @return A list of {@link QuiverResourceLink} in order of appearance.
+     */
+    @JsonIgnore
+    public List<QuiverResourceLink> getResourceLinks() {
+        getRawData();
+
+        return resourceLinks;
+    }
+
+    /**
+     * Finds the links to other notes in the contents of the cell, decoding them if needed.
+     *
+     * @return A list of {@link QuiverNoteLink} in order of appearance.
+     */
+    @JsonIgnore
+    public List<QuiverNoteLink> getNoteLinks() {
+        return QuiverNoteLink.find(getRawData());
+    }
+
+    public void setData(String data) {
+        this.payload = null;
+        this.data = data;
+        this.resourceLinks = Collections.emptyList();
+        this.resolvedData = null;
+    }
+
+    /**
+     * Finds the references to resources in the contents of the cell, so they resolve to a local folder when read.
+     * <p>
+     * Contents left in a memory-mapped file are only searched once they are decoded.
+     *
+     * @param resourcesLocation The location of the resources of the note.
+     */
+    void linkResources(String resourcesLocation) {
+        this.resourcesLocation = resourcesLocation;
+        this.resolvedData = null;
+        if (null == payload) {
+            this.resourceLinks = QuiverResourceLink.find(data);
+        }
+    }
+
+    /**
+     * Leaves the contents of the cell in a memory-mapped file until they are read.
+     *
+     * @param payload The undecoded contents.
+     */
+    void setPayload(QuiverCellPayload payload) {
+        this.data = null;
+        this.resourceLinks = Collections.emptyList();
+        this.resolvedData = null;
+        this.payload = payload;
+    }
+
+    /**
+     * @return Whether the contents of the cell are decoded, rather than left in a memory-mapped file.
+     */
+    boolean isDecoded() {
+        return null == payload;
+    }
+
+    /**
+     * Estimates the bytes the contents of the cell take, or will take once decoded, on the heap.
+     *
+     * @return The estimated size, in bytes.
+     */
+    long estimateSize() {
+        QuiverCellPayload current = payload;
+        if (null != current) {
+            // Every encoded byte decodes to at most one character
+            return 2L * current.getLength();
+        }
+
+        // Strings hold two bytes per character
+        return null == data ? 0 : 2L * data.length();
+    }
+
+    private synchronized void decodePayload() {
+        QuiverCellPayload current = payload;
+        if (null == current) {
+            return;
+        }
+
+        data = current.decode();
+        if (null != resourcesLocation) {
+            resourceLinks = QuiverResourceLink.find(data);
+        }
+        // Published last, so readers that see no payload also see the decoded contents
+        payload = null;
+    }
+
+    private String resolveResources(String resourcesLocation) {
+        int scheme = QuiverResourceLink.SCHEME.length();
+        StringBuilder resolved = new StringBuilder(
+                data.length() + resourceLinks.size() * Math.max(0, resourcesLocation.length() - scheme));
+
+        int from = 0;
+        for (QuiverResourceLink link : resourceLinks) {
+            resolved.append(data, from, link.getOffset()).append(resourcesLocation);
+            from = link.getOffset() + scheme;
+        }
+
+        return resolved.append(data, from, data.length()).toString();
     }
 }
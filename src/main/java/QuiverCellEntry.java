@@ -0,0 +1,20 @@
+import lombok.Data;
+
+/**
+ * Represents a cell together with the note and notebook it belongs to, as yielded when streaming a library.
+ */
+@Data
+public class QuiverCellEntry {
+    /**
+     * The notebook the note of the cell belongs to.
+     */
+    private final QuiverNotebook notebook;
+    /**
+     * The note the cell belongs to.
+     */
+    private final QuiverNote note;
+    /**
+     * The cell.
+     */
+    private final QuiverCell cell;
+}
@@ -0,0 +1,203 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Represents the data of a cell that was left undecoded in a memory-mapped {@code content.json}: the bytes of a json
+ * string, without its quotes.
+ * <p>
+ * The data is only decoded, as a whole or as a prefix, when it is read. Data made of ASCII characters only and without
+ * escape sequences can also be read as a {@link CharSequence} straight from the mapping.
+ */
+final class QuiverCellPayload {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    private final boolean ascii;
+
+    private QuiverCellPayload(ByteBuffer buffer, int offset, int length, boolean ascii) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.ascii = ascii;
+    }
+
+    /**
+     * Finds the json string that starts at an offset of a buffer, without decoding it.
+     *
+     * @param buffer The buffer, e.g. a memory-mapped file.
+     * @param quote  The offset of the opening quote of the string.
+     * @return The payload, or {@code null} if there's no complete string at the offset.
+     */
+    static QuiverCellPayload find(ByteBuffer buffer, int quote) {
+        if (quote < 0 || quote >= buffer.limit() || '"' != buffer.get(quote)) {
+            return null;
+        }
+
+        boolean ascii = true;
+        for (int i = quote + 1; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if ('"' == b) {
+                return new QuiverCellPayload(buffer, quote + 1, i - quote - 1, ascii);
+            }
+            if ('\\' == b) {
+                ascii = false;
+                i++;
+            } else if (b < 0) {
+                ascii = false;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The length of the encoded data, in bytes.
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return The decoded data.
+     */
+    String decode() {
+        return decode(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes the start of the data.
+     *
+     * @param maxLength The maximum number of characters to decode.
+     * @return The decoded prefix of the data, which doesn't split a surrogate pair.
+     */
+    String decode(int maxLength) {
+        StringBuilder decoded = new StringBuilder(Math.min(length, maxLength));
+        int end = offset + length;
+        int i = offset;
+
+        while (i < end && decoded.length() < maxLength) {
+            int b = buffer.get(i++) & 0xff;
+
+            if ('\\' == b) {
+                char escaped = i < end ? (char) buffer.get(i++) : REPLACEMENT;
+                switch (escaped) {
+                    case 'b':
+                        decoded.append('\b');
+                        break;
+                    case 'f':
+                        decoded.append('\f');
+                        break;
+                    case 'n':
+                        decoded.append('\n');
+                        break;
+                    case 'r':
+                        decoded.append('\r');
+                        break;
+                    case 't':
+                        decoded.append('\t');
+                        break;
+                    case 'u':
+                        decoded.append(i + 4 <= end ? hex(i) : REPLACEMENT);
+                        i = Math.min(i + 4, end);
+                        break;
+                    default:
+                        // Quotes, backslashes and slashes stand for themselves
+                        decoded.append(escaped);
+                }
+            } else if (b < 0x80) {
+                decoded.append((char) b);
+            } else {
+                int extra = b >= 0xf0 ? 3 : b >= 0xe0 ? 2 : b >= 0xc0 ? 1 : 0;
+                if (0 == extra || i + extra > end) {
+                    decoded.append(REPLACEMENT);
+                    continue;
+                }
+
+                int codePoint = b & (0x3f >> extra);
+                for (int k = 0; k < extra; k++) {
+                    codePoint = (codePoint << 6) | (buffer.get(i++) & 0x3f);
+                }
+
+                if (Character.isSupplementaryCodePoint(codePoint)) {
+                    if (decoded.length() + 2 > maxLength) {
+                        break;
+                    }
+                    decoded.append(Character.highSurrogate(codePoint)).append(Character.lowSurrogate(codePoint));
+                } else {
+                    decoded.append((char) codePoint);
+                }
+            }
+        }
+
+        return decoded.toString();
+    }
+
+    /**
+     * Reads the data without decoding it all at once.
+     *
+     * @return A view of the mapped bytes if the data is plain ASCII, or else the decoded data.
+     */
+    CharSequence asCharSequence() {
+        return ascii ? new AsciiSequence(offset, length) : decode();
+    }
+
+    private char hex(int from) {
+        int value = 0;
+        for (int i = from; i < from + 4; i++) {
+            int digit = Character.digit((char) buffer.get(i), 16);
+            if (digit < 0) {
+                return REPLACEMENT;
+            }
+            value = (value << 4) | digit;
+        }
+
+        return (char) value;
+    }
+
+    /**
+     * Represents ASCII bytes of the mapping as characters, one byte each.
+     */
+    private final class AsciiSequence implements CharSequence {
+        private final int start;
+        private final int size;
+
+        AsciiSequence(int start, int size) {
+            this.start = start;
+            this.size = size;
+        }
+
+        @Override
+        public int length() {
+            return size;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: " + size);
+            }
+
+            return (char) buffer.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > size || from > to) {
+                throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), length: " + size);
+            }
+
+            return new AsciiSequence(start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[size];
+            for (int i = 0; i < size; i++) {
+                chars[i] = (char) buffer.get(start + i);
+            }
+
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Represents the type of a cell.
+ */
+public enum QuiverCellType {
+    TEXT("text"),
+    CODE("code"),
+    MARKDOWN("markdown"),
+    LATEX("latex"),
+    DIAGRAM("diagram");
+
+    private static final Map<String, QuiverCellType> BY_NAME = new HashMap<>();
+
+    static {
+        for (QuiverCellType type : values()) {
+            BY_NAME.put(type.name, type);
+        }
+    }
+
+    private final String name;
+
+    QuiverCellType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the type as stored by Quiver, e.g. {@code text}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Finds the type with the given name.
+     *
+     * @param name The name of the type as stored by Quiver.
+     * @return The type, or {@code null} if there's no type with that name.
+     */
+    public static QuiverCellType of(String name) {
+        return null == name ? null : BY_NAME.get(name);
+    }
+}
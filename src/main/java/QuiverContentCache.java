@@ -0,0 +1,52 @@
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Represents a cache of the content of notes, shared by every note of a library through {@link QuiverOptions}.
+ * <p>
+ * When a library has a content cache, its notes don't keep their own content: {@link QuiverNote#getContent()} goes
+ * through the cache instead, so the memory used by content is bounded by the cache.
+ */
+public interface QuiverContentCache {
+    /**
+     * Gets the content of a note, loading it if it isn't cached.
+     *
+     * @param note   The location of the note.
+     * @param loader The function that loads the content of the note.
+     * @return A list of {@link QuiverCell}.
+     */
+    List<QuiverCell> get(Path note, Function<Path, List<QuiverCell>> loader);
+
+    /**
+     * Drops the cached content of a note, if any.
+     *
+     * @param note The location of the note.
+     */
+    void invalidate(Path note);
+
+    /**
+     * Drops the cached content of every note.
+     */
+    void invalidateAll();
+
+    /**
+     * @return The statistics of this cache since it was created.
+     */
+    QuiverCacheStats getStats();
+
+    /**
+     * Weighs the content of a note by the bytes of its cell data.
+     *
+     * @param content The content of a note.
+     * @return The weight of the content.
+     */
+    static long weigh(List<QuiverCell> content) {
+        long weight = 0;
+        for (QuiverCell cell : content) {
+            weight += cell.estimateSize();
+        }
+
+        return weight;
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Represents a {@link QuiverErrorHandler} that collects every error, so they can be reported once a bulk load is done.
+ */
+public class QuiverErrorCollector implements QuiverErrorHandler {
+    private final ConcurrentLinkedQueue<QuiverLoadError> errors = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onError(QuiverLoadError error) {
+        errors.add(error);
+    }
+
+    /**
+     * @return The errors collected so far, in the order they were reported.
+     */
+    public List<QuiverLoadError> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    /**
+     * @return {@code true} if no error was collected.
+     */
+    public boolean isEmpty() {
+        return errors.isEmpty();
+    }
+}
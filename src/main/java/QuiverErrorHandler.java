@@ -0,0 +1,17 @@
+/**
+ * Receives the notebooks and notes that are skipped because they are malformed, set through {@link QuiverOptions}.
+ * <p>
+ * Setting a handler makes loading lenient: instead of failing on the first malformed notebook or note, loading skips
+ * it, reports it and goes on with the rest. Errors may be reported from any thread that loads, so implementations
+ * must be safe for concurrent use.
+ *
+ * @see QuiverErrorCollector
+ */
+public interface QuiverErrorHandler {
+    /**
+     * Reports a notebook or note that was skipped.
+     *
+     * @param error The error.
+     */
+    void onError(QuiverLoadError error);
+}
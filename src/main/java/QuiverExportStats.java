@@ -0,0 +1,38 @@
+import lombok.Data;
+
+/**
+ * Represents the outcome of an export made with a {@link QuiverExporter}.
+ */
+@Data
+public class QuiverExportStats {
+    /**
+     * The number of notes exported.
+     */
+    private final long notes;
+    /**
+     * The number of cells exported.
+     */
+    private final long cells;
+    /**
+     * The number of bytes written.
+     */
+    private final long bytes;
+    /**
+     * The time the export took, in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * @return The number of notes exported per second, or {@code 0} if the export took no measurable time.
+     */
+    public double getNotesPerSecond() {
+        return 0 == elapsedNanos ? 0 : notes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The number of bytes written per second, or {@code 0} if the export took no measurable time.
+     */
+    public double getBytesPerSecond() {
+        return 0 == elapsedNanos ? 0 : bytes * 1e9 / elapsedNanos;
+    }
+}
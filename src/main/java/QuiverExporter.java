@@ -0,0 +1,323 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedException;
+import lombok.Data;
+
+/**
+ * Exports the notes of a library, with their cells, to JSON Lines or to Markdown files, built with
+ * {@link QuiverLibrary#export()}.
+ * <p>
+ * Notes are streamed from the library in directory order, so an export never holds the whole library in memory. The
+ * content of each note is parsed and rendered on the executor while the calling thread writes the rendered notes in
+ * order. At most {@link #withBufferSize(int) a buffer} of notes is in flight at once: once it is full, the library is
+ * not read any further until the oldest note is written.
+ * <p>
+ * When loading is lenient, notes whose content is malformed are reported to the error handler of the library and left
+ * out of the export.
+ */
+public class QuiverExporter {
+    private static final int DEFAULT_BUFFER_SIZE = 64;
+    private static final String MARKDOWN_EXTENSION = ".md";
+
+    private final QuiverLibrary library;
+    private final ObjectMapper mapper;
+    private final QuiverOptions options;
+
+    private Executor executor;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private Function<QuiverNote, String> resourcesLocation;
+
+    QuiverExporter(QuiverLibrary library) {
+        this.library = library;
+        this.mapper = library.getMapper();
+        this.options = library.getOptions();
+        this.executor = null != options.getExecutor() ? options.getExecutor() : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Parses and renders the notes on the given executor, instead of the executor of the library or, if it has none,
+     * the common pool.
+     *
+     * @param executor The executor.
+     * @return This exporter.
+     */
+    public QuiverExporter withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Keeps at most the given number of notes in flight, parsed or being parsed but not yet written.
+     *
+     * @param bufferSize The maximum number of notes in flight, {@code 64} by default.
+     * @return This exporter.
+     */
+    public QuiverExporter withBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The buffer size must be positive: " + bufferSize);
+        }
+
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Rewrites the references to the resources of each note to the location given by a function, e.g. to where the
+     * resources are published.
+     * <p>
+     * By default, JSON Lines point at the local resources folder of each note, like {@link QuiverCell#getData()}, and
+     * Markdown files point at it relative to the file.
+     *
+     * @param resourcesLocation The function that tells where the resources of a note are.
+     * @return This exporter.
+     */
+    public QuiverExporter withResourcesLocation(Function<QuiverNote, String> resourcesLocation) {
+        this.resourcesLocation = resourcesLocation;
+        return this;
+    }
+
+    /**
+     * Exports every note as a line of JSON, with its notebook, metadata and cells.
+     * <p>
+     * The output is written to but not closed.
+     *
+     * @param output The output to write to.
+     * @return The {@link QuiverExportStats} of the export.
+     */
+    public QuiverExportStats exportJsonLines(OutputStream output) {
+        return export(entry -> null, this::renderJson, (target, bytes) -> {
+            output.write(bytes);
+            output.write('\n');
+            return bytes.length + 1;
+        });
+    }
+
+    /**
+     * Exports every note as a Markdown file, at {@code <notebook>/<note>.md} inside the given directory, where both
+     * names are those of their folder in the library.
+     *
+     * @param directory The directory to write to, created if needed.
+     * @return The {@link QuiverExportStats} of the export.
+     */
+    public QuiverExportStats exportMarkdown(Path directory) {
+        return export(entry -> markdownLocation(directory, entry), this::renderMarkdown, (target, bytes) -> {
+            Files.createDirectories(target.getParent());
+            Files.write(target, bytes);
+            return bytes.length;
+        });
+    }
+
+    private QuiverExportStats export(Function<QuiverNoteEntry, Path> target, NoteRenderer renderer,
+                                     NoteWriter writer) {
+        long start = System.nanoTime();
+        long notes = 0;
+        long cells = 0;
+        long bytes = 0;
+
+        Deque<CompletableFuture<Rendered>> pending = new ArrayDeque<>(bufferSize);
+        try (Stream<QuiverNoteEntry> entries = library.streamNotes()) {
+            Iterator<QuiverNoteEntry> iterator = entries.iterator();
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                // Read ahead until the buffer is full, then write the oldest note before reading any further
+                if (iterator.hasNext() && pending.size() < bufferSize) {
+                    QuiverNoteEntry entry = iterator.next();
+                    Path location = target.apply(entry);
+                    pending.add(QuiverLoader.loadAsync(() -> render(entry, location, renderer), executor));
+                    continue;
+                }
+
+                Rendered rendered = QuiverLoader.join(pending.poll());
+                if (null == rendered) {
+                    continue;
+                }
+
+                try {
+                    bytes += writer.write(rendered.getTarget(), rendered.getBytes());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                notes++;
+                cells += rendered.getCells();
+            }
+        } finally {
+            // Skip the notes that were not rendered yet when the export failed
+            for (CompletableFuture<Rendered> future : pending) {
+                future.cancel(false);
+            }
+        }
+
+        return new QuiverExportStats(notes, cells, bytes, System.nanoTime() - start);
+    }
+
+    private Rendered render(QuiverNoteEntry entry, Path target, NoteRenderer renderer) {
+        QuiverNote note = entry.getNote();
+        List<QuiverCell> cells;
+        try {
+            cells = note.getContent();
+        } catch (MalformedException e) {
+            if (null == options.getErrorHandler()) {
+                throw e;
+            }
+            options.getErrorHandler().onError(new QuiverLoadError(note.getLocation(), e));
+
+            return null;
+        }
+
+        String resources = null != resourcesLocation
+                ? resourcesLocation.apply(note)
+                : relativeResourcesLocation(note, target);
+        try {
+            return new Rendered(target, renderer.render(entry, cells, resources), cells.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] renderJson(QuiverNoteEntry entry, List<QuiverCell> cells, String resources) throws IOException {
+        QuiverNotebook notebook = entry.getNotebook();
+        QuiverNote note = entry.getNote();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(output, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            writeField(generator, "notebookId", notebook.getId());
+            writeField(generator, "notebookName", notebook.getName());
+            writeField(generator, "id", note.getId());
+            writeField(generator, "title", note.getTitle());
+            if (null != note.getTags()) {
+                generator.writeArrayFieldStart("tags");
+                for (String tag : note.getTags()) {
+                    generator.writeString(tag);
+                }
+                generator.writeEndArray();
+            }
+            writeField(generator, "createdAt", note.getCreatedAt());
+            writeField(generator, "updatedAt", note.getUpdatedAt());
+
+            generator.writeArrayFieldStart("cells");
+            for (QuiverCell cell : cells) {
+                generator.writeStartObject();
+                writeField(generator, "type", cell.getType());
+                writeField(generator, "language", cell.getLanguage());
+                writeField(generator, "diagramType", cell.getDiagramType());
+                writeField(generator, "data", cell.getData(resources));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        return output.toByteArray();
+    }
+
+    private static void writeField(JsonGenerator generator, String name, String value) throws IOException {
+        if (null != value) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    private byte[] renderMarkdown(QuiverNoteEntry entry, List<QuiverCell> cells, String resources) {
+        StringBuilder markdown = new StringBuilder();
+        markdown.append("# ").append(null == entry.getNote().getTitle() ? "" : entry.getNote().getTitle()).append('\n');
+
+        for (QuiverCell cell : cells) {
+            String data = null == cell.getRawData() ? "" : cell.getData(resources);
+            markdown.append('\n');
+
+            QuiverCellType type = cell.getCellType();
+            if (QuiverCellType.CODE == type) {
+                appendFenced(markdown, "```" + (null == cell.getLanguage() ? "" : cell.getLanguage()), data, "```");
+            } else if (QuiverCellType.DIAGRAM == type) {
+                appendFenced(markdown, "```" + (null == cell.getDiagramType() ? "" : cell.getDiagramType()), data,
+                        "```");
+            } else if (QuiverCellType.LATEX == type) {
+                appendFenced(markdown, "$$", data, "$$");
+            } else {
+                // Text cells hold HTML, which Markdown renders as is
+                markdown.append(data).append('\n');
+            }
+        }
+
+        return markdown.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendFenced(StringBuilder markdown, String open, String data, String close) {
+        markdown.append(open).append('\n').append(data);
+        if (!data.endsWith("\n")) {
+            markdown.append('\n');
+        }
+        markdown.append(close).append('\n');
+    }
+
+    private static Path markdownLocation(Path directory, QuiverNoteEntry entry) {
+        return directory.resolve(stem(entry.getNotebook().getLocation()))
+                .resolve(stem(entry.getNote().getLocation()) + MARKDOWN_EXTENSION);
+    }
+
+    private static String stem(Path location) {
+        // Directories inside zip archives keep a trailing slash in their name on Java 8
+        String name = location.getFileName().toString();
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+
+        int extension = name.lastIndexOf('.');
+        return extension > 0 ? name.substring(0, extension) : name;
+    }
+
+    private static String relativeResourcesLocation(QuiverNote note, Path target) {
+        Path resources = note.getResourcesLocation();
+        // Resources can only be relative to a file on the same file system, e.g. not from inside a zip archive
+        if (null == target || FileSystems.getDefault() != resources.getFileSystem()
+                || FileSystems.getDefault() != target.getFileSystem()) {
+            return resources.toString();
+        }
+
+        Path relative = target.toAbsolutePath().getParent().relativize(resources.toAbsolutePath());
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Renders a note and its cells.
+     */
+    private interface NoteRenderer {
+        byte[] render(QuiverNoteEntry entry, List<QuiverCell> cells, String resources) throws IOException;
+    }
+
+    /**
+     * Writes a rendered note.
+     */
+    private interface NoteWriter {
+        long write(Path target, byte[] bytes) throws IOException;
+    }
+
+    /**
+     * Represents a note rendered for an export.
+     */
+    @Data
+    private static class Rendered {
+        private final Path target;
+        private final byte[] bytes;
+        private final int cells;
+    }
+}
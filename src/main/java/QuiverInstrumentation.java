@@ -0,0 +1,22 @@
+import java.nio.file.Path;
+
+/**
+ * Receives a report of every I/O and parse step taken while loading a library, set through {@link QuiverOptions}.
+ * <p>
+ * Steps are reported from whichever thread runs them, so implementations must be safe for concurrent use and should
+ * return quickly. When no instrumentation is set, steps aren't timed at all.
+ *
+ * @see QuiverMetrics
+ */
+public interface QuiverInstrumentation {
+    /**
+     * Reports a step that completed, successfully or not.
+     *
+     * @param operation    The kind of step.
+     * @param location     The file or directory the step read.
+     * @param bytes        The size of the file that was read, or {@code 0} when the step didn't read a file.
+     * @param elapsedNanos The time the step took, in nanoseconds.
+     * @param failure      The failure of the step, or {@code null} if it succeeded.
+     */
+    void record(QuiverOperation operation, Path location, long bytes, long elapsedNanos, Throwable failure);
+}
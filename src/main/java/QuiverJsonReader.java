@@ -0,0 +1,304 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the json files of a Quiver library token by token.
+ * <p>
+ * Unknown fields are skipped without building any intermediate tree, and objects are bound straight into their final
+ * form in a single pass.
+ */
+final class QuiverJsonReader {
+    private QuiverJsonReader() {
+    }
+
+    /**
+     * Reads a single field of an object. The parser is positioned on the value of the field.
+     */
+    interface FieldReader {
+        /**
+         * Reads the value of a field.
+         *
+         * @param field  The name of the field.
+         * @param parser The parser, positioned on the value of the field.
+         * @return {@code true} if the value was consumed, {@code false} if it should be skipped.
+         */
+        boolean read(String field, JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Reads the fields of an object, skipping the ones that the reader doesn't consume.
+     * <p>
+     * When {@code wanted} is positive, reading stops as soon as that many fields have been consumed, leaving the rest
+     * of the object unread.
+     *
+     * @param parser The parser, positioned on (or right before) the start of the object.
+     * @param wanted The number of fields to consume before stopping, or {@code 0} to read the whole object.
+     * @param reader The reader of each field.
+     */
+    static void readObject(JsonParser parser, int wanted, FieldReader reader) throws IOException {
+        JsonToken token = null == parser.getCurrentToken() ? parser.nextToken() : parser.getCurrentToken();
+        expect(parser, token, JsonToken.START_OBJECT);
+
+        int read = 0;
+        while (JsonToken.FIELD_NAME == (token = parser.nextToken())) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            if (!reader.read(field, parser)) {
+                parser.skipChildren();
+            } else if (++read == wanted) {
+                return;
+            }
+        }
+
+        expect(parser, token, JsonToken.END_OBJECT);
+    }
+
+    /**
+     * Reads every element of an array.
+     *
+     * @param parser  The parser, positioned on the start of the array.
+     * @param element The reader of each element, called with the parser positioned on the element.
+     */
+    static void readArray(JsonParser parser, ElementReader element) throws IOException {
+        expect(parser, parser.getCurrentToken(), JsonToken.START_ARRAY);
+
+        JsonToken token;
+        while (JsonToken.END_ARRAY != (token = parser.nextToken())) {
+            if (null == token) {
+                throw new JsonParseException("Unexpected end of array", parser.getCurrentLocation());
+            }
+
+            element.read(parser);
+        }
+    }
+
+    /**
+     * Reads a single element of an array. The parser is positioned on the element.
+     */
+    interface ElementReader {
+        void read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Reads a scalar value as a string.
+     *
+     * @param parser The parser, positioned on the value.
+     * @return The value as a string, or {@code null} if the value is {@code null}.
+     */
+    static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (JsonToken.VALUE_NULL == token) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException("Expected a scalar value but found " + token, parser.getCurrentLocation());
+        }
+
+        return parser.getText();
+    }
+
+    /**
+     * Reads a scalar value that repeats across a library as its canonical string.
+     *
+     * @param parser The parser, positioned on the value.
+     * @return The value as a shared string, or {@code null} if the value is {@code null}.
+     */
+    static String readInterned(JsonParser parser) throws IOException {
+        return QuiverStrings.intern(readString(parser));
+    }
+
+    /**
+     * Reads an array of scalar values that repeat across a library as canonical strings.
+     *
+     * @param parser The parser, positioned on the start of the array.
+     * @return A list of shared strings, or {@code null} if the value is {@code null}.
+     */
+    static List<String> readInternedStrings(JsonParser parser) throws IOException {
+        if (JsonToken.VALUE_NULL == parser.getCurrentToken()) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        readArray(parser, p -> values.add(readInterned(p)));
+
+        return values;
+    }
+
+    /**
+     * Reads a single cell of a note.
+     *
+     * @param parser The parser, positioned on the start of the cell.
+     * @return A {@link QuiverCell}.
+     */
+    static QuiverCell readCell(JsonParser parser) throws IOException {
+        return readCell(parser, true);
+    }
+
+    /**
+     * Reads a single cell of a note, optionally skipping its data.
+     *
+     * @param parser   The parser, positioned on the start of the cell.
+     * @param withData Whether to read the data of the cell, which is usually the bulk of it.
+     * @return A {@link QuiverCell}, whose data is {@code null} if it wasn't read.
+     */
+    static QuiverCell readCell(JsonParser parser, boolean withData) throws IOException {
+        return readCell(parser, withData, null);
+    }
+
+    /**
+     * Reads a single cell of a note from a memory-mapped file, leaving its data undecoded in the file when possible.
+     *
+     * @param parser   The parser over the whole buffer, positioned on the start of the cell.
+     * @param withData Whether to read the data of the cell, which is usually the bulk of it.
+     * @param source   The buffer the parser reads, or {@code null} to decode the data right away.
+     * @return A {@link QuiverCell}, whose data is {@code null} if it wasn't read.
+     */
+    static QuiverCell readCell(JsonParser parser, boolean withData, ByteBuffer source) throws IOException {
+        QuiverCell cell = new QuiverCell();
+
+        readObject(parser, 0, (field, p) -> {
+            switch (field) {
+                case "type":
+                    cell.setType(readInterned(p));
+                    return true;
+                case "data":
+                    if (!withData) {
+                        return false;
+                    }
+                    QuiverCellPayload payload = null == source ? null : findPayload(p, source);
+                    if (null == payload) {
+                        cell.setData(readString(p));
+                    } else {
+                        // The parser skips the string without decoding it, since its text is never asked for
+                        cell.setPayload(payload);
+                    }
+                    return true;
+                case "language":
+                    cell.setLanguage(readInterned(p));
+                    return true;
+                case "diagramType":
+                    cell.setDiagramType(readInterned(p));
+                    return true;
+                default:
+                    return false;
+            }
+        });
+
+        return cell;
+    }
+
+    /**
+     * Reads the cells of a note.
+     *
+     * @param parser The parser, positioned on the start of the array of cells.
+     * @return A list of {@link QuiverCell}, or {@code null} if the value is {@code null}.
+     */
+    static List<QuiverCell> readCells(JsonParser parser) throws IOException {
+        return readCells(parser, null);
+    }
+
+    /**
+     * Reads the cells of a note from a memory-mapped file, leaving their data undecoded in the file when possible.
+     *
+     * @param parser The parser over the whole buffer, positioned on the start of the array of cells.
+     * @param source The buffer the parser reads, or {@code null} to decode the data right away.
+     * @return A list of {@link QuiverCell}, or {@code null} if the value is {@code null}.
+     */
+    static List<QuiverCell> readCells(JsonParser parser, ByteBuffer source) throws IOException {
+        if (JsonToken.VALUE_NULL == parser.getCurrentToken()) {
+            return null;
+        }
+
+        List<QuiverCell> cells = new ArrayList<>();
+        readArray(parser, p -> cells.add(readCell(p, true, source)));
+
+        return cells;
+    }
+
+    /**
+     * Tells whether any of the cells of a note matches a predicate, reading them without their data and stopping at
+     * the first match.
+     *
+     * @param parser    The parser, positioned on the start of the array of cells.
+     * @param predicate The predicate, tested against cells without data.
+     * @return {@code true} if a cell matches, in which case the rest of the array is left unread.
+     */
+    static boolean anyCell(JsonParser parser, Predicate<QuiverCell> predicate) throws IOException {
+        if (JsonToken.VALUE_NULL == parser.getCurrentToken()) {
+            return false;
+        }
+        expect(parser, parser.getCurrentToken(), JsonToken.START_ARRAY);
+
+        JsonToken token;
+        while (JsonToken.END_ARRAY != (token = parser.nextToken())) {
+            if (null == token) {
+                throw new JsonParseException("Unexpected end of array", parser.getCurrentLocation());
+            }
+
+            if (predicate.test(readCell(parser, false))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static QuiverCellPayload findPayload(JsonParser parser, ByteBuffer source) {
+        if (JsonToken.VALUE_STRING != parser.getCurrentToken()) {
+            return null;
+        }
+
+        return findFieldValue(source, parser.getCurrentLocation().getCharOffset());
+    }
+
+    /**
+     * Finds the string value of a field in a buffer, given where a byte-based parser located it.
+     * <p>
+     * Depending on their version, parsers locate a string value at its opening quote or right after it. Both can be a
+     * quote, e.g. for an empty string, so the opening quote is the one that directly follows the colon of the field.
+     *
+     * @param source  The buffer the parser reads.
+     * @param located The offset the parser located the value at.
+     * @return The payload, or {@code null} if the value can't be found, in which case it is decoded by the parser.
+     */
+    static QuiverCellPayload findFieldValue(ByteBuffer source, long located) {
+        if (located < 1 || located >= source.limit()) {
+            return null;
+        }
+
+        for (int quote = (int) located; quote >= located - 1; quote--) {
+            if (followsColon(source, quote)) {
+                return QuiverCellPayload.find(source, quote);
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean followsColon(ByteBuffer source, int offset) {
+        int i = offset - 1;
+        while (i >= 0 && isWhitespace(source.get(i))) {
+            i--;
+        }
+
+        return i >= 0 && ':' == source.get(i);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return ' ' == b || '\t' == b || '\n' == b || '\r' == b;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (expected != actual) {
+            throw new JsonParseException("Expected " + expected + " but found " + actual, parser.getCurrentLocation());
+        }
+    }
+}
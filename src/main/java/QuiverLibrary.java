@@ -1,38 +1,87 @@
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import exceptions.MalformedException;
 import exceptions.MalformedLibraryException;
 import exceptions.MalformedMetadataException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * Represents the top-level collection of notebooks: a library.
+ * <p>
+ * Libraries are equal when they have the same identifier and location, so hashing, comparing or printing one never
+ * loads its notebooks; {@link #contentEquals(QuiverLibrary)} compares everything they hold instead.
  */
 @Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString(onlyExplicitlyIncluded = true)
 public class QuiverLibrary {
     private static final String META_FILE_NAME = "meta.json";
+    private static final String NOTEBOOK_GLOB = "*.qvnotebook";
 
     /**
      * The unique identifier for this library.
      */
+    @EqualsAndHashCode.Include
+    @ToString.Include
     private final String id;
     /**
      * The total number of notebooks inside this library.
      */
-    private final int numberOfNotebooks;
+    @Setter(AccessLevel.NONE)
+    private volatile int numberOfNotebooks;
     /**
      * The notebooks inside this library.
      */
-    private List<QuiverNotebook> notebooks;
+    private volatile List<QuiverNotebook> notebooks;
+    /**
+     * The full-text index of the notes inside this library.
+     */
+    @Setter(AccessLevel.NONE)
+    private volatile QuiverSearchIndex searchIndex;
 
+    @EqualsAndHashCode.Include
+    @ToString.Include
     private final Path location;
     private final ObjectMapper mapper;
+    private final QuiverOptions options;
+    // Built on the first lookup by identifier or tag
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile QuiverMetadataIndex metadataIndex;
+    // Guards the search index on its own, since building it reads every note and mustn't hold up the other updates
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Object searchIndexLock = new Object();
+    // Serializes transactions, which all rewrite the same meta.json when they create notebooks
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Object writeLock = new Object();
 
     // A convenient constructor for users that don't want to manage Jackson themselves
     public QuiverLibrary(Path location) {
@@ -40,8 +89,13 @@ public class QuiverLibrary {
     }
 
     public QuiverLibrary(Path location, ObjectMapper mapper) {
+        this(location, mapper, QuiverOptions.DEFAULT);
+    }
+
+    public QuiverLibrary(Path location, ObjectMapper mapper, QuiverOptions options) {
         this.location = location;
         this.mapper = mapper;
+        this.options = options;
 
         Metadata metadata = loadMetadata();
 
@@ -49,37 +103,546 @@ public class QuiverLibrary {
         this.numberOfNotebooks = metadata.getChildren().size();
     }
 
+    /**
+     * Creates a library from metadata and notebooks that were already read.
+     *
+     * @param location          The location of the library.
+     * @param mapper            The mapper used to read the files of the library.
+     * @param options           The options of the library.
+     * @param id                The unique identifier of the library.
+     * @param numberOfNotebooks The number of notebooks according to the metadata of the library.
+     * @param notebooks         The notebooks inside the library, sorted by their location.
+     */
+    QuiverLibrary(Path location, ObjectMapper mapper, QuiverOptions options, String id, int numberOfNotebooks,
+                  List<QuiverNotebook> notebooks) {
+        this.location = location;
+        this.mapper = mapper;
+        this.options = options;
+        this.id = id;
+        this.numberOfNotebooks = numberOfNotebooks;
+        this.notebooks = notebooks;
+    }
+
+    /**
+     * @return The identity of this library, which holds on to nothing else.
+     */
+    public QuiverLibraryHandle getHandle() {
+        return new QuiverLibraryHandle(id, location);
+    }
+
+    /**
+     * Compares everything this library holds with another library, loading the notebooks, notes and content of both.
+     *
+     * @param other The other library.
+     * @return {@code true} if both have the same identifier and notebooks, in the same order, with equal content.
+     */
+    public boolean contentEquals(QuiverLibrary other) {
+        if (this == other) {
+            return true;
+        }
+        if (null == other || !Objects.equals(id, other.id)) {
+            return false;
+        }
+
+        List<QuiverNotebook> these = getNotebooks();
+        List<QuiverNotebook> those = other.getNotebooks();
+        if (these.size() != those.size()) {
+            return false;
+        }
+        for (int i = 0; i < these.size(); i++) {
+            if (!these.get(i).contentEquals(those.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Lazily loads the notebooks inside this library.
+     * <p>
+     * Safe for concurrent use: callers that ask while the load is running wait for it instead of loading again.
      *
      * @return A list of {@link QuiverNotebook}.
      */
     public List<QuiverNotebook> getNotebooks() {
-        if (null == notebooks) {
-            notebooks = loadNotebooks();
+        // Double-checked under the same lock as the updates, so concurrent callers share a single load
+        List<QuiverNotebook> loaded = notebooks;
+        if (null == loaded) {
+            synchronized (this) {
+                loaded = notebooks;
+                if (null == loaded) {
+                    loaded = loadNotebooks();
+                    notebooks = loaded;
+                }
+            }
         }
 
-        return notebooks;
+        return loaded;
     }
 
-    private Metadata loadMetadata() {
-        Path metadataLocation = location.resolve(Paths.get(META_FILE_NAME));
+    /**
+     * Loads the notebooks inside this library without blocking the calling thread, as {@link #getNotebooks()} does.
+     * <p>
+     * Failures, e.g. a {@link MalformedMetadataException}, complete the returned future exceptionally. Cancelling it
+     * before the executor starts the load skips the load.
+     *
+     * @param executor The executor that loads the notebooks, e.g. one running each task on a virtual thread.
+     * @return A future of the list of {@link QuiverNotebook}.
+     */
+    public CompletableFuture<List<QuiverNotebook>> loadNotebooksAsync(Executor executor) {
+        return QuiverLoader.loadAsync(this::getNotebooks, executor);
+    }
 
-        try {
-            return mapper.readValue(metadataLocation.toFile(), Metadata.class);
-        } catch (IOException e) {
-            throw new MalformedMetadataException(metadataLocation.toString(), e);
+    /**
+     * Lazily opens the full-text index of this library, building and persisting it next to the library if it doesn't
+     * exist yet.
+     * <p>
+     * An existing index is refreshed when it is opened, so only the notes that changed since it was last persisted
+     * are read.
+     *
+     * @return A {@link QuiverSearchIndex}.
+     */
+    public QuiverSearchIndex getSearchIndex() {
+        QuiverSearchIndex index = searchIndex;
+        if (null == index) {
+            synchronized (searchIndexLock) {
+                index = searchIndex;
+                if (null == index) {
+                    index = openSearchIndex();
+                    searchIndex = index;
+                }
+            }
         }
+
+        return index;
+    }
+
+    /**
+     * Finds a notebook inside this library by its identifier in constant time.
+     * <p>
+     * The first lookup by identifier or tag loads every notebook and note of this library, without their content, to
+     * index them. The index is then kept current as they change.
+     *
+     * @param id The unique identifier of the notebook.
+     * @return The notebook, or {@code null} if there's no such notebook.
+     */
+    public QuiverNotebook findNotebookById(String id) {
+        return getMetadataIndex().findNotebook(id);
+    }
+
+    /**
+     * Finds a note inside this library by its identifier in constant time.
+     *
+     * @param id The unique identifier of the note.
+     * @return The note, or {@code null} if there's no such note.
+     * @see #findNotebookById(String)
+     */
+    public QuiverNote findNoteById(String id) {
+        return getMetadataIndex().findNote(id);
+    }
+
+    /**
+     * Finds the notes inside this library that have a tag.
+     *
+     * @param tag The tag.
+     * @return A list of {@link QuiverNote}, in no particular order.
+     * @see #findNotebookById(String)
+     */
+    public List<QuiverNote> notesByTag(String tag) {
+        return getMetadataIndex().notesByTag(tag);
+    }
+
+    /**
+     * Searches the notes inside this library that contain any of the terms of a query.
+     *
+     * @param query The query, e.g. {@code lazy streams}.
+     * @param limit The maximum number of hits to return.
+     * @return A list of {@link QuiverSearchHit}, the best ranked first.
+     */
+    public List<QuiverSearchHit> search(String query, int limit) {
+        return getSearchIndex().search(query, limit);
+    }
+
+    /**
+     * Lazily streams the notebooks inside this library, one at a time and in directory order.
+     * <p>
+     * Unlike {@link #getNotebooks()}, the notebooks are not kept by this library. The returned stream holds an open
+     * directory handle and must be closed after use, e.g. with a try-with-resources statement.
+     *
+     * @return A stream of {@link QuiverNotebook}.
+     */
+    public Stream<QuiverNotebook> streamNotebooks() {
+        return streamNotebookLocations()
+                .map(QuiverLoader.skippingMalformed(f -> new QuiverNotebook(f, mapper, options),
+                        options.getErrorHandler()))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Lazily streams the locations of the notebooks inside this library, in directory order, without reading them.
+     *
+     * @return A stream of locations, which must be closed after use.
+     */
+    Stream<Path> streamNotebookLocations() {
+        return QuiverLoader.list(location, NOTEBOOK_GLOB, MalformedLibraryException::new);
+    }
+
+    /**
+     * Lazily streams every note inside this library, together with its notebook, one at a time.
+     * <p>
+     * Neither the notebooks nor the notes are kept by this library, so walking the whole library runs in constant
+     * memory. The returned stream holds open directory handles and must be closed after use, e.g. with a
+     * try-with-resources statement.
+     *
+     * @return A stream of {@link QuiverNoteEntry}.
+     */
+    public Stream<QuiverNoteEntry> streamNotes() {
+        return streamNotes(streamNotebooks(), QuiverNotebook::streamNotes);
+    }
+
+    /**
+     * Lazily queries the notes inside this library, reading only the files needed to tell whether they match.
+     *
+     * @return A new {@link QuiverQuery} matching every note.
+     */
+    public QuiverQuery query() {
+        return new QuiverQuery(this);
+    }
+
+    /**
+     * Exports the notes inside this library, streaming them rather than loading them all at once.
+     *
+     * @return A new {@link QuiverExporter}.
+     */
+    public QuiverExporter export() {
+        return new QuiverExporter(this);
+    }
+
+    /**
+     * Starts a transaction that creates notebooks and creates or updates notes inside this library.
+     *
+     * @return A new {@link QuiverTransaction}, which writes nothing until it is committed.
+     */
+    public QuiverTransaction transaction() {
+        return new QuiverTransaction(this);
+    }
+
+    /**
+     * @return The lock held while a transaction writes to this library.
+     */
+    Object getWriteLock() {
+        return writeLock;
+    }
+
+    /**
+     * Lazily streams every cell inside this library, together with its note and notebook, one note at a time.
+     * <p>
+     * The content of each note is loaded when the stream reaches it and is not kept by this library. The returned
+     * stream holds open directory handles and must be closed after use, e.g. with a try-with-resources statement.
+     *
+     * @return A stream of {@link QuiverCellEntry}.
+     */
+    public Stream<QuiverCellEntry> streamCells() {
+        return streamNotes().flatMap(entry -> {
+            List<QuiverCell> cells;
+            try {
+                cells = entry.getNote().getContent();
+            } catch (MalformedException e) {
+                // Notes whose content is malformed are skipped like malformed notes when loading is lenient
+                if (null == options.getErrorHandler()) {
+                    throw e;
+                }
+                options.getErrorHandler().onError(new QuiverLoadError(entry.getNote().getLocation(), e));
+
+                return Stream.empty();
+            }
+
+            return cells.stream().map(cell -> new QuiverCellEntry(entry.getNotebook(), entry.getNote(), cell));
+        });
+    }
+
+    /**
+     * Watches this library for changes on disk, keeping its loaded notebooks, notes and content up to date.
+     *
+     * @param listener The listener to notify of every change.
+     * @return A started {@link QuiverLibraryWatcher}, which must be closed after use.
+     */
+    public QuiverLibraryWatcher watch(QuiverLibraryListener listener) {
+        QuiverLibraryWatcher watcher = new QuiverLibraryWatcher(this);
+        watcher.addListener(listener);
+        watcher.start();
+
+        return watcher;
+    }
+
+    /**
+     * Finds a notebook that was already loaded by {@link #getNotebooks()}, without loading any.
+     *
+     * @param notebookLocation The location of the notebook.
+     * @return The notebook, or {@code null} if the notebooks weren't loaded yet or there's no such notebook.
+     */
+    QuiverNotebook findLoadedNotebook(Path notebookLocation) {
+        List<QuiverNotebook> current = notebooks;
+        if (null == current) {
+            return null;
+        }
+
+        int index = QuiverLoader.indexOf(current, QuiverNotebook::getLocation, notebookLocation);
+        return index >= 0 ? current.get(index) : null;
+    }
+
+    /**
+     * Reloads a notebook that was added or changed, replacing it in the loaded notebooks.
+     * <p>
+     * The loaded notebooks are replaced by an updated copy, so lists previously returned by {@link #getNotebooks()}
+     * are left untouched.
+     *
+     * @param notebookLocation The location of the notebook.
+     */
+    synchronized void reloadNotebook(Path notebookLocation) {
+        List<QuiverNotebook> current = notebooks;
+        if (null == current) {
+            return;
+        }
+
+        List<QuiverNotebook> updated = new ArrayList<>(current);
+        QuiverNotebook notebook = new QuiverNotebook(notebookLocation, mapper, options);
+        int index = QuiverLoader.indexOf(updated, QuiverNotebook::getLocation, notebookLocation);
+        QuiverNotebook previous = null;
+        if (index >= 0) {
+            previous = updated.set(index, notebook);
+        } else {
+            updated.add(-index - 1, notebook);
+        }
+        notebooks = updated;
+
+        QuiverMetadataIndex currentIndex = metadataIndex;
+        if (null != currentIndex) {
+            if (null != previous) {
+                currentIndex.removeNotebook(previous);
+            }
+            currentIndex.addNotebook(notebook);
+        }
+    }
+
+    /**
+     * Removes a notebook that was deleted from the loaded notebooks.
+     *
+     * @param notebookLocation The location of the notebook.
+     */
+    synchronized void removeNotebook(Path notebookLocation) {
+        List<QuiverNotebook> current = notebooks;
+        if (null == current) {
+            return;
+        }
+
+        int index = QuiverLoader.indexOf(current, QuiverNotebook::getLocation, notebookLocation);
+        if (index >= 0) {
+            List<QuiverNotebook> updated = new ArrayList<>(current);
+            QuiverNotebook removed = updated.remove(index);
+            notebooks = updated;
+
+            if (null != metadataIndex) {
+                metadataIndex.removeNotebook(removed);
+            }
+        }
+    }
+
+    /**
+     * Reloads the metadata of a note that was added or changed inside a loaded notebook, keeping the lookups by
+     * identifier and tag current.
+     *
+     * @param noteLocation The location of the note.
+     */
+    synchronized void reloadNote(Path noteLocation) {
+        QuiverNotebook notebook = findLoadedNotebook(noteLocation.getParent());
+        if (null == notebook) {
+            return;
+        }
+
+        QuiverNote previous = notebook.findLoadedNote(noteLocation);
+        notebook.reloadNote(noteLocation);
+        updateIndex(notebook, Collections.singletonList(previous), Collections.singletonList(noteLocation));
+    }
+
+    /**
+     * Adds notes that were written inside a loaded notebook, replacing the loaded notes at the same locations and
+     * keeping the lookups by identifier and tag current.
+     *
+     * @param notebookLocation The location of the notebook.
+     * @param written          The notes that were written.
+     */
+    synchronized void putNotes(Path notebookLocation, List<QuiverNote> written) {
+        QuiverNotebook notebook = findLoadedNotebook(notebookLocation);
+        if (null == notebook) {
+            return;
+        }
+
+        List<QuiverNote> previous = new ArrayList<>(written.size());
+        List<Path> noteLocations = new ArrayList<>(written.size());
+        for (QuiverNote note : written) {
+            previous.add(notebook.findLoadedNote(note.getLocation()));
+            noteLocations.add(note.getLocation());
+        }
+        notebook.putNotes(written);
+        updateIndex(notebook, previous, noteLocations);
+    }
+
+    private void updateIndex(QuiverNotebook notebook, List<QuiverNote> previous, List<Path> noteLocations) {
+        if (null == metadataIndex) {
+            return;
+        }
+
+        for (QuiverNote note : previous) {
+            if (null != note) {
+                metadataIndex.removeNote(note);
+            }
+        }
+        for (Path noteLocation : noteLocations) {
+            QuiverNote note = notebook.findLoadedNote(noteLocation);
+            if (null != note) {
+                metadataIndex.addNote(note);
+            }
+        }
+    }
+
+    /**
+     * Removes a note that was deleted from a loaded notebook, keeping the lookups by identifier and tag current.
+     *
+     * @param noteLocation The location of the note.
+     */
+    synchronized void removeNote(Path noteLocation) {
+        QuiverNotebook notebook = findLoadedNotebook(noteLocation.getParent());
+        if (null == notebook) {
+            return;
+        }
+
+        QuiverNote removed = notebook.findLoadedNote(noteLocation);
+        notebook.removeNote(noteLocation);
+
+        if (null != metadataIndex && null != removed) {
+            metadataIndex.removeNote(removed);
+        }
+    }
+
+    /**
+     * Reloads the metadata of this library after they changed.
+     */
+    synchronized void reloadMetadata() {
+        numberOfNotebooks = loadMetadata().getChildren().size();
+    }
+
+    /**
+     * Drops everything that was loaded from this library, so it is loaded again on its next use.
+     */
+    synchronized void invalidate() {
+        reloadMetadata();
+        notebooks = null;
+        metadataIndex = null;
+    }
+
+    /**
+     * Lazily streams the notes of a sequence of notebooks, keeping at most one notebook directory open at a time.
+     *
+     * @param notebooks The notebooks.
+     * @param notes     The function streaming the notes of a notebook.
+     * @return A stream of {@link QuiverNoteEntry}, which must be closed after use.
+     */
+    static Stream<QuiverNoteEntry> streamNotes(Stream<QuiverNotebook> notebooks,
+                                               Function<QuiverNotebook, Stream<QuiverNote>> notes) {
+        NoteSpliterator spliterator = new NoteSpliterator(notebooks.iterator(), notes);
+
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close).onClose(notebooks::close);
+    }
+
+    private QuiverSearchIndex openSearchIndex() {
+        Path indexLocation = QuiverSearchIndex.defaultLocation(location);
+        if (!Files.exists(indexLocation)) {
+            return QuiverSearchIndex.build(this, indexLocation).save();
+        }
+
+        QuiverSearchIndex index = QuiverSearchIndex.open(this, indexLocation);
+        if (!index.refresh().isEmpty()) {
+            index.save();
+        }
+
+        return index;
+    }
+
+    private QuiverMetadataIndex getMetadataIndex() {
+        QuiverMetadataIndex index = metadataIndex;
+        if (null == index) {
+            // Build under the same lock as the updates, so none of them is missed while building
+            synchronized (this) {
+                index = metadataIndex;
+                if (null == index) {
+                    index = QuiverMetadataIndex.build(getNotebooks());
+                    metadataIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private Metadata loadMetadata() {
+        Path metadataLocation = location.resolve(META_FILE_NAME);
+
+        return QuiverProbe.read(options.getInstrumentation(), QuiverOperation.READ_METADATA, metadataLocation,
+                input -> mapper.readValue(input, Metadata.class), MalformedMetadataException::new);
     }
 
     private List<QuiverNotebook> loadNotebooks() {
-        try {
-            return Files.list(location)
-                    .filter(f -> f.toString().endsWith(".qvnotebook"))
-                    .map(f -> new QuiverNotebook(f, mapper))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            throw new MalformedLibraryException(location.toString(), e);
+        // Sort the locations so notebooks are returned in the same order regardless of how they are loaded
+        List<Path> notebookLocations = QuiverProbe.measure(options.getInstrumentation(), QuiverOperation.LIST_DIRECTORY,
+                location, () -> QuiverLoader.listSorted(location, NOTEBOOK_GLOB, MalformedLibraryException::new));
+
+        return QuiverLoader.load(notebookLocations, f -> new QuiverNotebook(f, mapper, options), options.getExecutor(),
+                options.getErrorHandler());
+    }
+
+    /**
+     * Walks the notes of a sequence of notebooks, keeping at most one notebook directory open at a time.
+     */
+    private static class NoteSpliterator extends Spliterators.AbstractSpliterator<QuiverNoteEntry> {
+        private final Iterator<QuiverNotebook> notebooks;
+        private final Function<QuiverNotebook, Stream<QuiverNote>> streamNotes;
+        private QuiverNotebook notebook;
+        private Stream<QuiverNote> notes;
+        private Iterator<QuiverNote> notesIterator;
+
+        NoteSpliterator(Iterator<QuiverNotebook> notebooks, Function<QuiverNotebook, Stream<QuiverNote>> streamNotes) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.notebooks = notebooks;
+            this.streamNotes = streamNotes;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super QuiverNoteEntry> action) {
+            while (null == notesIterator || !notesIterator.hasNext()) {
+                close();
+
+                if (!notebooks.hasNext()) {
+                    return false;
+                }
+
+                notebook = notebooks.next();
+                notes = streamNotes.apply(notebook);
+                notesIterator = notes.iterator();
+            }
+
+            action.accept(new QuiverNoteEntry(notebook, notesIterator.next()));
+
+            return true;
+        }
+
+        void close() {
+            if (null != notes) {
+                notes.close();
+                notes = null;
+                notesIterator = null;
+            }
         }
     }
 
@@ -88,6 +651,7 @@ public class QuiverLibrary {
      */
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonDeserialize(using = Metadata.Deserializer.class)
     private static class Metadata {
         private String uuid;
         private List<Children> children;
@@ -97,5 +661,40 @@ public class QuiverLibrary {
         private static class Children {
             private String uuid;
         }
+
+        static class Deserializer extends JsonDeserializer<Metadata> {
+            @Override
+            public Metadata deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                Metadata metadata = new Metadata();
+
+                QuiverJsonReader.readObject(parser, 0, (field, p) -> {
+                    switch (field) {
+                        case "uuid":
+                            metadata.setUuid(QuiverJsonReader.readString(p));
+                            return true;
+                        case "children":
+                            List<Children> children = new ArrayList<>();
+                            QuiverJsonReader.readArray(p, element -> {
+                                Children child = new Children();
+                                QuiverJsonReader.readObject(element, 0, (childField, c) -> {
+                                    if (!"uuid".equals(childField)) {
+                                        return false;
+                                    }
+
+                                    child.setUuid(QuiverJsonReader.readString(c));
+                                    return true;
+                                });
+                                children.add(child);
+                            });
+                            metadata.setChildren(children);
+                            return true;
+                        default:
+                            return false;
+                    }
+                });
+
+                return metadata;
+            }
+        }
     }
 }
@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Represents the notes of a library that were added, changed or deleted between two scans.
+ * <p>
+ * Notes are identified by their location relative to the library, e.g. {@code A.qvnotebook/B.qvnote}.
+ */
+@Data
+public class QuiverLibraryChanges {
+    /**
+     * The notes that only exist in the newer scan.
+     */
+    private final List<String> added;
+    /**
+     * The notes whose files changed between the scans.
+     */
+    private final List<String> changed;
+    /**
+     * The notes that only exist in the older scan.
+     */
+    private final List<String> deleted;
+
+    /**
+     * Compares two scans of a library.
+     *
+     * @param previous The fingerprints of the older scan.
+     * @param current  The fingerprints of the newer scan.
+     * @return The changes between the scans.
+     */
+    public static QuiverLibraryChanges between(Map<String, QuiverNoteFingerprint> previous,
+                                               Map<String, QuiverNoteFingerprint> current) {
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+
+        for (Map.Entry<String, QuiverNoteFingerprint> note : current.entrySet()) {
+            QuiverNoteFingerprint before = previous.get(note.getKey());
+
+            if (null == before) {
+                added.add(note.getKey());
+            } else if (!before.hasSameFiles(note.getValue())) {
+                changed.add(note.getKey());
+            }
+        }
+        for (String note : previous.keySet()) {
+            if (!current.containsKey(note)) {
+                deleted.add(note);
+            }
+        }
+
+        return new QuiverLibraryChanges(Collections.unmodifiableList(added), Collections.unmodifiableList(changed),
+                Collections.unmodifiableList(deleted));
+    }
+
+    /**
+     * @return {@code true} if no note was added, changed or deleted.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && deleted.isEmpty();
+    }
+}
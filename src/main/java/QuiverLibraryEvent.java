@@ -0,0 +1,44 @@
+import java.nio.file.Path;
+
+import lombok.Data;
+
+/**
+ * Represents a change to a library on disk, as reported by a {@link QuiverLibraryWatcher}.
+ */
+@Data
+public class QuiverLibraryEvent {
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+    /**
+     * The location of the library, notebook or note that changed.
+     */
+    private final Path location;
+
+    /**
+     * The kinds of changes to a library.
+     */
+    public enum Type {
+        /**
+         * The metadata of the library changed, or too many changes happened to tell them apart.
+         */
+        LIBRARY_CHANGED,
+        NOTEBOOK_ADDED,
+        /**
+         * The metadata of a notebook changed.
+         */
+        NOTEBOOK_CHANGED,
+        NOTEBOOK_REMOVED,
+        NOTE_ADDED,
+        /**
+         * The metadata of a note changed, and maybe its content as well.
+         */
+        NOTE_CHANGED,
+        /**
+         * Only the content of a note changed.
+         */
+        CONTENT_CHANGED,
+        NOTE_REMOVED
+    }
+}
@@ -0,0 +1,23 @@
+import java.nio.file.Path;
+
+/**
+ * Listens to the changes to a library on disk, as reported by a {@link QuiverLibraryWatcher}.
+ */
+@FunctionalInterface
+public interface QuiverLibraryListener {
+    /**
+     * Called after a change was applied to the loaded notebooks, notes and content of the library.
+     *
+     * @param event The change.
+     */
+    void onChange(QuiverLibraryEvent event);
+
+    /**
+     * Called when a change couldn't be applied, e.g. because a note was left malformed on disk.
+     *
+     * @param location The location of the library, notebook or note that changed.
+     * @param e        The failure.
+     */
+    default void onError(Path location, RuntimeException e) {
+    }
+}
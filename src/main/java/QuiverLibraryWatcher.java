@@ -0,0 +1,377 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import exceptions.MalformedLibraryException;
+import exceptions.MalformedNotebookException;
+
+/**
+ * Watches a library on disk and keeps its loaded notebooks, notes and content up to date.
+ * <p>
+ * The library, notebook and note directories are watched with a {@link WatchService}. Bursts of events are debounced:
+ * they are only applied once no new event has been seen for the debounce delay. Only the affected objects are
+ * reloaded or invalidated, and every change is then reported to the registered {@link QuiverLibraryListener}s.
+ * <p>
+ * Every note directory is watched, so watching a large library may require raising the platform limits on watches,
+ * e.g. {@code fs.inotify.max_user_watches} on Linux.
+ * <p>
+ * Changes that can't be applied, e.g. a directory deleted while it is registered, are reported to
+ * {@link QuiverLibraryListener#onError(Path, RuntimeException)} and the watcher goes on with the next events.
+ */
+public class QuiverLibraryWatcher implements Closeable {
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+    // A burst of events is applied after this many debounce delays at the latest, even if it goes on
+    private static final int MAX_DEBOUNCES = 10;
+    private static final String META_FILE_NAME = "meta.json";
+    private static final String CONTENT_FILE_NAME = "content.json";
+    private static final int METADATA = 1;
+    private static final int CONTENT = 2;
+
+    private final QuiverLibrary library;
+    private final long debounceMillis;
+    private final List<QuiverLibraryListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    // The notebook and note directories with pending events, and what changed inside of them
+    private final Map<Path, Integer> pending = new LinkedHashMap<>();
+    private boolean libraryChanged;
+    private boolean overflowed;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public QuiverLibraryWatcher(QuiverLibrary library) {
+        this(library, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public QuiverLibraryWatcher(QuiverLibrary library, long debounceMillis) {
+        this.library = library;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Registers a listener to notify of every change.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(QuiverLibraryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener.
+     */
+    public void removeListener(QuiverLibraryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching the library on a daemon thread.
+     */
+    public synchronized void start() {
+        if (null != thread) {
+            throw new IllegalStateException("The watcher was already started");
+        }
+
+        Path location = library.getLocation();
+        try {
+            watchService = location.getFileSystem().newWatchService();
+        } catch (IOException e) {
+            throw new MalformedLibraryException(location.toString(), e);
+        }
+        registerLibrary();
+
+        thread = new Thread(this::run, "quiver-watcher-" + location.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the library. Pending events that weren't applied yet are dropped.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (null != watchService) {
+            watchService.close();
+        }
+        if (null != thread) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        long firstPendingAt = 0;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = hasPending()
+                        ? watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)
+                        : watchService.take();
+
+                if (null != key) {
+                    if (!hasPending()) {
+                        firstPendingAt = System.nanoTime();
+                    }
+                    collect(key);
+                }
+
+                boolean quiet = null == key;
+                boolean overdue = System.nanoTime() - firstPendingAt
+                        > TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAX_DEBOUNCES);
+                if (hasPending() && (quiet || overdue)) {
+                    apply();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was closed
+        }
+    }
+
+    private boolean hasPending() {
+        return libraryChanged || overflowed || !pending.isEmpty();
+    }
+
+    private void collect(WatchKey key) {
+        Path directory = (Path) key.watchable();
+
+        try {
+            collect(directory, key.pollEvents());
+        } catch (RuntimeException e) {
+            // The watcher goes on with the next events, so it is only stopped by closing it
+            report(directory, e);
+        }
+
+        // A key that can't be reset belongs to a deleted directory, which is handled through the events of its parent
+        key.reset();
+    }
+
+    private void collect(Path directory, List<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            if (StandardWatchEventKinds.OVERFLOW == event.kind()) {
+                overflowed = true;
+                continue;
+            }
+
+            Path child = directory.resolve((Path) event.context());
+            String name = child.getFileName().toString();
+
+            if (directory.equals(library.getLocation())) {
+                if (META_FILE_NAME.equals(name)) {
+                    libraryChanged = true;
+                } else if (name.endsWith(".qvnotebook")) {
+                    pending.merge(child, 0, (a, b) -> a | b);
+                }
+            } else if (directory.getParent().equals(library.getLocation())) {
+                if (META_FILE_NAME.equals(name)) {
+                    pending.merge(directory, METADATA, (a, b) -> a | b);
+                } else if (name.endsWith(".qvnote")) {
+                    pending.merge(child, 0, (a, b) -> a | b);
+                }
+            } else if (META_FILE_NAME.equals(name)) {
+                pending.merge(directory, METADATA, (a, b) -> a | b);
+            } else if (CONTENT_FILE_NAME.equals(name)) {
+                pending.merge(directory, CONTENT, (a, b) -> a | b);
+            }
+        }
+    }
+
+    private void apply() {
+        try {
+            applyPending();
+        } finally {
+            // Whatever failed was reported, and is picked up again by the next events of the same directories
+            pending.clear();
+            libraryChanged = false;
+            overflowed = false;
+        }
+    }
+
+    private void applyPending() {
+        if (overflowed) {
+            // Events were lost, so nothing loaded can be trusted anymore
+            apply(library.getLocation(), QuiverLibraryEvent.Type.LIBRARY_CHANGED, () -> {
+                if (null != library.getOptions().getContentCache()) {
+                    library.getOptions().getContentCache().invalidateAll();
+                }
+                library.invalidate();
+                unregisterAll();
+                registerLibrary();
+            });
+        } else {
+            if (libraryChanged) {
+                apply(library.getLocation(), QuiverLibraryEvent.Type.LIBRARY_CHANGED, library::reloadMetadata);
+            }
+
+            // Notebooks come first, so notes inside of new notebooks are already watched by the time they are seen
+            for (Map.Entry<Path, Integer> change : pending.entrySet()) {
+                if (change.getKey().getParent().equals(library.getLocation())) {
+                    applyNotebook(change.getKey(), change.getValue());
+                }
+            }
+            for (Map.Entry<Path, Integer> change : pending.entrySet()) {
+                if (!change.getKey().getParent().equals(library.getLocation())) {
+                    applyNote(change.getKey(), change.getValue());
+                }
+            }
+        }
+    }
+
+    private void applyNotebook(Path notebook, int changes) {
+        boolean exists = Files.isDirectory(notebook);
+        boolean watched = keys.containsKey(notebook);
+
+        if (exists && !watched) {
+            apply(notebook, QuiverLibraryEvent.Type.NOTEBOOK_ADDED, () -> {
+                registerNotebook(notebook);
+                library.reloadNotebook(notebook);
+            });
+        } else if (!exists && watched) {
+            apply(notebook, QuiverLibraryEvent.Type.NOTEBOOK_REMOVED, () -> {
+                unregister(notebook);
+                library.removeNotebook(notebook);
+            });
+        } else if (exists && 0 != (changes & METADATA)) {
+            apply(notebook, QuiverLibraryEvent.Type.NOTEBOOK_CHANGED, () -> library.reloadNotebook(notebook));
+        }
+    }
+
+    private void applyNote(Path note, int changes) {
+        if (!keys.containsKey(note.getParent())) {
+            // The notebook was added or removed as a whole
+            return;
+        }
+
+        boolean exists = Files.isDirectory(note);
+        boolean watched = keys.containsKey(note);
+
+        if (exists && !watched) {
+            apply(note, QuiverLibraryEvent.Type.NOTE_ADDED, () -> {
+                register(note, MalformedNotebookException::new);
+                library.reloadNote(note);
+            });
+        } else if (!exists && watched) {
+            apply(note, QuiverLibraryEvent.Type.NOTE_REMOVED, () -> {
+                unregister(note);
+                invalidateContent(note);
+                library.removeNote(note);
+            });
+        } else if (exists && 0 != (changes & METADATA)) {
+            apply(note, QuiverLibraryEvent.Type.NOTE_CHANGED, () -> {
+                invalidateContent(note);
+                library.reloadNote(note);
+            });
+        } else if (exists && 0 != (changes & CONTENT)) {
+            apply(note, QuiverLibraryEvent.Type.CONTENT_CHANGED, () -> {
+                invalidateContent(note);
+                QuiverNotebook notebook = library.findLoadedNotebook(note.getParent());
+                QuiverNote loaded = null == notebook ? null : notebook.findLoadedNote(note);
+                if (null != loaded) {
+                    loaded.invalidateContent();
+                }
+            });
+        }
+    }
+
+    private void invalidateContent(Path note) {
+        // The content may be cached even if the note itself isn't loaded, e.g. after streaming the library
+        QuiverContentCache cache = library.getOptions().getContentCache();
+        if (null != cache) {
+            cache.invalidate(note);
+        }
+    }
+
+    private void apply(Path location, QuiverLibraryEvent.Type type, Runnable change) {
+        try {
+            change.run();
+        } catch (RuntimeException e) {
+            report(location, e);
+            return;
+        }
+
+        QuiverLibraryEvent event = new QuiverLibraryEvent(type, location);
+        for (QuiverLibraryListener listener : listeners) {
+            listener.onChange(event);
+        }
+    }
+
+    private void report(Path location, RuntimeException e) {
+        for (QuiverLibraryListener listener : listeners) {
+            listener.onError(location, e);
+        }
+    }
+
+    private void registerLibrary() {
+        Path location = library.getLocation();
+        register(location, MalformedLibraryException::new);
+
+        try (Stream<Path> notebooks = QuiverLoader.list(location, "*.qvnotebook", MalformedLibraryException::new)) {
+            notebooks.forEach(notebook -> {
+                try {
+                    registerNotebook(notebook);
+                } catch (MalformedNotebookException e) {
+                    // e.g. the notebook was deleted while the library was listed, which its own events tell about
+                    report(notebook, e);
+                }
+            });
+        }
+    }
+
+    private void registerNotebook(Path notebook) {
+        register(notebook, MalformedNotebookException::new);
+
+        try (Stream<Path> notes = QuiverLoader.list(notebook, "*.qvnote", MalformedNotebookException::new)) {
+            notes.forEach(note -> {
+                try {
+                    register(note, MalformedNotebookException::new);
+                } catch (MalformedNotebookException e) {
+                    // e.g. the note was deleted while the notebook was listed, which its own events tell about
+                    report(note, e);
+                }
+            });
+        }
+    }
+
+    private void register(Path directory, BiFunction<String, Throwable, RuntimeException> failure) {
+        try {
+            keys.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException e) {
+            throw failure.apply(directory.toString(), e);
+        }
+    }
+
+    private void unregister(Path directory) {
+        for (Iterator<Map.Entry<Path, WatchKey>> i = keys.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<Path, WatchKey> key = i.next();
+
+            if (key.getKey().startsWith(directory)) {
+                key.getValue().cancel();
+                invalidateContent(key.getKey());
+                i.remove();
+            }
+        }
+    }
+
+    private void unregisterAll() {
+        for (WatchKey key : keys.values()) {
+            key.cancel();
+        }
+        keys.clear();
+    }
+}
@@ -0,0 +1,388 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+
+/**
+ * Represents the links between the notes of a library, e.g. {@code quiver-note-url/D2A1CC36-CC97}, as a graph.
+ * <p>
+ * Every note is read once to find the links of its cells. Each identifier is then given an ordinal, and both the links
+ * of every note and the links to it are kept as sorted arrays of ordinals, so backlinks, neighborhoods and orphans are
+ * answered without reading anything. Links to notes that aren't in the library are kept too, so they resolve as soon
+ * as the note is added. The ordinal of an identifier that has neither a note nor links left is freed for the next one.
+ * <p>
+ * Every note is kept together with its {@link QuiverNoteFingerprint}, so {@link #refresh()} only reads the notes that
+ * were added or changed since they were read. Notes are read with the options of the library, without its content
+ * cache: with its executor, if any and, if it is lenient, malformed notes are reported to its error handler and left
+ * out of the graph, to be read again on the next refresh. The graph lives in memory and is safe for concurrent use.
+ */
+public class QuiverLinkGraph {
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final Path libraryLocation;
+    private final ObjectMapper mapper;
+    // Notes are read once each, so they don't go through the content cache of the library
+    private final QuiverOptions readOptions;
+    private final Map<String, GraphNote> notes = new LinkedHashMap<>();
+    // Freed ordinals are reused before new ones are added, so the arrays below only grow with the identifiers in use
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    // The identifier of each ordinal, or null if the ordinal is free
+    private final List<String> ids = new ArrayList<>();
+    private final List<Ordinals> outgoing = new ArrayList<>();
+    private final List<Ordinals> incoming = new ArrayList<>();
+    // The number of notes of the library with each identifier, which is usually zero or one
+    private int[] present = new int[16];
+    private int[] free = new int[16];
+    private int numberOfFree;
+    private int numberOfLinks;
+
+    private QuiverLinkGraph(QuiverLibrary library) {
+        this.libraryLocation = library.getLocation();
+        this.mapper = library.getMapper();
+        this.readOptions = library.getOptions().withoutContentCache();
+    }
+
+    /**
+     * Builds the link graph of a library by reading the content of every note, one note at a time.
+     *
+     * @param library The library.
+     * @return The graph.
+     */
+    public static QuiverLinkGraph build(QuiverLibrary library) {
+        QuiverLinkGraph graph = new QuiverLinkGraph(library);
+        // Building is refreshing an empty graph: every note in the library is new to it
+        graph.refresh();
+
+        return graph;
+    }
+
+    /**
+     * Brings this graph up to date with the library, reading only the notes that were added or changed since they were
+     * read and dropping the links of the ones that were deleted.
+     *
+     * @return The changes that were applied to this graph.
+     */
+    public synchronized QuiverLibraryChanges refresh() {
+        Map<String, QuiverNoteFingerprint> known = new HashMap<>(notes.size() * 2);
+        for (Map.Entry<String, GraphNote> note : notes.entrySet()) {
+            known.put(note.getKey(), note.getValue().getFingerprint());
+        }
+
+        Map<String, QuiverNoteFingerprint> current = QuiverNoteFingerprint.scan(libraryLocation);
+        QuiverLibraryChanges changes = QuiverLibraryChanges.between(known, current);
+
+        for (String key : changes.getDeleted()) {
+            remove(key);
+        }
+
+        List<Path> locations = new ArrayList<>(changes.getChanged().size() + changes.getAdded().size());
+        for (String key : changes.getChanged()) {
+            remove(key);
+            locations.add(libraryLocation.resolve(key));
+        }
+        for (String key : changes.getAdded()) {
+            locations.add(libraryLocation.resolve(key));
+        }
+
+        // Notes are read and their links found concurrently, then added to the graph one at a time
+        for (LinkedNote note : QuiverLoader.load(locations, l -> read(l, current), readOptions.getExecutor(),
+                readOptions.getErrorHandler())) {
+            add(note);
+        }
+
+        return changes;
+    }
+
+    /**
+     * @return The number of notes in this graph.
+     */
+    public synchronized int getNumberOfNotes() {
+        return notes.size();
+    }
+
+    /**
+     * @return The number of links in this graph, counting every linked note once per note that links to it.
+     */
+    public synchronized int getNumberOfLinks() {
+        return numberOfLinks;
+    }
+
+    /**
+     * @return The number of identifiers in this graph, of notes of the library or linked to by one.
+     */
+    synchronized int getNumberOfIdentifiers() {
+        return ordinals.size();
+    }
+
+    /**
+     * Finds the notes a note links to.
+     *
+     * @param noteId The unique identifier of the note.
+     * @return The identifiers of the linked notes in ascending order, including notes that aren't in the library.
+     */
+    public synchronized List<String> getLinks(String noteId) {
+        Integer ordinal = null == noteId ? null : ordinals.get(noteId);
+
+        return null == ordinal ? Collections.emptyList() : toIds(outgoing.get(ordinal));
+    }
+
+    /**
+     * Finds the notes that link to a note.
+     *
+     * @param noteId The unique identifier of the note.
+     * @return The identifiers of the linking notes in ascending order.
+     */
+    public synchronized List<String> getBacklinks(String noteId) {
+        Integer ordinal = null == noteId ? null : ordinals.get(noteId);
+
+        return null == ordinal ? Collections.emptyList() : toIds(incoming.get(ordinal));
+    }
+
+    /**
+     * Finds the notes within a number of links of a note, following links in both directions.
+     *
+     * @param noteId The unique identifier of the note.
+     * @param depth  The maximum number of links between the note and its neighbors, e.g. {@code 1} for the notes it
+     *               links to and the notes that link to it.
+     * @return The identifiers of the neighbors in ascending order, without the note itself.
+     */
+    public synchronized List<String> getNeighborhood(String noteId, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("The depth must not be negative: " + depth);
+        }
+
+        Integer start = null == noteId ? null : ordinals.get(noteId);
+        if (null == start) {
+            return Collections.emptyList();
+        }
+
+        BitSet visited = new BitSet(ids.size());
+        visited.set(start);
+        int[] frontier = {start};
+        for (int level = 0; level < depth && frontier.length > 0; level++) {
+            BitSet next = new BitSet(ids.size());
+            for (int ordinal : frontier) {
+                IntConsumer visit = neighbor -> {
+                    if (!visited.get(neighbor)) {
+                        visited.set(neighbor);
+                        next.set(neighbor);
+                    }
+                };
+                outgoing.get(ordinal).forEachDistinct(visit);
+                incoming.get(ordinal).forEachDistinct(visit);
+            }
+            frontier = next.stream().toArray();
+        }
+
+        visited.clear(start);
+        List<String> neighbors = new ArrayList<>(visited.cardinality());
+        visited.stream().forEach(ordinal -> neighbors.add(ids.get(ordinal)));
+        Collections.sort(neighbors);
+
+        return neighbors;
+    }
+
+    /**
+     * Finds the notes of the library that neither link to another note nor are linked to.
+     *
+     * @return The identifiers of the orphan notes in ascending order.
+     */
+    public synchronized List<String> getOrphans() {
+        List<String> orphans = new ArrayList<>();
+        for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+            if (present[ordinal] > 0 && outgoing.get(ordinal).isEmpty() && incoming.get(ordinal).isEmpty()) {
+                orphans.add(ids.get(ordinal));
+            }
+        }
+        Collections.sort(orphans);
+
+        return orphans;
+    }
+
+    private LinkedNote read(Path location, Map<String, QuiverNoteFingerprint> fingerprints) {
+        // The fingerprint was taken before reading the note, so any later change is caught by the next refresh
+        String key = libraryLocation.relativize(location).toString();
+        QuiverNote note = new QuiverNote(location, mapper, readOptions);
+        QuiverNoteFingerprint fingerprint = fingerprints.get(key).withNote(note);
+        if (null == note.getId()) {
+            // A note without an identifier can't be linked to, nor tell where its own links come from
+            return new LinkedNote(key, fingerprint, null, new String[0]);
+        }
+
+        TreeSet<String> targets = new TreeSet<>();
+        for (QuiverCell cell : note.getContent()) {
+            for (QuiverNoteLink link : cell.getNoteLinks()) {
+                if (!link.getNote().isEmpty() && !link.getNote().equals(note.getId())) {
+                    targets.add(link.getNote());
+                }
+            }
+        }
+
+        return new LinkedNote(key, fingerprint, note.getId(), targets.toArray(new String[0]));
+    }
+
+    private void add(LinkedNote read) {
+        if (null == read.getId()) {
+            notes.put(read.getKey(), new GraphNote(-1, read.getFingerprint(), NO_ORDINALS));
+            return;
+        }
+
+        int source = ordinalOf(read.getId());
+        int[] targets = new int[read.getTargets().length];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = ordinalOf(read.getTargets()[i]);
+        }
+        Arrays.sort(targets);
+
+        notes.put(read.getKey(), new GraphNote(source, read.getFingerprint(), targets));
+        present[source]++;
+        for (int target : targets) {
+            outgoing.get(source).add(target);
+            incoming.get(target).add(source);
+        }
+        numberOfLinks += targets.length;
+    }
+
+    private void remove(String key) {
+        GraphNote note = notes.remove(key);
+        int source = note.getOrdinal();
+        if (source < 0) {
+            return;
+        }
+
+        present[source]--;
+        for (int target : note.getTargets()) {
+            outgoing.get(source).remove(target);
+            incoming.get(target).remove(source);
+            release(target);
+        }
+        numberOfLinks -= note.getTargets().length;
+        release(source);
+    }
+
+    private int ordinalOf(String id) {
+        Integer ordinal = ordinals.get(id);
+        if (null != ordinal) {
+            return ordinal;
+        }
+
+        if (numberOfFree > 0) {
+            int reused = free[--numberOfFree];
+            ordinals.put(id, reused);
+            ids.set(reused, id);
+
+            return reused;
+        }
+
+        int added = ids.size();
+        ordinals.put(id, added);
+        ids.add(id);
+        outgoing.add(new Ordinals());
+        incoming.add(new Ordinals());
+        if (added == present.length) {
+            present = Arrays.copyOf(present, present.length * 2);
+        }
+
+        return added;
+    }
+
+    private void release(int ordinal) {
+        if (present[ordinal] > 0 || !outgoing.get(ordinal).isEmpty() || !incoming.get(ordinal).isEmpty()) {
+            return;
+        }
+
+        // Nothing refers to the identifier anymore, so its ordinal is freed along with the arrays it grew
+        ordinals.remove(ids.get(ordinal));
+        ids.set(ordinal, null);
+        outgoing.set(ordinal, new Ordinals());
+        incoming.set(ordinal, new Ordinals());
+        if (numberOfFree == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[numberOfFree++] = ordinal;
+    }
+
+    private List<String> toIds(Ordinals linked) {
+        List<String> linkedIds = new ArrayList<>();
+        linked.forEachDistinct(ordinal -> linkedIds.add(ids.get(ordinal)));
+        Collections.sort(linkedIds);
+
+        return linkedIds;
+    }
+
+    /**
+     * Represents a note known to the graph.
+     */
+    @Value
+    private static class GraphNote {
+        // The ordinal of the identifier of the note, or -1 if it has none
+        int ordinal;
+        QuiverNoteFingerprint fingerprint;
+        // The distinct ordinals the note links to, to drop its links when it changes
+        int[] targets;
+    }
+
+    /**
+     * Represents a note read from the library, with the distinct identifiers it links to, before it is added to the
+     * graph.
+     */
+    @Value
+    private static class LinkedNote {
+        String key;
+        QuiverNoteFingerprint fingerprint;
+        // The identifier of the note, or null if it has none
+        String id;
+        String[] targets;
+    }
+
+    /**
+     * Represents the ordinals linked from or to a single identifier, as a sorted array.
+     * <p>
+     * An ordinal appears once per note it comes from, since several notes of a library may share an identifier.
+     */
+    private static class Ordinals {
+        private int[] values = NO_ORDINALS;
+        private int size;
+
+        void add(int ordinal) {
+            int index = Arrays.binarySearch(values, 0, size, ordinal);
+            int at = index < 0 ? -index - 1 : index;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(2, values.length * 2));
+            }
+            System.arraycopy(values, at, values, at + 1, size - at);
+            values[at] = ordinal;
+            size++;
+        }
+
+        void remove(int ordinal) {
+            int index = Arrays.binarySearch(values, 0, size, ordinal);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean isEmpty() {
+            return 0 == size;
+        }
+
+        void forEachDistinct(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                if (0 == i || values[i] != values[i - 1]) {
+                    consumer.accept(values[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import java.nio.file.Path;
+
+import exceptions.MalformedException;
+import lombok.Data;
+
+/**
+ * Represents a notebook or note that was skipped because it is malformed, as reported to a
+ * {@link QuiverErrorHandler}.
+ */
+@Data
+public class QuiverLoadError {
+    /**
+     * The location of the notebook or note that was skipped.
+     */
+    private final Path location;
+    /**
+     * The failure of loading it, e.g. a {@link exceptions.MalformedMetadataException}.
+     */
+    private final MalformedException exception;
+
+    /**
+     * @return The type of the failure.
+     */
+    public Class<? extends MalformedException> getType() {
+        return exception.getClass();
+    }
+
+    /**
+     * @return The location of the malformed file, e.g. a {@code meta.json}.
+     */
+    public String getFile() {
+        return exception.getLocation();
+    }
+
+    /**
+     * @return The underlying cause of the failure, e.g. a parsing error.
+     */
+    public Throwable getCause() {
+        return exception.getCause();
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import exceptions.MalformedException;
+
+/**
+ * Loads the children of a library or a notebook, either sequentially or concurrently.
+ */
+final class QuiverLoader {
+    private QuiverLoader() {
+    }
+
+    /**
+     * Lazily lists the entries of a directory that match a glob, e.g. {@code *.qvnote}.
+     * <p>
+     * The returned stream holds an open {@link DirectoryStream} and must be closed after use. Any I/O failure, either
+     * when opening the directory or while iterating it, is reported through {@code failure}.
+     * <p>
+     * The directory may belong to any {@link java.nio.file.FileSystem}, e.g. a zip archive.
+     *
+     * @param directory The directory to list.
+     * @param glob      The glob the entries must match.
+     * @param failure   Creates the exception to throw when the directory cannot be read.
+     * @return A stream of paths in directory order.
+     */
+    static Stream<Path> list(Path directory, String glob, BiFunction<String, Throwable, RuntimeException> failure) {
+        DirectoryStream<Path> entries;
+        try {
+            entries = FileSystems.getDefault() == directory.getFileSystem()
+                    ? Files.newDirectoryStream(directory, glob)
+                    : Files.newDirectoryStream(directory, nameMatching(glob));
+        } catch (IOException e) {
+            throw failure.apply(directory.toString(), e);
+        }
+
+        Iterator<Path> iterator = entries.iterator();
+        Iterator<Path> guarded = new Iterator<Path>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return iterator.hasNext();
+                } catch (DirectoryIteratorException e) {
+                    throw failure.apply(directory.toString(), e.getCause());
+                }
+            }
+
+            @Override
+            public Path next() {
+                try {
+                    return iterator.next();
+                } catch (DirectoryIteratorException e) {
+                    throw failure.apply(directory.toString(), e.getCause());
+                }
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(guarded, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        entries.close();
+                    } catch (IOException e) {
+                        throw failure.apply(directory.toString(), e);
+                    }
+                });
+    }
+
+    private static DirectoryStream.Filter<Path> nameMatching(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+
+        return entry -> {
+            // Some file systems, e.g. zip archives on Java 8, keep the trailing slash in the names of directories,
+            // which their own matchers then fail to match
+            String name = entry.getFileName().toString();
+            if (name.endsWith("/")) {
+                name = name.substring(0, name.length() - 1);
+            }
+
+            return matcher.matches(Paths.get(name));
+        };
+    }
+
+    /**
+     * Lists the entries of a directory that match a glob, sorted by their path.
+     *
+     * @param directory The directory to list.
+     * @param glob      The glob the entries must match.
+     * @param failure   Creates the exception to throw when the directory cannot be read.
+     * @return A sorted list of paths.
+     */
+    static List<Path> listSorted(Path directory, String glob, BiFunction<String, Throwable, RuntimeException> failure) {
+        try (Stream<Path> entries = list(directory, glob, failure)) {
+            return entries.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Finds an object in a list sorted by location.
+     *
+     * @param items    The list, sorted by location.
+     * @param location The function that tells the location of an object.
+     * @param target   The location to find.
+     * @return The index of the object if found, otherwise {@code -(insertion point) - 1}.
+     */
+    static <T> int indexOf(List<T> items, Function<T, Path> location, Path target) {
+        int low = 0;
+        int high = items.size() - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = location.apply(items.get(middle)).compareTo(target);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    /**
+     * Loads every location with the given loader, fanning out to the executor when there is one.
+     * <p>
+     * The results are returned in the same order as the locations. If any location fails to load, the failure of the
+     * first such location (in order) is rethrown as is, e.g. a {@link exceptions.MalformedMetadataException}.
+     *
+     * @param locations The locations to load.
+     * @param loader    The function that loads a single location.
+     * @param executor  The executor to load with, or {@code null} to load on the calling thread.
+     * @return A list with the loaded objects.
+     */
+    static <T, R> List<R> load(List<T> locations, Function<T, R> loader, Executor executor) {
+        if (null == executor || locations.size() < 2) {
+            return locations.stream().map(loader).collect(Collectors.toList());
+        }
+
+        List<CompletableFuture<R>> futures = locations.stream()
+                .map(l -> CompletableFuture.supplyAsync(() -> loader.apply(l), executor))
+                .collect(Collectors.toList());
+
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(join(future));
+        }
+
+        return results;
+    }
+
+    /**
+     * Loads every location with the given loader like {@link #load(List, Function, Executor)}, but skips the
+     * locations that are malformed when there is an error handler, reporting them to it instead of failing.
+     *
+     * @param locations    The locations to load.
+     * @param loader       The function that loads a single location.
+     * @param executor     The executor to load with, or {@code null} to load on the calling thread.
+     * @param errorHandler The handler to report malformed locations to, or {@code null} to fail on the first one.
+     * @return A list with the loaded objects, without the skipped ones.
+     */
+    static <R> List<R> load(List<Path> locations, Function<Path, R> loader, Executor executor,
+                            QuiverErrorHandler errorHandler) {
+        if (null == errorHandler) {
+            return load(locations, loader, executor);
+        }
+
+        return load(locations, skippingMalformed(loader, errorHandler), executor).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Wraps a loader so that it reports malformed locations to an error handler and returns {@code null} for them.
+     *
+     * @param loader       The function that loads a single location.
+     * @param errorHandler The handler to report malformed locations to, or {@code null} to leave the loader as is.
+     * @return The wrapped loader.
+     */
+    static <R> Function<Path, R> skippingMalformed(Function<Path, R> loader, QuiverErrorHandler errorHandler) {
+        if (null == errorHandler) {
+            return loader;
+        }
+
+        return location -> {
+            try {
+                return loader.apply(location);
+            } catch (MalformedException e) {
+                errorHandler.onError(new QuiverLoadError(location, e));
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Runs a loader on an executor, completing the returned future with its result or with its failure as is, e.g. a
+     * {@link exceptions.MalformedContentException}.
+     * <p>
+     * If the future is cancelled before the executor runs the loader, the loader is skipped. A loader that is already
+     * running isn't interrupted, since its result may be shared with other callers.
+     *
+     * @param loader   The loader.
+     * @param executor The executor to run the loader on.
+     * @return A future of the loaded object.
+     */
+    static <R> CompletableFuture<R> loadAsync(Supplier<R> loader, Executor executor) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+
+                try {
+                    future.complete(loader.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. the executor was shut down
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Waits for a future, rethrowing its failure as is, e.g. a {@link exceptions.MalformedContentException}.
+     *
+     * @param future The future.
+     * @return The result of the future.
+     */
+    static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Unwrap the failure so callers see the same exceptions as when loading sequentially
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+}
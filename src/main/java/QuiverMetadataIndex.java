@@ -0,0 +1,98 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes the notebooks and notes of a library by their identifiers and tags, for constant time lookups.
+ * <p>
+ * The index only holds metadata and is kept current by the library as notebooks and notes are reloaded or removed.
+ * Updates are serialized by the library, while lookups may run concurrently with them.
+ */
+final class QuiverMetadataIndex {
+    private final Map<String, QuiverNotebook> notebooksById = new ConcurrentHashMap<>();
+    private final Map<String, QuiverNote> notesById = new ConcurrentHashMap<>();
+    // Notes are keyed by location, so a note reloaded from the same directory replaces the previous instance, and
+    // are removed by instance, since a reload is equal to the note it replaces
+    private final Map<String, Map<Path, QuiverNote>> notesByTag = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the index of some notebooks in a single pass over their metadata, loading their notes if needed.
+     *
+     * @param notebooks The notebooks.
+     * @return The index.
+     */
+    static QuiverMetadataIndex build(List<QuiverNotebook> notebooks) {
+        QuiverMetadataIndex index = new QuiverMetadataIndex();
+        for (QuiverNotebook notebook : notebooks) {
+            index.addNotebook(notebook);
+        }
+
+        return index;
+    }
+
+    QuiverNotebook findNotebook(String id) {
+        return null == id ? null : notebooksById.get(id);
+    }
+
+    QuiverNote findNote(String id) {
+        return null == id ? null : notesById.get(id);
+    }
+
+    List<QuiverNote> notesByTag(String tag) {
+        Map<Path, QuiverNote> notes = null == tag ? null : notesByTag.get(tag);
+
+        return null == notes ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(notes.values()));
+    }
+
+    void addNotebook(QuiverNotebook notebook) {
+        if (null != notebook.getId()) {
+            notebooksById.put(notebook.getId(), notebook);
+        }
+        for (QuiverNote note : notebook.getNotes()) {
+            addNote(note);
+        }
+    }
+
+    void removeNotebook(QuiverNotebook notebook) {
+        if (null != notebook.getId()) {
+            // Notebooks are equal by identifier and location, so only this very instance is removed, not a reload of it
+            notebooksById.computeIfPresent(notebook.getId(), (id, indexed) -> indexed == notebook ? null : indexed);
+        }
+        // The notebook may be gone from disk, so its notes aren't loaded if they weren't already
+        List<QuiverNote> notes = notebook.getLoadedNotes();
+        if (null != notes) {
+            for (QuiverNote note : notes) {
+                removeNote(note);
+            }
+        }
+    }
+
+    void addNote(QuiverNote note) {
+        if (null != note.getId()) {
+            notesById.put(note.getId(), note);
+        }
+        if (null != note.getTags()) {
+            for (String tag : note.getTags()) {
+                notesByTag.computeIfAbsent(tag, t -> new ConcurrentHashMap<>()).put(note.getLocation(), note);
+            }
+        }
+    }
+
+    void removeNote(QuiverNote note) {
+        if (null != note.getId()) {
+            // Another note with the same identifier may have replaced this one already
+            notesById.computeIfPresent(note.getId(), (id, indexed) -> indexed == note ? null : indexed);
+        }
+        if (null != note.getTags()) {
+            for (String tag : note.getTags()) {
+                notesByTag.computeIfPresent(tag, (t, notes) -> {
+                    notes.computeIfPresent(note.getLocation(), (location, indexed) -> indexed == note ? null : indexed);
+                    return notes.isEmpty() ? null : notes;
+                });
+            }
+        }
+    }
+}
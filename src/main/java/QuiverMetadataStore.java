@@ -0,0 +1,435 @@
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedLibraryException;
+import exceptions.MalformedNotebookException;
+
+/**
+ * Represents a compact, read-only store of the metadata of every note inside a library.
+ * <p>
+ * Metadata are held column by column in primitive arrays rather than as one object per note: timestamps are kept as
+ * seconds since Epoch, tags are interned once and referred to by id, and notes refer to their notebook by ordinal.
+ * Every tag also keeps the sorted ordinals of its notes, so finding the notes of a tag doesn't scan the store.
+ * Notes are identified by their ordinal in the store, and {@link QuiverNote} objects are only created when asked for,
+ * without reading any file.
+ * <p>
+ * The store is a picture of the library at the time it was built and isn't updated as the library changes.
+ */
+public class QuiverMetadataStore {
+    /**
+     * The timestamp of notes whose metadata don't have one.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private final Path location;
+    private final ObjectMapper mapper;
+    private final QuiverOptions options;
+
+    // Notebooks, by ordinal
+    private final String[] notebookDirectories;
+    private final String[] notebookIds;
+    private final String[] notebookNames;
+
+    // Notes, by ordinal
+    private final int size;
+    private final String[] directories;
+    private final String[] ids;
+    private final String[] titles;
+    private final long[] createdAt;
+    private final long[] updatedAt;
+    // The timestamps that aren't written as whole seconds, e.g. with a fraction, as written in the metadata
+    private final Map<Integer, String> createdAtAsWritten;
+    private final Map<Integer, String> updatedAtAsWritten;
+    private final int[] notebooks;
+    // The tags of note i are tagIds[tagOffsets[i]] to tagIds[tagOffsets[i + 1] - 1]
+    private final int[] tagOffsets;
+    // The notes whose metadata don't have tags at all, as opposed to an empty list of tags
+    private final BitSet untagged;
+    private final int[] tagIds;
+    private final String[] tags;
+    private final Map<String, Integer> tagsByName;
+    // The notes with tag t are taggedNotes[taggedOffsets[t]] to taggedNotes[taggedOffsets[t + 1] - 1], ascending
+    private final int[] taggedOffsets;
+    private final int[] taggedNotes;
+
+    // Note ordinals sorted by timestamp, without the notes that don't have one
+    private final int[] byCreatedAt;
+    private final int[] byUpdatedAt;
+
+    private QuiverMetadataStore(Builder builder, QuiverLibrary library) {
+        this.location = library.getLocation();
+        this.mapper = library.getMapper();
+        this.options = library.getOptions();
+        this.notebookDirectories = builder.notebookDirectories.toArray(new String[0]);
+        this.notebookIds = builder.notebookIds.toArray(new String[0]);
+        this.notebookNames = builder.notebookNames.toArray(new String[0]);
+        this.size = builder.size;
+        this.directories = Arrays.copyOf(builder.directories, size);
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.titles = Arrays.copyOf(builder.titles, size);
+        this.createdAt = Arrays.copyOf(builder.createdAt, size);
+        this.updatedAt = Arrays.copyOf(builder.updatedAt, size);
+        this.createdAtAsWritten = builder.createdAtAsWritten;
+        this.updatedAtAsWritten = builder.updatedAtAsWritten;
+        this.notebooks = Arrays.copyOf(builder.notebooks, size);
+        this.tagOffsets = Arrays.copyOf(builder.tagOffsets, size + 1);
+        this.untagged = builder.untagged;
+        this.tagIds = Arrays.copyOf(builder.tagIds, builder.numberOfTagIds);
+        this.tags = builder.tags.toArray(new String[0]);
+        this.tagsByName = builder.tagsByName;
+        this.taggedOffsets = new int[tags.length + 1];
+        this.taggedNotes = invertTags(tagOffsets, tagIds, size, taggedOffsets);
+        this.byCreatedAt = sortBy(createdAt, size);
+        this.byUpdatedAt = sortBy(updatedAt, size);
+    }
+
+    /**
+     * Builds the store of a library in a single pass over the metadata of its notebooks and notes, without creating
+     * any {@link QuiverNotebook} or {@link QuiverNote}. When the library has a {@link QuiverErrorHandler}, malformed
+     * notebooks and notes are reported to it and left out of the store.
+     *
+     * @param library The library.
+     * @return The store.
+     */
+    public static QuiverMetadataStore build(QuiverLibrary library) {
+        Builder builder = new Builder();
+        ObjectMapper mapper = library.getMapper();
+        QuiverInstrumentation instrumentation = library.getOptions().getInstrumentation();
+        QuiverErrorHandler errorHandler = library.getOptions().getErrorHandler();
+
+        // Sort the locations so ordinals follow the same order as the loaded notebooks and notes
+        for (Path notebookLocation : QuiverLoader.listSorted(library.getLocation(), "*.qvnotebook",
+                MalformedLibraryException::new)) {
+            // Malformed notebooks and notes are reported and left out of the store when loading is lenient
+            QuiverNotebook.Metadata notebook = QuiverLoader.skippingMalformed(
+                    f -> QuiverNotebook.loadMetadata(f, mapper, instrumentation), errorHandler).apply(notebookLocation);
+            List<Path> noteLocations = QuiverLoader.skippingMalformed(
+                    f -> QuiverLoader.listSorted(f, "*.qvnote", MalformedNotebookException::new), errorHandler)
+                    .apply(notebookLocation);
+            if (null == notebook || null == noteLocations) {
+                continue;
+            }
+
+            int ordinal = builder.addNotebook(notebookLocation.getFileName().toString(), notebook);
+            for (Path noteLocation : noteLocations) {
+                QuiverNote.Metadata note = QuiverLoader.skippingMalformed(f -> QuiverNote.readMetadata(f, mapper,
+                        QuiverNote.MetadataField.ALL, instrumentation), errorHandler).apply(noteLocation);
+                if (null != note) {
+                    builder.addNote(ordinal, noteLocation.getFileName().toString(), note);
+                }
+            }
+        }
+
+        return new QuiverMetadataStore(builder, library);
+    }
+
+    /**
+     * @return The number of notes in this store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of notebooks in this store.
+     */
+    public int getNumberOfNotebooks() {
+        return notebookIds.length;
+    }
+
+    public String getNotebookId(int notebook) {
+        return notebookIds[notebook];
+    }
+
+    public String getNotebookName(int notebook) {
+        return notebookNames[notebook];
+    }
+
+    /**
+     * @param note The ordinal of a note.
+     * @return The ordinal of the notebook of the note.
+     */
+    public int getNotebook(int note) {
+        return notebooks[note];
+    }
+
+    public String getId(int note) {
+        return ids[note];
+    }
+
+    public String getTitle(int note) {
+        return titles[note];
+    }
+
+    /**
+     * @param note The ordinal of a note.
+     * @return The time the note was created in seconds since Epoch, or {@link #NO_TIME}.
+     */
+    public long getCreatedAt(int note) {
+        return createdAt[note];
+    }
+
+    /**
+     * @param note The ordinal of a note.
+     * @return The time the note was last updated in seconds since Epoch, or {@link #NO_TIME}.
+     */
+    public long getUpdatedAt(int note) {
+        return updatedAt[note];
+    }
+
+    /**
+     * @param note The ordinal of a note.
+     * @return The tags of the note, or {@code null} if its metadata don't have any.
+     */
+    public List<String> getTags(int note) {
+        if (untagged.get(note)) {
+            return null;
+        }
+
+        List<String> noteTags = new ArrayList<>(tagOffsets[note + 1] - tagOffsets[note]);
+        for (int i = tagOffsets[note]; i < tagOffsets[note + 1]; i++) {
+            noteTags.add(tags[tagIds[i]]);
+        }
+
+        return noteTags;
+    }
+
+    /**
+     * Finds the notes that have a tag.
+     *
+     * @param tag The tag.
+     * @return The ordinals of the notes, in ascending order.
+     */
+    public int[] notesByTag(String tag) {
+        Integer id = tagsByName.get(tag);
+        if (null == id) {
+            return new int[0];
+        }
+
+        return Arrays.copyOfRange(taggedNotes, taggedOffsets[id], taggedOffsets[id + 1]);
+    }
+
+    /**
+     * Finds the notes created in a range.
+     *
+     * @param from The start of the range, inclusive, or {@code null} for no start.
+     * @param to   The end of the range, exclusive, or {@code null} for no end.
+     * @return The ordinals of the notes, sorted by creation time.
+     */
+    public int[] createdBetween(Instant from, Instant to) {
+        return between(byCreatedAt, createdAt, from, to);
+    }
+
+    /**
+     * Finds the notes last updated in a range.
+     *
+     * @param from The start of the range, inclusive, or {@code null} for no start.
+     * @param to   The end of the range, exclusive, or {@code null} for no end.
+     * @return The ordinals of the notes, sorted by update time.
+     */
+    public int[] updatedBetween(Instant from, Instant to) {
+        return between(byUpdatedAt, updatedAt, from, to);
+    }
+
+    /**
+     * Creates the note with the given ordinal from this store, without reading any file.
+     *
+     * @param note The ordinal of the note.
+     * @return A new {@link QuiverNote}, whose content is loaded lazily as usual.
+     */
+    public QuiverNote getNote(int note) {
+        QuiverNote.Metadata metadata = new QuiverNote.Metadata();
+        metadata.setUuid(ids[note]);
+        metadata.setTitle(titles[note]);
+        metadata.setTags(getTags(note));
+        metadata.setCreatedAt(asWritten(createdAt, createdAtAsWritten, note));
+        metadata.setUpdatedAt(asWritten(updatedAt, updatedAtAsWritten, note));
+
+        Path noteLocation = location.resolve(notebookDirectories[notebooks[note]]).resolve(directories[note]);
+
+        return new QuiverNote(noteLocation, mapper, options, metadata, null);
+    }
+
+    /**
+     * Creates the notes with the given ordinals from this store, without reading any file.
+     *
+     * @param notes The ordinals of the notes.
+     * @return A list of {@link QuiverNote}, in the same order as the ordinals.
+     */
+    public List<QuiverNote> getNotes(int[] notes) {
+        List<QuiverNote> created = new ArrayList<>(notes.length);
+        for (int note : notes) {
+            created.add(getNote(note));
+        }
+
+        return Collections.unmodifiableList(created);
+    }
+
+    private static String asWritten(long[] times, Map<Integer, String> timesAsWritten, int note) {
+        String written = timesAsWritten.get(note);
+        if (null != written) {
+            return written;
+        }
+
+        return NO_TIME == times[note] ? null : Long.toString(times[note]);
+    }
+
+    private static int[] invertTags(int[] tagOffsets, int[] tagIds, int size, int[] taggedOffsets) {
+        // A note may list a tag more than once, so its last ordinal per tag is remembered to count it once
+        int numberOfTags = taggedOffsets.length - 1;
+        int[] lastNote = new int[numberOfTags];
+        Arrays.fill(lastNote, -1);
+        for (int note = 0; note < size; note++) {
+            for (int i = tagOffsets[note]; i < tagOffsets[note + 1]; i++) {
+                if (lastNote[tagIds[i]] != note) {
+                    lastNote[tagIds[i]] = note;
+                    taggedOffsets[tagIds[i] + 1]++;
+                }
+            }
+        }
+        for (int tag = 0; tag < numberOfTags; tag++) {
+            taggedOffsets[tag + 1] += taggedOffsets[tag];
+        }
+
+        // Notes are visited in ascending order, so every posting comes out sorted
+        int[] taggedNotes = new int[taggedOffsets[numberOfTags]];
+        int[] next = Arrays.copyOf(taggedOffsets, numberOfTags);
+        Arrays.fill(lastNote, -1);
+        for (int note = 0; note < size; note++) {
+            for (int i = tagOffsets[note]; i < tagOffsets[note + 1]; i++) {
+                if (lastNote[tagIds[i]] != note) {
+                    lastNote[tagIds[i]] = note;
+                    taggedNotes[next[tagIds[i]]++] = note;
+                }
+            }
+        }
+
+        return taggedNotes;
+    }
+
+    private static int[] between(int[] sorted, long[] times, Instant from, Instant to) {
+        int start = null == from ? 0 : lowerBound(sorted, times, ceilingSecond(from));
+        int end = null == to ? sorted.length : lowerBound(sorted, times, ceilingSecond(to));
+
+        return Arrays.copyOfRange(sorted, start, Math.max(start, end));
+    }
+
+    private static int lowerBound(int[] sorted, long[] times, long time) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[sorted[middle]] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static long ceilingSecond(Instant instant) {
+        // Timestamps are whole seconds, so the first one at or after the instant is rounded up
+        return instant.getEpochSecond() + (instant.getNano() > 0 ? 1 : 0);
+    }
+
+    private static int[] sortBy(long[] times, int size) {
+        return IntStream.range(0, size)
+                .filter(note -> NO_TIME != times[note])
+                .boxed()
+                .sorted(Comparator.comparingLong(note -> times[note]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Accumulates the columns of the store while the library is read.
+     */
+    private static class Builder {
+        private final List<String> notebookDirectories = new ArrayList<>();
+        private final List<String> notebookIds = new ArrayList<>();
+        private final List<String> notebookNames = new ArrayList<>();
+        private final List<String> tags = new ArrayList<>();
+        private final Map<String, Integer> tagsByName = new HashMap<>();
+        private final BitSet untagged = new BitSet();
+        private final Map<Integer, String> createdAtAsWritten = new HashMap<>();
+        private final Map<Integer, String> updatedAtAsWritten = new HashMap<>();
+
+        private int size;
+        private String[] directories = new String[16];
+        private String[] ids = new String[16];
+        private String[] titles = new String[16];
+        private long[] createdAt = new long[16];
+        private long[] updatedAt = new long[16];
+        private int[] notebooks = new int[16];
+        private int[] tagOffsets = new int[17];
+        private int[] tagIds = new int[32];
+        private int numberOfTagIds;
+
+        int addNotebook(String directory, QuiverNotebook.Metadata metadata) {
+            notebookDirectories.add(directory);
+            notebookIds.add(metadata.getUuid());
+            notebookNames.add(metadata.getName());
+
+            return notebookIds.size() - 1;
+        }
+
+        void addNote(int notebook, String directory, QuiverNote.Metadata metadata) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                directories = Arrays.copyOf(directories, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                updatedAt = Arrays.copyOf(updatedAt, capacity);
+                notebooks = Arrays.copyOf(notebooks, capacity);
+                tagOffsets = Arrays.copyOf(tagOffsets, capacity + 1);
+            }
+
+            directories[size] = directory;
+            ids[size] = metadata.getUuid();
+            titles[size] = metadata.getTitle();
+            createdAt[size] = toEpochSecond(metadata.getCreatedAt(), createdAtAsWritten);
+            updatedAt[size] = toEpochSecond(metadata.getUpdatedAt(), updatedAtAsWritten);
+            notebooks[size] = notebook;
+
+            tagOffsets[size] = numberOfTagIds;
+            if (null == metadata.getTags()) {
+                untagged.set(size);
+            } else {
+                for (String tag : metadata.getTags()) {
+                    if (numberOfTagIds == tagIds.length) {
+                        tagIds = Arrays.copyOf(tagIds, tagIds.length * 2);
+                    }
+                    tagIds[numberOfTagIds++] = tagsByName.computeIfAbsent(tag, t -> {
+                        tags.add(t);
+                        return tags.size() - 1;
+                    });
+                }
+            }
+            size++;
+            tagOffsets[size] = numberOfTagIds;
+        }
+
+        private long toEpochSecond(String written, Map<Integer, String> timesAsWritten) {
+            long time = QuiverNote.toEpochSecond(written, NO_TIME);
+            // Whole seconds are rebuilt from the column, anything else is kept so notes match their metadata on disk
+            if (null != written && (NO_TIME == time || !Long.toString(time).equals(written))) {
+                timesAsWritten.put(size, written);
+            }
+
+            return time;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a {@link QuiverInstrumentation} that keeps counters and a latency histogram for every kind of
+ * {@link QuiverOperation}.
+ * <p>
+ * Recording a step only updates a few lock-free counters, so the same metrics can be shared by every library and read
+ * at any time.
+ */
+public class QuiverMetrics implements QuiverInstrumentation {
+    private static final int BUCKETS = 64;
+
+    private final Map<QuiverOperation, Counters> counters = new EnumMap<>(QuiverOperation.class);
+
+    public QuiverMetrics() {
+        for (QuiverOperation operation : QuiverOperation.values()) {
+            counters.put(operation, new Counters());
+        }
+    }
+
+    @Override
+    public void record(QuiverOperation operation, Path location, long bytes, long elapsedNanos, Throwable failure) {
+        Counters operationCounters = counters.get(operation);
+
+        operationCounters.count.increment();
+        if (null != failure) {
+            operationCounters.failures.increment();
+        }
+        operationCounters.bytes.add(bytes);
+        operationCounters.nanos.add(elapsedNanos);
+        // Bucket i holds the steps that took between 2^i and 2^(i + 1) - 1 nanoseconds
+        operationCounters.histogram.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(1, elapsedNanos)));
+    }
+
+    /**
+     * Gets the statistics of a kind of step.
+     * <p>
+     * Counters are read one after the other while steps may still be recorded, so they may be slightly out of step
+     * with each other.
+     *
+     * @param operation The kind of step.
+     * @return A {@link QuiverOperationStats}.
+     */
+    public QuiverOperationStats getStats(QuiverOperation operation) {
+        Counters operationCounters = counters.get(operation);
+
+        long[] histogram = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            histogram[bucket] = operationCounters.histogram.get(bucket);
+        }
+
+        return new QuiverOperationStats(operationCounters.count.sum(), operationCounters.failures.sum(),
+                operationCounters.bytes.sum(), operationCounters.nanos.sum(), histogram);
+    }
+
+    private static class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    }
+}
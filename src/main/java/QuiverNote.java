@@ -1,20 +1,43 @@
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import exceptions.MalformedContentException;
 import exceptions.MalformedMetadataException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
 /**
  * Represents the core unit of all notebooks: a note.
+ * <p>
+ * Notes are equal when they have the same identifier and location, so hashing, comparing or printing one never loads
+ * its content; {@link #contentEquals(QuiverNote)} compares everything they hold instead.
  */
 @Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString(onlyExplicitlyIncluded = true)
 public class QuiverNote {
     private static final String CONTENT_FILE_NAME = "content.json";
     private static final String META_FILE_NAME = "meta.json";
@@ -23,10 +46,13 @@ public class QuiverNote {
     /**
      * The unique identifier for this note.
      */
+    @EqualsAndHashCode.Include
+    @ToString.Include
     private final String id;
     /**
      * The title of this note.
      */
+    @ToString.Include
     private final String title;
     /**
      * The list of tags of this note.
@@ -43,16 +69,41 @@ public class QuiverNote {
     /**
      * The content of the note as a list of {@link QuiverCell}.
      */
-    private List<QuiverCell> content;
+    private volatile List<QuiverCell> content;
 
+    @EqualsAndHashCode.Include
+    @ToString.Include
     private final Path location;
     private final ObjectMapper mapper;
+    private final QuiverOptions options;
+    // Reads the cells of this note from somewhere else than its content.json, e.g. a snapshot
+    @Getter(AccessLevel.NONE)
+    private final Supplier<List<QuiverCell>> cellsReader;
 
     public QuiverNote(Path location, ObjectMapper mapper) {
+        this(location, mapper, QuiverOptions.DEFAULT);
+    }
+
+    public QuiverNote(Path location, ObjectMapper mapper, QuiverOptions options) {
+        this(location, mapper, options, loadMetadata(location, mapper, options.getInstrumentation()), null);
+    }
+
+    /**
+     * Creates a note from metadata that were already read.
+     *
+     * @param location    The location of the note.
+     * @param mapper      The mapper used to read the files of the note.
+     * @param options     The options of the library.
+     * @param metadata    The metadata of the note.
+     * @param cellsReader The reader of the raw cells of the note, or {@code null} to read them from its files. The
+     *                    reader may also return {@code null} to fall back to the files, e.g. because they changed.
+     */
+    QuiverNote(Path location, ObjectMapper mapper, QuiverOptions options, Metadata metadata,
+               Supplier<List<QuiverCell>> cellsReader) {
         this.location = location;
         this.mapper = mapper;
-
-        Metadata metadata = loadMetadata();
+        this.options = options;
+        this.cellsReader = cellsReader;
 
         this.id = metadata.getUuid();
         this.title = metadata.getTitle();
@@ -61,49 +112,247 @@ public class QuiverNote {
         this.updatedAt = metadata.getUpdatedAt();
     }
 
+    /**
+     * @return The identity of this note, which holds on to nothing else.
+     */
+    public QuiverNoteHandle getHandle() {
+        return new QuiverNoteHandle(id, location);
+    }
+
+    /**
+     * Compares everything this note holds with another note, loading the content of both.
+     *
+     * @param other The other note.
+     * @return {@code true} if both have the same identifier, metadata and cells.
+     */
+    public boolean contentEquals(QuiverNote other) {
+        if (this == other) {
+            return true;
+        }
+
+        return null != other
+                && Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(tags, other.tags)
+                && Objects.equals(createdAt, other.createdAt)
+                && Objects.equals(updatedAt, other.updatedAt)
+                && Objects.equals(getContent(), other.getContent());
+    }
+
     /**
      * Lazily loads the content of the note.
+     * <p>
+     * When the library has a {@link QuiverContentCache}, the content is kept by the cache instead of by this note.
+     * Either way, the content is read once for concurrent callers: the others wait for it instead of reading it again.
      *
      * @return A list of {@link QuiverCell}.
      */
     public List<QuiverCell> getContent() {
-        if (null == content) {
-            content = sanitizeResources(loadContent().getCells());
+        QuiverContentCache cache = options.getContentCache();
+        if (null != cache) {
+            return cache.get(location, l -> sanitizeResources(readCells()));
+        }
+
+        // Double-checked, so concurrent callers share a single load and loaded content is read without locking
+        List<QuiverCell> loaded = content;
+        if (null == loaded) {
+            synchronized (this) {
+                loaded = content;
+                if (null == loaded) {
+                    loaded = sanitizeResources(readCells());
+                    content = loaded;
+                }
+            }
         }
 
-        return content;
+        return loaded;
     }
 
-    private Metadata loadMetadata() {
-        Path metadataLocation = location.resolve(Paths.get(META_FILE_NAME));
+    /**
+     * Loads the content of the note without blocking the calling thread, as {@link #getContent()} does.
+     * <p>
+     * Failures, e.g. a {@link MalformedContentException}, complete the returned future exceptionally. Cancelling it
+     * before the executor starts the load skips the load.
+     *
+     * @param executor The executor that loads the content, e.g. one running each task on a virtual thread.
+     * @return A future of the list of {@link QuiverCell}.
+     */
+    public CompletableFuture<List<QuiverCell>> loadContentAsync(Executor executor) {
+        return QuiverLoader.loadAsync(this::getContent, executor);
+    }
+
+    private static Metadata loadMetadata(Path location, ObjectMapper mapper, QuiverInstrumentation instrumentation) {
+        Path metadataLocation = location.resolve(META_FILE_NAME);
+
+        return QuiverProbe.read(instrumentation, QuiverOperation.READ_METADATA, metadataLocation,
+                input -> mapper.readValue(input, Metadata.class), MalformedMetadataException::new);
+    }
+
+    /**
+     * Drops the loaded content of this note, so it is loaded again on the next call to {@link #getContent()}.
+     */
+    void invalidateContent() {
+        // Wait for a load that is running, so its content isn't kept after being invalidated
+        synchronized (this) {
+            content = null;
+        }
+
+        if (null != options.getContentCache()) {
+            options.getContentCache().invalidate(location);
+        }
+    }
+
+    /**
+     * Reads only the requested fields of the metadata of a note, stopping as soon as all of them have been read.
+     *
+     * @param location        The location of the note.
+     * @param mapper          The mapper whose factory creates the parser.
+     * @param fields          The fields to read; every other field is left as {@code null}.
+     * @param instrumentation The instrumentation the read is reported to, or {@code null}.
+     * @return The metadata of the note.
+     */
+    static Metadata readMetadata(Path location, ObjectMapper mapper, Set<MetadataField> fields,
+                                 QuiverInstrumentation instrumentation) {
+        Path metadataLocation = location.resolve(META_FILE_NAME);
+
+        return QuiverProbe.read(instrumentation, QuiverOperation.READ_METADATA, metadataLocation, input -> {
+            try (JsonParser parser = mapper.getJsonFactory().createJsonParser(input)) {
+                return Metadata.read(parser, fields);
+            }
+        }, MalformedMetadataException::new);
+    }
+
+    /**
+     * Tells whether any of the cells of a note matches a predicate, without reading the data of the cells and
+     * stopping at the first match.
+     *
+     * @param location        The location of the note.
+     * @param mapper          The mapper whose factory creates the parser.
+     * @param predicate       The predicate, tested against cells whose data is {@code null}.
+     * @param instrumentation The instrumentation the read is reported to, or {@code null}.
+     * @return {@code true} if a cell matches.
+     */
+    static boolean anyCell(Path location, ObjectMapper mapper, Predicate<QuiverCell> predicate,
+                           QuiverInstrumentation instrumentation) {
+        Path contentLocation = location.resolve(CONTENT_FILE_NAME);
+
+        return QuiverProbe.read(instrumentation, QuiverOperation.READ_CONTENT, contentLocation, input -> {
+            boolean[] found = new boolean[1];
+
+            try (JsonParser parser = mapper.getJsonFactory().createJsonParser(input)) {
+                // Stop as soon as the cells have been read, whatever comes after them
+                QuiverJsonReader.readObject(parser, 1, (name, p) -> {
+                    if (!"cells".equals(name)) {
+                        return false;
+                    }
+
+                    found[0] = QuiverJsonReader.anyCell(p, predicate);
+                    return true;
+                });
+            }
+
+            return found[0];
+        }, MalformedContentException::new);
+    }
+
+    /**
+     * Converts a time of the metadata of a note to seconds since Epoch.
+     *
+     * @param secondsSinceEpoch The time in seconds since Epoch, as read from the metadata.
+     * @param missing           The value to return if there's no time or it isn't a number.
+     * @return The time in whole seconds since Epoch.
+     */
+    static long toEpochSecond(String secondsSinceEpoch, long missing) {
+        if (null == secondsSinceEpoch) {
+            return missing;
+        }
 
         try {
-            return mapper.readValue(metadataLocation.toFile(), Metadata.class);
-        } catch (IOException e) {
-            throw new MalformedMetadataException(metadataLocation.toString(), e);
+            return Long.parseLong(secondsSinceEpoch);
+        } catch (NumberFormatException e) {
+            // Quiver writes whole seconds, but fractions are accepted too
+            try {
+                return (long) Math.floor(Double.parseDouble(secondsSinceEpoch));
+            } catch (NumberFormatException notANumber) {
+                return missing;
+            }
         }
     }
 
+    /**
+     * @return The location of the folder holding the resources of this note, e.g. its images.
+     */
+    Path getResourcesLocation() {
+        return location.resolve(RESOURCES_DIRECTORY_NAME);
+    }
+
+    private List<QuiverCell> readCells() {
+        List<QuiverCell> cells = null == cellsReader ? null : cellsReader.get();
+
+        return null != cells ? cells : loadContent().getCells();
+    }
+
     private Content loadContent() {
-        Path contentLocation = location.resolve(Paths.get(CONTENT_FILE_NAME));
+        Path contentLocation = location.resolve(CONTENT_FILE_NAME);
+        if (options.isLazyContent() && FileSystems.getDefault() == contentLocation.getFileSystem()) {
+            return QuiverProbe.map(options.getInstrumentation(), QuiverOperation.READ_CONTENT, contentLocation,
+                    this::mapContent, MalformedContentException::new);
+        }
 
-        try {
-            return mapper.readValue(contentLocation.toFile(), Content.class);
-        } catch (IOException e) {
-            throw new MalformedContentException(contentLocation.toString(), e);
+        return QuiverProbe.read(options.getInstrumentation(), QuiverOperation.READ_CONTENT, contentLocation,
+                input -> mapper.readValue(input, Content.class), MalformedContentException::new);
+    }
+
+    private Content mapContent(ByteBuffer buffer) throws IOException {
+        try (JsonParser parser = mapper.getJsonFactory().createJsonParser(QuiverProbe.stream(buffer))) {
+            return Content.read(parser, buffer);
         }
     }
 
     private List<QuiverCell> sanitizeResources(List<QuiverCell> content) {
-        String resourcesLocation = location.resolve(Paths.get(RESOURCES_DIRECTORY_NAME)).toString();
+        Path resourcesLocation = getResourcesLocation();
+
+        return QuiverProbe.measure(options.getInstrumentation(), QuiverOperation.SANITIZE_RESOURCES, resourcesLocation,
+                () -> {
+                    // The cells were freshly parsed for this note, so they can be linked in place; their data is only
+                    // rewritten to point at the local resources folder when it is read
+                    for (QuiverCell cell : content) {
+                        cell.linkResources(resourcesLocation.toString());
+                    }
+
+                    return content;
+                });
+    }
+
+    /**
+     * The fields of the metadata of a note.
+     */
+    enum MetadataField {
+        UUID("uuid"),
+        TITLE("title"),
+        TAGS("tags"),
+        CREATED_AT("created_at"),
+        UPDATED_AT("updated_at");
+
+        static final Set<MetadataField> ALL = Collections.unmodifiableSet(EnumSet.allOf(MetadataField.class));
+
+        private static final Map<String, MetadataField> BY_NAME = new HashMap<>();
+
+        static {
+            for (MetadataField field : values()) {
+                BY_NAME.put(field.name, field);
+            }
+        }
 
-        return content.stream().map(cell -> {
-            QuiverCell newCell = new QuiverCell(cell);
-            // Sanitize by replacing the Quiver url with the local resources folder
-            newCell.setData(newCell.getData().replaceAll("quiver-image-url", resourcesLocation));
+        private final String name;
 
-            return newCell;
-        }).collect(Collectors.toList());
+        MetadataField(String name) {
+            this.name = name;
+        }
+
+        static MetadataField of(String name) {
+            return BY_NAME.get(name);
+        }
     }
 
     /**
@@ -111,7 +360,8 @@ public class QuiverNote {
      */
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Metadata {
+    @JsonDeserialize(using = Metadata.Deserializer.class)
+    static class Metadata {
         private String uuid;
         private String title;
         private List<String> tags;
@@ -119,6 +369,48 @@ public class QuiverNote {
         private String createdAt;
         @JsonProperty("updated_at")
         private String updatedAt;
+
+        static Metadata read(JsonParser parser, Set<MetadataField> fields) throws IOException {
+            Metadata metadata = new Metadata();
+            // Stop as soon as every requested field has been read, unless the whole object is being bound
+            int wanted = fields.size() == MetadataField.ALL.size() ? 0 : fields.size();
+
+            QuiverJsonReader.readObject(parser, wanted, (name, p) -> {
+                MetadataField field = MetadataField.of(name);
+                if (null == field || !fields.contains(field)) {
+                    return false;
+                }
+
+                switch (field) {
+                    case UUID:
+                        metadata.setUuid(QuiverJsonReader.readString(p));
+                        break;
+                    case TITLE:
+                        metadata.setTitle(QuiverJsonReader.readString(p));
+                        break;
+                    case TAGS:
+                        metadata.setTags(QuiverJsonReader.readInternedStrings(p));
+                        break;
+                    case CREATED_AT:
+                        metadata.setCreatedAt(QuiverJsonReader.readString(p));
+                        break;
+                    case UPDATED_AT:
+                        metadata.setUpdatedAt(QuiverJsonReader.readString(p));
+                        break;
+                }
+
+                return true;
+            });
+
+            return metadata;
+        }
+
+        static class Deserializer extends JsonDeserializer<Metadata> {
+            @Override
+            public Metadata deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                return read(parser, MetadataField.ALL);
+            }
+        }
     }
 
     /**
@@ -126,8 +418,38 @@ public class QuiverNote {
      */
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonDeserialize(using = Content.Deserializer.class)
     private static class Content {
         private String title;
         private List<QuiverCell> cells;
+
+        /**
+         * Reads the content of a note, leaving the data of its cells in the buffer the parser reads, if any.
+         */
+        static Content read(JsonParser parser, ByteBuffer source) throws IOException {
+            Content content = new Content();
+
+            QuiverJsonReader.readObject(parser, 0, (name, p) -> {
+                switch (name) {
+                    case "title":
+                        content.setTitle(QuiverJsonReader.readString(p));
+                        return true;
+                    case "cells":
+                        content.setCells(QuiverJsonReader.readCells(p, source));
+                        return true;
+                    default:
+                        return false;
+                }
+            });
+
+            return content;
+        }
+
+        static class Deserializer extends JsonDeserializer<Content> {
+            @Override
+            public Content deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                return read(parser, null);
+            }
+        }
     }
 }
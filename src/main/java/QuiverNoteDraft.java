@@ -0,0 +1,69 @@
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Represents the metadata and content of a note to write with a {@link QuiverTransaction}.
+ */
+@Data
+@Builder(toBuilder = true)
+public class QuiverNoteDraft {
+    /**
+     * The unique identifier of the note, or {@code null} to assign a random one when it is written.
+     */
+    private final String id;
+    /**
+     * The title of the note.
+     */
+    private final String title;
+    /**
+     * The tags of the note, or {@code null} for none.
+     */
+    private final List<String> tags;
+    /**
+     * The time the note was created, or {@code null} for the time it is written.
+     */
+    private final Instant createdAt;
+    /**
+     * The time the note was last updated, or {@code null} for the time it is written.
+     */
+    private final Instant updatedAt;
+    /**
+     * The cells of the note, whose data is written as stored by Quiver, see {@link QuiverCell#getRawData()}.
+     */
+    @Builder.Default
+    private final List<QuiverCell> cells = Collections.emptyList();
+
+    /**
+     * Creates a draft from an existing note, loading its content, e.g. to update it.
+     * <p>
+     * The time the note was last updated is left out, so writing the draft stamps the time it is written.
+     *
+     * @param note The note.
+     * @return A draft with the metadata and cells of the note.
+     */
+    public static QuiverNoteDraft from(QuiverNote note) {
+        List<QuiverCell> cells = new ArrayList<>();
+        for (QuiverCell cell : note.getContent()) {
+            cells.add(new QuiverCell(cell));
+        }
+
+        return QuiverNoteDraft.builder()
+                .id(note.getId())
+                .title(note.getTitle())
+                .tags(note.getTags())
+                .createdAt(toInstant(note.getCreatedAt()))
+                .cells(cells)
+                .build();
+    }
+
+    private static Instant toInstant(String secondsSinceEpoch) {
+        long seconds = QuiverNote.toEpochSecond(secondsSinceEpoch, Long.MIN_VALUE);
+
+        return Long.MIN_VALUE == seconds ? null : Instant.ofEpochSecond(seconds);
+    }
+}
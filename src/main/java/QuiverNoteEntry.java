@@ -0,0 +1,16 @@
+import lombok.Data;
+
+/**
+ * Represents a note together with the notebook it belongs to, as yielded when streaming a library.
+ */
+@Data
+public class QuiverNoteEntry {
+    /**
+     * The notebook the note belongs to.
+     */
+    private final QuiverNotebook notebook;
+    /**
+     * The note.
+     */
+    private final QuiverNote note;
+}
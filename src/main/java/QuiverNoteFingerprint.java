@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import exceptions.MalformedContentException;
+import exceptions.MalformedLibraryException;
+import exceptions.MalformedMetadataException;
+import exceptions.MalformedNotebookException;
+import lombok.Data;
+
+/**
+ * Represents the state of a note on disk at a point in time, used to tell whether the note changed since.
+ * <p>
+ * File systems only keep modification times to some resolution, so a file changed again right after a scan may keep
+ * both its time and size. Files modified shortly before a scan are therefore taken as racy, and a racy fingerprint
+ * never has the same files as another one, so the note is read again until its files settle.
+ */
+@Data
+public class QuiverNoteFingerprint {
+    private static final String CONTENT_FILE_NAME = "content.json";
+    private static final String META_FILE_NAME = "meta.json";
+    private static final long MISSING = -1;
+    // The modification time of files modified too shortly before their fingerprint was taken to be trusted
+    static final long RACY = -2;
+    // Coarser than the resolution of the modification times of the common file systems
+    static final long RACY_MILLIS = 2_000;
+
+    /**
+     * The unique identifier of the note, or {@code null} if its metadata weren't read.
+     */
+    private final String id;
+    /**
+     * The time the note was last updated according to its metadata, or {@code null} if they weren't read.
+     */
+    private final String updatedAt;
+    /**
+     * The last modification time of the {@code meta.json} of the note in milliseconds since Epoch.
+     */
+    private final long metadataModifiedAt;
+    /**
+     * The size of the {@code meta.json} of the note in bytes.
+     */
+    private final long metadataSize;
+    /**
+     * The last modification time of the {@code content.json} of the note in milliseconds since Epoch.
+     */
+    private final long contentModifiedAt;
+    /**
+     * The size of the {@code content.json} of the note in bytes.
+     */
+    private final long contentSize;
+
+    /**
+     * Takes the fingerprint of the files of a note, without reading them.
+     *
+     * @param location The location of the note.
+     * @return The fingerprint, without the identifier and update time of the note.
+     */
+    public static QuiverNoteFingerprint of(Path location) {
+        BasicFileAttributes metadata =
+                attributesOf(location.resolve(META_FILE_NAME), MalformedMetadataException::new);
+        BasicFileAttributes content =
+                attributesOf(location.resolve(CONTENT_FILE_NAME), MalformedContentException::new);
+
+        return new QuiverNoteFingerprint(null, null,
+                null == metadata ? MISSING : metadata.lastModifiedTime().toMillis(),
+                null == metadata ? MISSING : metadata.size(),
+                null == content ? MISSING : content.lastModifiedTime().toMillis(),
+                null == content ? MISSING : content.size());
+    }
+
+    /**
+     * Takes the fingerprint of the files of every note inside a library, without reading them.
+     *
+     * @param libraryLocation The location of the library.
+     * @return A map from the location of each note, relative to the library, to its fingerprint.
+     */
+    public static Map<String, QuiverNoteFingerprint> scan(Path libraryLocation) {
+        Map<String, QuiverNoteFingerprint> fingerprints = new LinkedHashMap<>();
+        long racyAfter = System.currentTimeMillis() - RACY_MILLIS;
+
+        try (Stream<Path> notebooks =
+                     QuiverLoader.list(libraryLocation, "*.qvnotebook", MalformedLibraryException::new)) {
+            notebooks.forEach(notebook -> {
+                try (Stream<Path> notes = QuiverLoader.list(notebook, "*.qvnote", MalformedNotebookException::new)) {
+                    notes.forEach(note -> fingerprints.put(libraryLocation.relativize(note).toString(),
+                            of(note).markRacy(racyAfter)));
+                }
+            });
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * Completes this fingerprint with the identifier and update time of the note it was taken from.
+     *
+     * @param note The note.
+     * @return A new fingerprint.
+     */
+    public QuiverNoteFingerprint withNote(QuiverNote note) {
+        return new QuiverNoteFingerprint(note.getId(), note.getUpdatedAt(), metadataModifiedAt, metadataSize,
+                contentModifiedAt, contentSize);
+    }
+
+    /**
+     * Marks the files of this fingerprint that were modified after a given time as racy.
+     *
+     * @param racyAfter The time in milliseconds since Epoch after which modifications can't be trusted, taken before
+     *                  this fingerprint.
+     * @return This fingerprint if none of its files is racy, otherwise a copy with {@link #RACY} modification times.
+     */
+    QuiverNoteFingerprint markRacy(long racyAfter) {
+        boolean racyMetadata = metadataModifiedAt > racyAfter;
+        boolean racyContent = contentModifiedAt > racyAfter;
+        if (!racyMetadata && !racyContent) {
+            return this;
+        }
+
+        return new QuiverNoteFingerprint(id, updatedAt, racyMetadata ? RACY : metadataModifiedAt, metadataSize,
+                racyContent ? RACY : contentModifiedAt, contentSize);
+    }
+
+    /**
+     * @return {@code true} if a file of the note was modified too shortly before this fingerprint to be trusted.
+     */
+    public boolean isRacy() {
+        return RACY == metadataModifiedAt || RACY == contentModifiedAt;
+    }
+
+    /**
+     * Tells whether the files of the note are unchanged between this fingerprint and another one.
+     *
+     * @param other The other fingerprint.
+     * @return {@code true} if the modification times and sizes of both files are the same, and neither fingerprint is
+     * racy.
+     */
+    public boolean hasSameFiles(QuiverNoteFingerprint other) {
+        return !isRacy() && !other.isRacy()
+                && metadataModifiedAt == other.metadataModifiedAt && metadataSize == other.metadataSize
+                && contentModifiedAt == other.contentModifiedAt && contentSize == other.contentSize;
+    }
+
+    private static BasicFileAttributes attributesOf(Path file,
+                                                    BiFunction<String, Throwable, RuntimeException> failure) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw failure.apply(file.toString(), e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Represents a link from the data of a cell to another note of the library.
+ * <p>
+ * Quiver links to notes with the {@code quiver-note-url} scheme, e.g. {@code quiver-note-url/D2A1CC36-CC97}.
+ */
+@Data
+public class QuiverNoteLink {
+    static final String SCHEME = "quiver-note-url";
+
+    /**
+     * The offset of the link in the raw data of the cell.
+     */
+    private final int offset;
+    /**
+     * The length of the link in the raw data of the cell.
+     */
+    private final int length;
+    /**
+     * The unique identifier of the linked note, or an empty string if the link has none.
+     */
+    private final String note;
+
+    /**
+     * Finds the links to notes in the data of a cell in a single pass.
+     *
+     * @param data The raw data of a cell.
+     * @return A list of {@link QuiverNoteLink} in order of appearance, empty if there is none.
+     */
+    static List<QuiverNoteLink> find(String data) {
+        return QuiverResourceLink.find(data, SCHEME, QuiverNoteLink::new);
+    }
+}
@@ -1,94 +1,374 @@
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import exceptions.MalformedMetadataException;
 import exceptions.MalformedNotebookException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * Represents a collection of notes: a notebook.
+ * <p>
+ * Notebooks are equal when they have the same identifier and location, so hashing, comparing or printing one never
+ * loads its notes; {@link #contentEquals(QuiverNotebook)} compares everything they hold instead.
  */
 @Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString(onlyExplicitlyIncluded = true)
 public class QuiverNotebook {
     private static final String META_FILE_NAME = "meta.json";
+    private static final String NOTE_GLOB = "*.qvnote";
+    private static final long NOT_COUNTED = -1;
 
     /**
      * The unique identifier for this notebook.
      */
+    @EqualsAndHashCode.Include
+    @ToString.Include
     private final String id;
     /**
      * The name of this notebook.
      */
+    @ToString.Include
     private final String name;
     /**
-     * The total number of notes inside this notebook.
+     * The total number of notes inside this notebook, or {@link #NOT_COUNTED} until it's first asked for.
      */
-    private final long numberOfNotes;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long numberOfNotes;
     /**
      * The notes inside this notebook.
      */
-    private List<QuiverNote> notes;
+    private volatile List<QuiverNote> notes;
 
+    @EqualsAndHashCode.Include
+    @ToString.Include
     private final Path location;
     private final ObjectMapper mapper;
+    private final QuiverOptions options;
 
     public QuiverNotebook(Path location, ObjectMapper mapper) {
+        this(location, mapper, QuiverOptions.DEFAULT);
+    }
+
+    public QuiverNotebook(Path location, ObjectMapper mapper, QuiverOptions options) {
+        this(location, mapper, options, loadMetadata(location, mapper, options.getInstrumentation()));
+    }
+
+    /**
+     * Creates a notebook from metadata that were already read.
+     *
+     * @param location The location of the notebook.
+     * @param mapper   The mapper used to read the files of the notebook.
+     * @param options  The options of the library.
+     * @param metadata The metadata of the notebook.
+     */
+    QuiverNotebook(Path location, ObjectMapper mapper, QuiverOptions options, Metadata metadata) {
+        this(location, mapper, options, metadata, true);
+    }
+
+    /**
+     * Creates a notebook from metadata that were already read, optionally leaving its notes to be counted on first
+     * use, e.g. when its notes are about to be listed anyway.
+     *
+     * @param location The location of the notebook.
+     * @param mapper   The mapper used to read the files of the notebook.
+     * @param options  The options of the library.
+     * @param metadata The metadata of the notebook.
+     * @param count    Whether to count the notes of the notebook right away.
+     */
+    QuiverNotebook(Path location, ObjectMapper mapper, QuiverOptions options, Metadata metadata, boolean count) {
         this.location = location;
         this.mapper = mapper;
-
-        Metadata metadata = loadMetadata();
+        this.options = options;
 
         this.id = metadata.getUuid();
         this.name = metadata.getName();
-        this.numberOfNotes = countNumberOfNotes();
+        this.numberOfNotes = count ? countNumberOfNotes() : NOT_COUNTED;
+    }
+
+    /**
+     * Creates a notebook from metadata and notes that were already read.
+     *
+     * @param location The location of the notebook.
+     * @param mapper   The mapper used to read the files of the notebook.
+     * @param options  The options of the library.
+     * @param id       The unique identifier of the notebook.
+     * @param name     The name of the notebook.
+     * @param notes    The notes inside the notebook, sorted by their location.
+     */
+    QuiverNotebook(Path location, ObjectMapper mapper, QuiverOptions options, String id, String name,
+                   List<QuiverNote> notes) {
+        this.location = location;
+        this.mapper = mapper;
+        this.options = options;
+        this.id = id;
+        this.name = name;
+        this.numberOfNotes = notes.size();
+        this.notes = notes;
+    }
+
+    /**
+     * @return The total number of notes inside this notebook.
+     */
+    public long getNumberOfNotes() {
+        // Double-checked under the same lock as the updates, so a notebook created without counting counts once
+        long counted = numberOfNotes;
+        if (NOT_COUNTED == counted) {
+            synchronized (this) {
+                counted = numberOfNotes;
+                if (NOT_COUNTED == counted) {
+                    counted = countNumberOfNotes();
+                    numberOfNotes = counted;
+                }
+            }
+        }
+
+        return counted;
+    }
+
+    /**
+     * @return The identity of this notebook, which holds on to nothing else.
+     */
+    public QuiverNotebookHandle getHandle() {
+        return new QuiverNotebookHandle(id, location);
+    }
+
+    /**
+     * Compares everything this notebook holds with another notebook, loading the notes and content of both.
+     *
+     * @param other The other notebook.
+     * @return {@code true} if both have the same identifier, name and notes, in the same order, with equal content.
+     */
+    public boolean contentEquals(QuiverNotebook other) {
+        if (this == other) {
+            return true;
+        }
+        if (null == other || !Objects.equals(id, other.id) || !Objects.equals(name, other.name)) {
+            return false;
+        }
+
+        List<QuiverNote> these = getNotes();
+        List<QuiverNote> those = other.getNotes();
+        if (these.size() != those.size()) {
+            return false;
+        }
+        for (int i = 0; i < these.size(); i++) {
+            if (!these.get(i).contentEquals(those.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     /**
      * Lazily loads the notes inside this notebook.
+     * <p>
+     * Safe for concurrent use: callers that ask while the load is running wait for it instead of loading again.
      *
      * @return A list of {@link QuiverNote}.
      */
     public List<QuiverNote> getNotes() {
-        if (null == notes) {
-            notes = loadNotes();
+        // Double-checked under the same lock as the updates, so concurrent callers share a single load
+        List<QuiverNote> loaded = notes;
+        if (null == loaded) {
+            synchronized (this) {
+                loaded = notes;
+                if (null == loaded) {
+                    loaded = loadNotes();
+                    notes = loaded;
+                }
+            }
         }
 
+        return loaded;
+    }
+
+    /**
+     * Loads the notes inside this notebook without blocking the calling thread, as {@link #getNotes()} does.
+     * <p>
+     * Failures, e.g. a {@link MalformedMetadataException}, complete the returned future exceptionally. Cancelling it
+     * before the executor starts the load skips the load.
+     *
+     * @param executor The executor that loads the notes, e.g. one running each task on a virtual thread.
+     * @return A future of the list of {@link QuiverNote}.
+     */
+    public CompletableFuture<List<QuiverNote>> loadNotesAsync(Executor executor) {
+        return QuiverLoader.loadAsync(this::getNotes, executor);
+    }
+
+    /**
+     * Lazily streams the notes inside this notebook, one at a time and in directory order.
+     * <p>
+     * Unlike {@link #getNotes()}, the notes are not kept by this notebook. The returned stream holds an open directory
+     * handle and must be closed after use, e.g. with a try-with-resources statement.
+     *
+     * @return A stream of {@link QuiverNote}.
+     */
+    public Stream<QuiverNote> streamNotes() {
+        return streamNoteLocations()
+                .map(QuiverLoader.skippingMalformed(f -> new QuiverNote(f, mapper, options), options.getErrorHandler()))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Lazily streams the locations of the notes inside this notebook, in directory order, without reading them.
+     *
+     * @return A stream of locations, which must be closed after use.
+     */
+    Stream<Path> streamNoteLocations() {
+        return QuiverLoader.list(location, NOTE_GLOB, MalformedNotebookException::new);
+    }
+
+    /**
+     * @return The notes that were already loaded by {@link #getNotes()}, or {@code null} if they weren't loaded yet.
+     */
+    List<QuiverNote> getLoadedNotes() {
         return notes;
     }
 
-    private Metadata loadMetadata() {
-        Path metadataLocation = location.resolve(Paths.get(META_FILE_NAME));
+    /**
+     * Finds a note that was already loaded by {@link #getNotes()}, without loading any.
+     *
+     * @param noteLocation The location of the note.
+     * @return The note, or {@code null} if the notes weren't loaded yet or there's no such note.
+     */
+    QuiverNote findLoadedNote(Path noteLocation) {
+        List<QuiverNote> current = notes;
+        if (null == current) {
+            return null;
+        }
 
-        try {
-            return mapper.readValue(metadataLocation.toFile(), Metadata.class);
-        } catch (IOException e) {
-            throw new MalformedMetadataException(metadataLocation.toString(), e);
+        int index = QuiverLoader.indexOf(current, QuiverNote::getLocation, noteLocation);
+        return index >= 0 ? current.get(index) : null;
+    }
+
+    /**
+     * Reloads the metadata of a note that was added or changed, replacing it in the loaded notes.
+     * <p>
+     * The loaded notes are replaced by an updated copy, so lists previously returned by {@link #getNotes()} are left
+     * untouched.
+     *
+     * @param noteLocation The location of the note.
+     */
+    synchronized void reloadNote(Path noteLocation) {
+        if (null == notes) {
+            numberOfNotes = countNumberOfNotes();
+            return;
         }
+
+        putNotes(Collections.singletonList(new QuiverNote(noteLocation, mapper, options)));
     }
 
-    private long countNumberOfNotes() {
-        try {
-            return Files.list(location).filter(f -> f.toString().endsWith(".qvnote")).count();
-        } catch (IOException e) {
-            throw new MalformedNotebookException(location.toString(), e);
+    /**
+     * Adds notes that were written, replacing the loaded notes at the same locations.
+     * <p>
+     * The loaded notes are replaced by a single updated copy, so lists previously returned by {@link #getNotes()} are
+     * left untouched.
+     *
+     * @param written The notes that were written.
+     */
+    synchronized void putNotes(List<QuiverNote> written) {
+        numberOfNotes = countNumberOfNotes();
+
+        List<QuiverNote> current = notes;
+        if (null == current) {
+            return;
         }
+
+        List<QuiverNote> updated = new ArrayList<>(current);
+        for (QuiverNote note : written) {
+            int index = QuiverLoader.indexOf(updated, QuiverNote::getLocation, note.getLocation());
+            if (index >= 0) {
+                updated.set(index, note);
+            } else {
+                updated.add(-index - 1, note);
+            }
+        }
+        notes = updated;
+    }
+
+    /**
+     * Removes a note that was deleted from the loaded notes.
+     *
+     * @param noteLocation The location of the note.
+     */
+    synchronized void removeNote(Path noteLocation) {
+        numberOfNotes = countNumberOfNotes();
+
+        List<QuiverNote> current = notes;
+        if (null == current) {
+            return;
+        }
+
+        int index = QuiverLoader.indexOf(current, QuiverNote::getLocation, noteLocation);
+        if (index >= 0) {
+            List<QuiverNote> updated = new ArrayList<>(current);
+            updated.remove(index);
+            notes = updated;
+        }
+    }
+
+    /**
+     * Reads the metadata of a notebook.
+     *
+     * @param location        The location of the notebook.
+     * @param mapper          The mapper used to read them.
+     * @param instrumentation The instrumentation the read is reported to, or {@code null}.
+     * @return The metadata of the notebook.
+     */
+    static Metadata loadMetadata(Path location, ObjectMapper mapper, QuiverInstrumentation instrumentation) {
+        Path metadataLocation = location.resolve(META_FILE_NAME);
+
+        return QuiverProbe.read(instrumentation, QuiverOperation.READ_METADATA, metadataLocation,
+                input -> mapper.readValue(input, Metadata.class), MalformedMetadataException::new);
+    }
+
+    private long countNumberOfNotes() {
+        return QuiverProbe.measure(options.getInstrumentation(), QuiverOperation.LIST_DIRECTORY, location, () -> {
+            try (Stream<Path> noteLocations = QuiverLoader.list(location, NOTE_GLOB, MalformedNotebookException::new)) {
+                return noteLocations.count();
+            }
+        });
     }
 
     private List<QuiverNote> loadNotes() {
+        // Sort the locations so notes are returned in the same order regardless of how they are loaded
+        List<Path> noteLocations;
         try {
-            return Files.list(location)
-                    .filter(f -> f.toString().endsWith(".qvnote"))
-                    .map(f -> new QuiverNote(f, mapper))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            throw new MalformedNotebookException(location.toString(), e);
+            noteLocations = QuiverProbe.measure(options.getInstrumentation(), QuiverOperation.LIST_DIRECTORY, location,
+                    () -> QuiverLoader.listSorted(location, NOTE_GLOB, MalformedNotebookException::new));
+        } catch (MalformedNotebookException e) {
+            // A notebook that can't be listed has no notes when loading is lenient
+            if (null == options.getErrorHandler()) {
+                throw e;
+            }
+            options.getErrorHandler().onError(new QuiverLoadError(location, e));
+
+            return new ArrayList<>();
         }
+
+        return QuiverLoader.load(noteLocations, f -> new QuiverNote(f, mapper, options), options.getExecutor(),
+                options.getErrorHandler());
     }
 
     /**
@@ -96,8 +376,31 @@ public class QuiverNotebook {
      */
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Metadata {
+    @JsonDeserialize(using = Metadata.Deserializer.class)
+    static class Metadata {
         private String uuid;
         private String name;
+
+        static class Deserializer extends JsonDeserializer<Metadata> {
+            @Override
+            public Metadata deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                Metadata metadata = new Metadata();
+
+                QuiverJsonReader.readObject(parser, 0, (field, p) -> {
+                    switch (field) {
+                        case "uuid":
+                            metadata.setUuid(QuiverJsonReader.readString(p));
+                            return true;
+                        case "name":
+                            metadata.setName(QuiverJsonReader.readString(p));
+                            return true;
+                        default:
+                            return false;
+                    }
+                });
+
+                return metadata;
+            }
+        }
     }
 }
@@ -0,0 +1,20 @@
+import java.nio.file.Path;
+
+import lombok.Data;
+
+/**
+ * Represents the identity of a notebook: its unique identifier and its location, and nothing loaded from its files.
+ * <p>
+ * Handles are cheap to hash and compare, so they make good keys for maps and caches.
+ */
+@Data
+public class QuiverNotebookHandle {
+    /**
+     * The unique identifier of the notebook.
+     */
+    private final String id;
+    /**
+     * The location of the notebook.
+     */
+    private final Path location;
+}
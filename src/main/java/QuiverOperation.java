@@ -0,0 +1,25 @@
+/**
+ * Represents a step of loading a library that is reported to a {@link QuiverInstrumentation}.
+ */
+public enum QuiverOperation {
+    /**
+     * Listing the notebooks of a library or the notes of a notebook.
+     */
+    LIST_DIRECTORY,
+    /**
+     * Reading and binding the {@code meta.json} of a library, a notebook or a note.
+     */
+    READ_METADATA,
+    /**
+     * Reading and binding the {@code content.json} of a note.
+     */
+    READ_CONTENT,
+    /**
+     * Finding the references to resources in the cells of a note.
+     */
+    SANITIZE_RESOURCES,
+    /**
+     * Reading a resource of a note, e.g. an image, to index it by the hash of its content.
+     */
+    HASH_RESOURCE
+}
@@ -0,0 +1,65 @@
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+
+/**
+ * Represents the statistics of one kind of {@link QuiverOperation}, as kept by {@link QuiverMetrics}.
+ */
+@Data
+public class QuiverOperationStats {
+    /**
+     * The number of steps that completed, successfully or not.
+     */
+    private final long count;
+    /**
+     * The number of steps that failed.
+     */
+    private final long failures;
+    /**
+     * The total size of the files that were read, in bytes.
+     */
+    private final long bytes;
+    /**
+     * The total time the steps took, in nanoseconds.
+     */
+    private final long totalNanos;
+    // The number of steps that took between 2^i and 2^(i + 1) - 1 nanoseconds, for each i
+    @Getter(AccessLevel.NONE)
+    private final long[] latencyHistogram;
+
+    /**
+     * @return The mean time a step took, in nanoseconds, or {@code 0} if there were none.
+     */
+    public long getMeanNanos() {
+        return 0 == count ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Estimates a percentile of the time the steps took from a histogram with power of two buckets, so the estimate
+     * is at most twice the actual value.
+     *
+     * @param percentile The percentile, between {@code 0} and {@code 100}, e.g. {@code 99}.
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds, or {@code 0} if there were no
+     * steps.
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        long total = 0;
+        for (long steps : latencyHistogram) {
+            total += steps;
+        }
+        if (0 == total) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < latencyHistogram.length; bucket++) {
+            seen += latencyHistogram[bucket];
+            if (seen >= rank) {
+                return bucket >= 62 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+}
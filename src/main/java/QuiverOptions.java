@@ -0,0 +1,81 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Represents the options that control how a library, its notebooks and its notes are loaded.
+ * <p>
+ * Options that own their executor, e.g. those created by {@link #parallel(int)}, shut it down when closed.
+ */
+@Data
+@Builder(toBuilder = true)
+public class QuiverOptions implements AutoCloseable {
+    /**
+     * The default options: everything is loaded sequentially on the calling thread.
+     */
+    public static final QuiverOptions DEFAULT = QuiverOptions.builder().build();
+
+    /**
+     * The executor used to load notebooks and notes concurrently, or {@code null} to load them sequentially on the
+     * calling thread.
+     */
+    private final Executor executor;
+    /**
+     * Whether the executor belongs to these options, so {@link #close()} shuts it down.
+     */
+    private final boolean ownsExecutor;
+    /**
+     * The cache shared by every note for their content, or {@code null} to have each note keep its own content once
+     * loaded.
+     */
+    private final QuiverContentCache contentCache;
+    /**
+     * The instrumentation that every I/O and parse step is reported to, e.g. {@link QuiverMetrics}, or {@code null}
+     * to not time them at all.
+     */
+    private final QuiverInstrumentation instrumentation;
+    /**
+     * The handler that malformed notebooks and notes are reported to when they are skipped, e.g.
+     * {@link QuiverErrorCollector}, or {@code null} to fail on the first one.
+     */
+    private final QuiverErrorHandler errorHandler;
+    /**
+     * Whether the {@code content.json} of notes is memory-mapped and the data of their cells is only decoded when read,
+     * rather than all at once when the content is loaded. Only applies to libraries on the default file system.
+     */
+    private final boolean lazyContent;
+
+    /**
+     * Creates options that load notebooks and notes concurrently using at most {@code parallelism} threads.
+     * <p>
+     * The options own the pool of threads, which is shut down when they are closed.
+     *
+     * @param parallelism The maximum number of threads used for loading.
+     * @return The options.
+     */
+    public static QuiverOptions parallel(int parallelism) {
+        return QuiverOptions.builder().executor(new ForkJoinPool(parallelism)).ownsExecutor(true).build();
+    }
+
+    /**
+     * @return These options without a content cache, e.g. to read every note of a library once without flooding the
+     * cache, and without owning the executor.
+     */
+    QuiverOptions withoutContentCache() {
+        return toBuilder().contentCache(null).ownsExecutor(false).build();
+    }
+
+    /**
+     * Shuts down the executor if it belongs to these options, letting the loads already submitted finish. Executors
+     * passed in by the caller are left to them.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+}
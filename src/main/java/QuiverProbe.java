@@ -0,0 +1,197 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs the steps of loading a library, timing them and reporting them to a {@link QuiverInstrumentation} if there is
+ * one. Without instrumentation, a step runs as is.
+ */
+final class QuiverProbe {
+    // Jackson already reads files in chunks, but file systems such as zip archives inflate their entries on every
+    // read, so they are read through a larger buffer
+    static final int ARCHIVE_BUFFER_SIZE = 64 * 1024;
+
+    private QuiverProbe() {
+    }
+
+    /**
+     * Reads a single file from a stream, which is closed once read.
+     */
+    interface StreamReader<R> {
+        R read(InputStream input) throws IOException;
+    }
+
+    /**
+     * Reads a single file from a read-only memory mapping, which stays valid after the file is closed.
+     */
+    interface BufferReader<R> {
+        R read(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Runs a step that reads a file through NIO, so it works with any {@link java.nio.file.FileSystem}, e.g. a zip
+     * archive, reporting it along with the size of the file.
+     *
+     * @param instrumentation The instrumentation to report to, or {@code null} to only run the step.
+     * @param operation       The kind of step.
+     * @param file            The file the step reads.
+     * @param reader          The step.
+     * @param failure         Creates the exception to throw when the file cannot be read.
+     * @return The result of the step.
+     */
+    static <R> R read(QuiverInstrumentation instrumentation, QuiverOperation operation, Path file,
+                      StreamReader<R> reader, BiFunction<String, Throwable, RuntimeException> failure) {
+        if (null == instrumentation) {
+            return read(file, reader, failure);
+        }
+
+        return measure(instrumentation, operation, file, true, () -> read(file, reader, failure));
+    }
+
+    /**
+     * Runs a step that reads a file of the default file system from a memory mapping, reporting it along with the size
+     * of the file.
+     *
+     * @param instrumentation The instrumentation to report to, or {@code null} to only run the step.
+     * @param operation       The kind of step.
+     * @param file            The file the step reads.
+     * @param reader          The step.
+     * @param failure         Creates the exception to throw when the file cannot be read.
+     * @return The result of the step.
+     */
+    static <R> R map(QuiverInstrumentation instrumentation, QuiverOperation operation, Path file,
+                     BufferReader<R> reader, BiFunction<String, Throwable, RuntimeException> failure) {
+        if (null == instrumentation) {
+            return map(file, reader, failure);
+        }
+
+        return measure(instrumentation, operation, file, true, () -> map(file, reader, failure));
+    }
+
+    /**
+     * Reads a buffer as a stream, e.g. for a parser, without copying it.
+     *
+     * @param buffer The buffer, which is read from its position to its limit.
+     * @return A stream over the buffer.
+     */
+    static InputStream stream(ByteBuffer buffer) {
+        ByteBuffer source = buffer.duplicate();
+
+        return new InputStream() {
+            @Override
+            public int read() {
+                return source.hasRemaining() ? source.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (0 == length) {
+                    return 0;
+                }
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+
+                int read = Math.min(length, source.remaining());
+                source.get(bytes, offset, read);
+                return read;
+            }
+
+            @Override
+            public int available() {
+                return source.remaining();
+            }
+        };
+    }
+
+    /**
+     * Runs a step that doesn't read a single file, e.g. listing a directory, and reports it.
+     *
+     * @param instrumentation The instrumentation to report to, or {@code null} to only run the step.
+     * @param operation       The kind of step.
+     * @param location        The location the step works on.
+     * @param step            The step.
+     * @return The result of the step.
+     */
+    static <R> R measure(QuiverInstrumentation instrumentation, QuiverOperation operation, Path location,
+                         Supplier<R> step) {
+        if (null == instrumentation) {
+            return step.get();
+        }
+
+        return measure(instrumentation, operation, location, false, step);
+    }
+
+    /**
+     * Opens a file for reading through NIO, buffered for the file system it belongs to.
+     *
+     * @param file The file.
+     * @return A stream, which must be closed after use.
+     */
+    static InputStream open(Path file) throws IOException {
+        InputStream input = Files.newInputStream(file);
+
+        return FileSystems.getDefault() == file.getFileSystem()
+                ? input
+                : new BufferedInputStream(input, ARCHIVE_BUFFER_SIZE);
+    }
+
+    private static <R> R read(Path file, StreamReader<R> reader,
+                              BiFunction<String, Throwable, RuntimeException> failure) {
+        try (InputStream input = open(file)) {
+            return reader.read(input);
+        } catch (IOException e) {
+            throw failure.apply(file.toString(), e);
+        }
+    }
+
+    private static <R> R map(Path file, BufferReader<R> reader,
+                             BiFunction<String, Throwable, RuntimeException> failure) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw failure.apply(file.toString(), e);
+        }
+
+        try {
+            return reader.read(buffer);
+        } catch (IOException e) {
+            throw failure.apply(file.toString(), e);
+        }
+    }
+
+    private static <R> R measure(QuiverInstrumentation instrumentation, QuiverOperation operation, Path location,
+                                 boolean reads, Supplier<R> step) {
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = step.get();
+        } catch (RuntimeException | Error e) {
+            instrumentation.record(operation, location, reads ? size(location) : 0, System.nanoTime() - start, e);
+            throw e;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        instrumentation.record(operation, location, reads ? size(location) : 0, elapsed, null);
+
+        return result;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            // The file may be missing, which is already reported as the failure of the step
+            return 0;
+        }
+    }
+}
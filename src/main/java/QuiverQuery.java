@@ -0,0 +1,242 @@
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Represents a query over the notes of a library, built with {@link QuiverLibrary#query()}.
+ * <p>
+ * Every filter is optional, and a note matches when it passes all of them. Filters are checked from the cheapest to
+ * the most expensive, and files are only read when a filter needs them:
+ * <ol>
+ * <li>notebooks are filtered by their {@code meta.json} before their directory is even listed;</li>
+ * <li>notes are then filtered by their {@code meta.json};</li>
+ * <li>only the notes left are filtered by their {@code content.json}, reading their cells without their data and
+ * stopping at the first matching cell.</li>
+ * </ol>
+ * When the library has a {@link QuiverErrorHandler}, notebooks and notes whose files are malformed are reported to it
+ * and left out rather than failing the query.
+ */
+public class QuiverQuery {
+    private final QuiverLibrary library;
+    private final ObjectMapper mapper;
+    private final QuiverOptions options;
+
+    private String notebookId;
+    private String notebookName;
+    private final Set<String> tags = new LinkedHashSet<>();
+    private Instant createdFrom;
+    private Instant createdTo;
+    private Instant updatedFrom;
+    private Instant updatedTo;
+    private String cellType;
+    private String language;
+    private String diagramType;
+
+    QuiverQuery(QuiverLibrary library) {
+        this.library = library;
+        this.mapper = library.getMapper();
+        this.options = library.getOptions();
+    }
+
+    /**
+     * Only matches the notes inside the notebook with the given identifier.
+     *
+     * @param id The unique identifier of the notebook.
+     * @return This query.
+     */
+    public QuiverQuery inNotebook(String id) {
+        this.notebookId = id;
+        return this;
+    }
+
+    /**
+     * Only matches the notes inside the notebooks with the given name.
+     *
+     * @param name The name of the notebook.
+     * @return This query.
+     */
+    public QuiverQuery inNotebookNamed(String name) {
+        this.notebookName = name;
+        return this;
+    }
+
+    /**
+     * Only matches the notes that have all the given tags.
+     *
+     * @param tags The tags.
+     * @return This query.
+     */
+    public QuiverQuery taggedWith(String... tags) {
+        this.tags.addAll(Arrays.asList(tags));
+        return this;
+    }
+
+    /**
+     * Only matches the notes created in the given range.
+     *
+     * @param from The start of the range, inclusive, or {@code null} for no start.
+     * @param to   The end of the range, exclusive, or {@code null} for no end.
+     * @return This query.
+     */
+    public QuiverQuery createdBetween(Instant from, Instant to) {
+        this.createdFrom = from;
+        this.createdTo = to;
+        return this;
+    }
+
+    /**
+     * Only matches the notes last updated in the given range.
+     *
+     * @param from The start of the range, inclusive, or {@code null} for no start.
+     * @param to   The end of the range, exclusive, or {@code null} for no end.
+     * @return This query.
+     */
+    public QuiverQuery updatedBetween(Instant from, Instant to) {
+        this.updatedFrom = from;
+        this.updatedTo = to;
+        return this;
+    }
+
+    /**
+     * Only matches the notes that have a cell of the given type. Combined with {@link #withLanguage(String)} and
+     * {@link #withDiagramType(String)}, a single cell must match all of them.
+     *
+     * @param type The type of the cell, e.g. {@code code}.
+     * @return This query.
+     */
+    public QuiverQuery withCellType(String type) {
+        this.cellType = type;
+        return this;
+    }
+
+    /**
+     * Only matches the notes that have a code cell in the given language.
+     *
+     * @param language The language, e.g. {@code java}.
+     * @return This query.
+     */
+    public QuiverQuery withLanguage(String language) {
+        this.language = language;
+        return this;
+    }
+
+    /**
+     * Only matches the notes that have a diagram cell of the given type.
+     *
+     * @param diagramType The type of the diagram, e.g. {@code sequence}.
+     * @return This query.
+     */
+    public QuiverQuery withDiagramType(String diagramType) {
+        this.diagramType = diagramType;
+        return this;
+    }
+
+    /**
+     * Lazily streams the matching notes, together with their notebook, one at a time and in directory order.
+     * <p>
+     * The returned stream holds open directory handles and must be closed after use, e.g. with a try-with-resources
+     * statement.
+     *
+     * @return A stream of {@link QuiverNoteEntry}.
+     */
+    public Stream<QuiverNoteEntry> stream() {
+        Stream<QuiverNotebook> notebooks = library.streamNotebookLocations()
+                .map(QuiverLoader.skippingMalformed(this::matchNotebook, options.getErrorHandler()))
+                .filter(Objects::nonNull);
+
+        return QuiverLibrary.streamNotes(notebooks, notebook -> notebook.streamNoteLocations()
+                .map(QuiverLoader.skippingMalformed(this::matchNote, options.getErrorHandler()))
+                .filter(Objects::nonNull));
+    }
+
+    /**
+     * Collects the matching notes.
+     *
+     * @return A list of {@link QuiverNote}, in directory order.
+     */
+    public List<QuiverNote> list() {
+        try (Stream<QuiverNoteEntry> entries = stream()) {
+            return entries.map(QuiverNoteEntry::getNote).collect(Collectors.toList());
+        }
+    }
+
+    private QuiverNotebook matchNotebook(Path location) {
+        QuiverNotebook.Metadata metadata = QuiverNotebook.loadMetadata(location, mapper, options.getInstrumentation());
+
+        if ((null != notebookId && !notebookId.equals(metadata.getUuid()))
+                || (null != notebookName && !notebookName.equals(metadata.getName()))) {
+            return null;
+        }
+
+        // Its notes are listed right after, so they're only counted if asked for
+        return new QuiverNotebook(location, mapper, options, metadata, false);
+    }
+
+    private QuiverNote matchNote(Path location) {
+        QuiverNote.Metadata metadata = null;
+        if (filtersMetadata()) {
+            metadata = QuiverNote.readMetadata(location, mapper, QuiverNote.MetadataField.ALL,
+                    options.getInstrumentation());
+            if (!matches(metadata)) {
+                return null;
+            }
+        }
+
+        if (filtersCells() && !QuiverNote.anyCell(location, mapper, this::matches, options.getInstrumentation())) {
+            return null;
+        }
+
+        // The metadata that were read for filtering are reused rather than read again
+        return null == metadata
+                ? new QuiverNote(location, mapper, options)
+                : new QuiverNote(location, mapper, options, metadata, null);
+    }
+
+    private boolean filtersMetadata() {
+        return !tags.isEmpty() || null != createdFrom || null != createdTo || null != updatedFrom
+                || null != updatedTo;
+    }
+
+    private boolean filtersCells() {
+        return null != cellType || null != language || null != diagramType;
+    }
+
+    private boolean matches(QuiverNote.Metadata metadata) {
+        return (tags.isEmpty() || (null != metadata.getTags() && metadata.getTags().containsAll(tags)))
+                && inRange(metadata.getCreatedAt(), createdFrom, createdTo)
+                && inRange(metadata.getUpdatedAt(), updatedFrom, updatedTo);
+    }
+
+    private boolean matches(QuiverCell cell) {
+        return (null == cellType || cellType.equals(cell.getType()))
+                && (null == language || language.equals(cell.getLanguage()))
+                && (null == diagramType || diagramType.equals(cell.getDiagramType()));
+    }
+
+    private static boolean inRange(String secondsSinceEpoch, Instant from, Instant to) {
+        if (null == from && null == to) {
+            return true;
+        }
+
+        long seconds = QuiverNote.toEpochSecond(secondsSinceEpoch, Long.MIN_VALUE);
+        if (Long.MIN_VALUE == seconds) {
+            return false;
+        }
+
+        // Times beyond what an instant can hold are taken as missing
+        if (seconds < Instant.MIN.getEpochSecond() || seconds > Instant.MAX.getEpochSecond()) {
+            return false;
+        }
+
+        Instant time = Instant.ofEpochSecond(seconds);
+        return (null == from || !time.isBefore(from)) && (null == to || time.isBefore(to));
+    }
+}
@@ -0,0 +1,30 @@
+import java.nio.file.Path;
+
+import lombok.Data;
+
+/**
+ * Represents a resource of a note, e.g. an image, as indexed by a {@link QuiverResourceIndex}.
+ */
+@Data
+public class QuiverResource {
+    /**
+     * The location of the note the resource belongs to.
+     */
+    private final Path noteLocation;
+    /**
+     * The name of the resource, as referenced by the cells of the note, e.g. {@code cat.png}.
+     */
+    private final String name;
+    /**
+     * The location of the file of the resource.
+     */
+    private final Path location;
+    /**
+     * The size of the resource, in bytes.
+     */
+    private final long size;
+    /**
+     * The SHA-256 hash of the content of the resource, in hexadecimal.
+     */
+    private final String hash;
+}
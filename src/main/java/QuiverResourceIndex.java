@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import exceptions.MalformedLibraryException;
+import exceptions.MalformedNotebookException;
+import exceptions.MalformedResourceException;
+import lombok.Data;
+
+/**
+ * Indexes the resources of every note of a library, e.g. their images, by note and by the hash of their content.
+ * <p>
+ * The resource directories are listed and every resource is hashed once, when the index is built. Identical resources
+ * copied into many notes are deduplicated: they share a single blob, the first of them in location order, which every
+ * one of them is served from. Resources are served straight from their file, with {@link FileChannel#transferTo} or a
+ * memory mapping, so their bytes are never copied onto the heap.
+ * <p>
+ * The index is immutable and safe for concurrent use; it is built again to pick up resources added since.
+ */
+public final class QuiverResourceIndex {
+    private static final String NOTEBOOK_GLOB = "*.qvnotebook";
+    private static final String NOTE_GLOB = "*.qvnote";
+    private static final String RESOURCES_DIRECTORY_NAME = "resources";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Map<Path, Map<String, QuiverResource>> resourcesByNote;
+    private final Map<String, QuiverResource> blobsByHash;
+    private final int numberOfResources;
+    private final long totalBytes;
+    private final long uniqueBytes;
+
+    private QuiverResourceIndex(List<QuiverResource> resources) {
+        Map<Path, Map<String, QuiverResource>> byNote = new LinkedHashMap<>();
+        Map<String, QuiverResource> byHash = new HashMap<>();
+        long total = 0;
+        long unique = 0;
+
+        for (QuiverResource resource : resources) {
+            byNote.computeIfAbsent(resource.getNoteLocation(), n -> new LinkedHashMap<>())
+                    .put(resource.getName(), resource);
+            total += resource.getSize();
+            if (null == byHash.putIfAbsent(resource.getHash(), resource)) {
+                unique += resource.getSize();
+            }
+        }
+
+        this.resourcesByNote = byNote;
+        this.blobsByHash = byHash;
+        this.numberOfResources = resources.size();
+        this.totalBytes = total;
+        this.uniqueBytes = unique;
+    }
+
+    /**
+     * Builds the index of the resources of a library, listing and hashing them with the options of the library: on its
+     * executor if it has one and, if it is lenient, skipping the notebooks and notes whose resources can't be read.
+     *
+     * @param library The library.
+     * @return The index.
+     */
+    public static QuiverResourceIndex build(QuiverLibrary library) {
+        QuiverOptions options = library.getOptions();
+
+        // Everything is listed in location order, so the same blob is picked for duplicates on every build
+        List<Path> noteLocations = new ArrayList<>();
+        for (Path notebook : QuiverLoader.listSorted(library.getLocation(), NOTEBOOK_GLOB,
+                MalformedLibraryException::new)) {
+            List<Path> notes = QuiverLoader.skippingMalformed(
+                    (Path n) -> QuiverLoader.listSorted(n, NOTE_GLOB, MalformedNotebookException::new),
+                    options.getErrorHandler()).apply(notebook);
+            if (null != notes) {
+                noteLocations.addAll(notes);
+            }
+        }
+
+        List<QuiverResource> resources = new ArrayList<>();
+        for (List<QuiverResource> noteResources : QuiverLoader.load(noteLocations, n -> indexNote(n, options),
+                options.getExecutor(), options.getErrorHandler())) {
+            resources.addAll(noteResources);
+        }
+
+        return new QuiverResourceIndex(resources);
+    }
+
+    /**
+     * Finds the resources of a note.
+     *
+     * @param note The note.
+     * @return A list of {@link QuiverResource} in location order, empty if the note has none.
+     */
+    public List<QuiverResource> getResources(QuiverNote note) {
+        Map<String, QuiverResource> resources = resourcesByNote.get(note.getLocation());
+
+        return null == resources
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(resources.values()));
+    }
+
+    /**
+     * Finds a resource of a note by its name, e.g. as referenced by a {@link QuiverResourceLink}.
+     *
+     * @param note The note.
+     * @param name The name of the resource, e.g. {@code cat.png}.
+     * @return The resource, or {@code null} if the note has no such resource.
+     */
+    public QuiverResource find(QuiverNote note, String name) {
+        Map<String, QuiverResource> resources = resourcesByNote.get(note.getLocation());
+
+        return null == resources ? null : resources.get(name);
+    }
+
+    /**
+     * Finds the blob that every resource with the given content is served from.
+     *
+     * @param hash The SHA-256 hash of the content, in hexadecimal.
+     * @return The resource holding the blob, or {@code null} if no resource has such content.
+     */
+    public QuiverResource findBlob(String hash) {
+        return blobsByHash.get(hash);
+    }
+
+    /**
+     * @return The number of resources indexed, duplicates included.
+     */
+    public int getNumberOfResources() {
+        return numberOfResources;
+    }
+
+    /**
+     * @return The number of distinct blobs the resources are served from.
+     */
+    public int getNumberOfBlobs() {
+        return blobsByHash.size();
+    }
+
+    /**
+     * @return The total size of the resources indexed, duplicates included, in bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The total size of the distinct blobs, in bytes.
+     */
+    public long getUniqueBytes() {
+        return uniqueBytes;
+    }
+
+    /**
+     * Writes the content of a resource to a channel, e.g. a socket, letting the operating system copy it straight
+     * from the file. Failures to read the resource or to write to the channel throw a
+     * {@link MalformedResourceException}.
+     *
+     * @param resource The resource.
+     * @param target   The channel to write to, which should be blocking.
+     * @return The number of bytes written, which is less than the length of the resource if the target is non-blocking
+     * and couldn't take more.
+     */
+    public long transferTo(QuiverResource resource, WritableByteChannel target) {
+        return transferTo(resource, 0, Long.MAX_VALUE, target);
+    }
+
+    /**
+     * Writes a range of the content of a resource to a channel, e.g. to answer an HTTP range request, like
+     * {@link #transferTo(QuiverResource, WritableByteChannel)}.
+     *
+     * @param resource The resource.
+     * @param position The position of the range in the resource.
+     * @param count    The maximum length of the range.
+     * @param target   The channel to write to, which should be blocking.
+     * @return The number of bytes written, which is less than the length of the range if the target is non-blocking and
+     * couldn't take more.
+     */
+    public long transferTo(QuiverResource resource, long position, long count, WritableByteChannel target) {
+        Path blob = blobOf(resource).getLocation();
+
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            long end = Math.min(channel.size(), position + Math.min(count, Long.MAX_VALUE - position));
+            long current = position;
+            while (current < end) {
+                long transferred = channel.transferTo(current, end - current, target);
+                if (0 == transferred) {
+                    // A non-blocking target is full, or the file was truncated, so nothing more can be written now
+                    break;
+                }
+                current += transferred;
+            }
+
+            return Math.max(0, current - position);
+        } catch (IOException e) {
+            throw new MalformedResourceException(blob.toString(), e);
+        }
+    }
+
+    /**
+     * Maps the content of a resource into memory, read-only, without reading it.
+     * <p>
+     * The mapping stays valid after the file is closed, until it is garbage collected.
+     *
+     * @param resource The resource.
+     * @return A read-only buffer of the content of the resource.
+     */
+    public ByteBuffer map(QuiverResource resource) {
+        Path blob = blobOf(resource).getLocation();
+
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new MalformedResourceException(blob.toString(), e);
+        }
+    }
+
+    private QuiverResource blobOf(QuiverResource resource) {
+        QuiverResource blob = blobsByHash.get(resource.getHash());
+
+        return null == blob ? resource : blob;
+    }
+
+    private static List<QuiverResource> indexNote(Path noteLocation, QuiverOptions options) {
+        Path directory = noteLocation.resolve(RESOURCES_DIRECTORY_NAME);
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        List<Path> files = QuiverProbe.measure(options.getInstrumentation(), QuiverOperation.LIST_DIRECTORY, directory,
+                () -> QuiverLoader.listSorted(directory, "*", MalformedResourceException::new));
+
+        List<QuiverResource> resources = new ArrayList<>(files.size());
+        for (Path file : files) {
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+
+            Digest digest = QuiverProbe.read(options.getInstrumentation(), QuiverOperation.HASH_RESOURCE, file,
+                    QuiverResourceIndex::digest, MalformedResourceException::new);
+            resources.add(new QuiverResource(noteLocation, file.getFileName().toString(), file, digest.getSize(),
+                    digest.getHash()));
+        }
+
+        return resources;
+    }
+
+    private static Digest digest(InputStream input) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            digest.update(buffer, 0, read);
+            size += read;
+        }
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+
+        return new Digest(new String(hex), size);
+    }
+
+    /**
+     * Represents the hash and size of the content of a resource.
+     */
+    @Data
+    private static class Digest {
+        private final String hash;
+        private final long size;
+    }
+}
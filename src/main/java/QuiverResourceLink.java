@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Represents a reference from the data of a cell to one of the resources of its note, e.g. an image.
+ * <p>
+ * Quiver refers to resources with the {@code quiver-image-url} scheme, e.g. {@code quiver-image-url/cat.png}.
+ */
+@Data
+public class QuiverResourceLink {
+    static final String SCHEME = "quiver-image-url";
+
+    /**
+     * The offset of the reference in the raw data of the cell.
+     */
+    private final int offset;
+    /**
+     * The length of the reference in the raw data of the cell.
+     */
+    private final int length;
+    /**
+     * The name of the referenced resource, e.g. {@code cat.png}, or an empty string if the reference has no name.
+     */
+    private final String resource;
+
+    /**
+     * Finds the resource references in the data of a cell in a single pass.
+     *
+     * @param data The raw data of a cell.
+     * @return A list of {@link QuiverResourceLink} in order of appearance, empty if there is none.
+     */
+    static List<QuiverResourceLink> find(String data) {
+        return find(data, SCHEME, QuiverResourceLink::new);
+    }
+
+    /**
+     * Finds the references of a Quiver scheme in the data of a cell in a single pass, e.g. to resources or notes.
+     *
+     * @param data      The raw data of a cell.
+     * @param scheme    The scheme of the references, which is followed by a slash and the name of the target.
+     * @param reference Creates each reference from its offset, its length and the name of its target.
+     * @return A list of references in order of appearance, empty if there is none.
+     */
+    static <T> List<T> find(String data, String scheme, Reference<T> reference) {
+        if (null == data) {
+            return Collections.emptyList();
+        }
+
+        List<T> links = null;
+        int offset = data.indexOf(scheme);
+
+        while (offset >= 0) {
+            int start = offset + scheme.length();
+            int nameStart = start < data.length() && '/' == data.charAt(start) ? start + 1 : start;
+            int end = nameStart;
+            while (end < data.length() && !isDelimiter(data.charAt(end))) {
+                end++;
+            }
+
+            if (null == links) {
+                links = new ArrayList<>(2);
+            }
+            links.add(reference.create(offset, end - offset, data.substring(nameStart, end)));
+            offset = data.indexOf(scheme, end);
+        }
+
+        return null == links ? Collections.emptyList() : links;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return '"' == c || '\'' == c || ')' == c || '<' == c || '>' == c || Character.isWhitespace(c);
+    }
+
+    /**
+     * Creates a reference found in the data of a cell.
+     */
+    interface Reference<T> {
+        T create(int offset, int length, String name);
+    }
+}
@@ -0,0 +1,72 @@
+import java.nio.file.Path;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Represents a note that matched a search, ranked by its score.
+ */
+@Data
+public class QuiverSearchHit {
+    /**
+     * The unique identifier of the matching note.
+     */
+    private final String noteId;
+    /**
+     * The title of the matching note.
+     */
+    private final String title;
+    /**
+     * The relevance of the note to the search; the higher the better.
+     */
+    private final double score;
+    /**
+     * The positions of the cells of the note that matched the search.
+     */
+    private final List<Integer> cells;
+    /**
+     * The location of the matching note.
+     */
+    private final Path location;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final ObjectMapper mapper;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final QuiverOptions options;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile QuiverNote note;
+
+    /**
+     * Lazily loads the matching note.
+     *
+     * @return A {@link QuiverNote}.
+     */
+    public QuiverNote getNote() {
+        // Double-checked, so concurrent callers share a single note and its content
+        QuiverNote loaded = note;
+        if (null == loaded) {
+            synchronized (this) {
+                loaded = note;
+                if (null == loaded) {
+                    loaded = new QuiverNote(location, mapper, options);
+                    note = loaded;
+                }
+            }
+        }
+
+        return loaded;
+    }
+}
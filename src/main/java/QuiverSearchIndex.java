@@ -0,0 +1,514 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedIndexException;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Represents a full-text inverted index over the notes of a library.
+ * <p>
+ * The index maps every term found in the titles, tags and cells of the notes to the notes and cell positions where it
+ * occurs. It lives in memory, is persisted to a single file next to the library, and ranks the notes that match a
+ * query using BM25.
+ * <p>
+ * Every note is indexed together with its {@link QuiverNoteFingerprint}, so {@link #refresh()} only reads the notes
+ * that were added or changed since they were indexed.
+ */
+public class QuiverSearchIndex {
+    private static final String FILE_EXTENSION = ".searchindex";
+    private static final int MAGIC = 0x51564958;
+    private static final int VERSION = 3;
+
+    // Matches in titles and tags are worth more than matches in the body of a note
+    private static final int TITLE_BOOST = 3;
+    private static final int TAG_BOOST = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * The location of the file this index is persisted to.
+     */
+    private final Path location;
+
+    private final Path libraryLocation;
+    private final ObjectMapper mapper;
+    private final QuiverOptions options;
+    // Notes are read without the content cache of the library, so indexing doesn't flood it
+    private final QuiverOptions readOptions;
+    private final Map<String, IndexedNote> notes = new LinkedHashMap<>();
+    private final Map<String, Map<String, Posting>> postings = new HashMap<>();
+    private long totalLength;
+
+    private QuiverSearchIndex(Path location, QuiverLibrary library) {
+        this.location = location;
+        this.libraryLocation = library.getLocation();
+        this.mapper = library.getMapper();
+        this.options = library.getOptions();
+        this.readOptions = options.withoutContentCache();
+    }
+
+    /**
+     * Resolves the default location of the index of a library: a file next to the library directory.
+     *
+     * @param libraryLocation The location of the library.
+     * @return The location of the index.
+     */
+    public static Path defaultLocation(Path libraryLocation) {
+        return libraryLocation.resolveSibling(libraryLocation.getFileName() + FILE_EXTENSION);
+    }
+
+    /**
+     * Builds the index of a library by reading the content of every note, one note at a time.
+     * <p>
+     * The index is not persisted until {@link #save()} is called.
+     *
+     * @param library  The library to index.
+     * @param location The location of the file the index is persisted to.
+     * @return The index.
+     */
+    public static QuiverSearchIndex build(QuiverLibrary library, Path location) {
+        QuiverSearchIndex index = new QuiverSearchIndex(location, library);
+        // Building is refreshing an empty index: every note in the library is new to it
+        index.refresh();
+
+        return index;
+    }
+
+    /**
+     * Opens the index of a library that was previously persisted with {@link #save()}.
+     *
+     * @param library  The library the index belongs to.
+     * @param location The location of the file the index was persisted to.
+     * @return The index.
+     */
+    public static QuiverSearchIndex open(QuiverLibrary library, Path location) {
+        QuiverSearchIndex index = new QuiverSearchIndex(location, library);
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(location)))) {
+            index.read(input);
+        } catch (IOException e) {
+            throw new MalformedIndexException(location.toString(), e);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return The location of the file this index is persisted to.
+     */
+    public Path getLocation() {
+        return location;
+    }
+
+    /**
+     * @return The number of notes in this index.
+     */
+    public synchronized int getNumberOfNotes() {
+        return notes.size();
+    }
+
+    /**
+     * @return The number of distinct terms in this index.
+     */
+    public synchronized int getNumberOfTerms() {
+        return postings.size();
+    }
+
+    /**
+     * Persists this index to its location, replacing any previous version atomically.
+     *
+     * @return This index.
+     */
+    public synchronized QuiverSearchIndex save() {
+        try {
+            Path temporary = location.resolveSibling(location.getFileName() + ".tmp");
+            try (DataOutputStream output =
+                         new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                write(output);
+            }
+            try {
+                Files.move(temporary, location, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, location, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new MalformedIndexException(location.toString(), e);
+        }
+
+        return this;
+    }
+
+    /**
+     * Brings this index up to date with the library, reading only the notes that were added or changed since they
+     * were indexed and dropping the ones that were deleted.
+     * <p>
+     * Notes are compared by the {@link QuiverNoteFingerprint} of their files, so unchanged notes are never read. They
+     * are read with the executor of the library, if any and, if it is lenient, malformed notes are reported to its
+     * error handler and left out of the index, to be read again on the next refresh. The index is not persisted until
+     * {@link #save()} is called.
+     *
+     * @return The changes that were applied to this index.
+     */
+    public synchronized QuiverLibraryChanges refresh() {
+        Map<String, QuiverNoteFingerprint> indexed = new HashMap<>(notes.size() * 2);
+        for (IndexedNote note : notes.values()) {
+            indexed.put(note.getKey(), note.getFingerprint());
+        }
+
+        Map<String, QuiverNoteFingerprint> current = QuiverNoteFingerprint.scan(libraryLocation);
+        QuiverLibraryChanges changes = QuiverLibraryChanges.between(indexed, current);
+
+        for (String key : changes.getDeleted()) {
+            remove(key);
+        }
+
+        List<Path> locations = new ArrayList<>(changes.getChanged().size() + changes.getAdded().size());
+        for (String key : changes.getChanged()) {
+            remove(key);
+            locations.add(libraryLocation.resolve(key));
+        }
+        for (String key : changes.getAdded()) {
+            locations.add(libraryLocation.resolve(key));
+        }
+
+        // Notes are read and tokenized concurrently, then added to the index one at a time
+        for (IndexedTerms note : QuiverLoader.load(locations, l -> read(l, current), readOptions.getExecutor(),
+                readOptions.getErrorHandler())) {
+            add(note);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Searches the notes that contain any of the terms of a query.
+     *
+     * @param query The query, e.g. {@code lazy streams}.
+     * @param limit The maximum number of hits to return.
+     * @return A list of {@link QuiverSearchHit}, the best ranked first.
+     */
+    public synchronized List<QuiverSearchHit> search(String query, int limit) {
+        // Keyed by the location of the notes, which is far cheaper to hash than the notes themselves
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, TreeSet<Integer>> cells = new HashMap<>();
+        double averageLength = notes.isEmpty() ? 0 : (double) totalLength / notes.size();
+
+        tokenize(query, false, term -> {
+            Map<String, Posting> matches = postings.get(term);
+            if (null == matches) {
+                return;
+            }
+
+            double idf = Math.log(1 + (notes.size() - matches.size() + 0.5) / (matches.size() + 0.5));
+            for (Map.Entry<String, Posting> match : matches.entrySet()) {
+                IndexedNote note = notes.get(match.getKey());
+                Posting posting = match.getValue();
+
+                double frequency = posting.getBodyFrequency() + TITLE_BOOST * posting.getTitleFrequency()
+                        + TAG_BOOST * posting.getTagFrequency();
+                double norm = K1 * (1 - B + B * note.getLength() / Math.max(averageLength, 1));
+                scores.merge(note.getKey(), idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+
+                TreeSet<Integer> noteCells = cells.computeIfAbsent(note.getKey(), n -> new TreeSet<>());
+                for (int i = 0; i < posting.getNumberOfCells(); i++) {
+                    noteCells.add(posting.getCells()[i]);
+                }
+            }
+        });
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Comparator.<Map.Entry<String, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                .thenComparing(Map.Entry::getKey));
+
+        List<QuiverSearchHit> hits = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Map.Entry<String, Double> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            IndexedNote note = notes.get(entry.getKey());
+            hits.add(new QuiverSearchHit(note.getId(), note.getTitle(), entry.getValue(),
+                    Collections.unmodifiableList(new ArrayList<>(cells.get(note.getKey()))),
+                    libraryLocation.resolve(note.getKey()), mapper, options));
+        }
+
+        return hits;
+    }
+
+    private IndexedTerms read(Path location, Map<String, QuiverNoteFingerprint> fingerprints) {
+        // The fingerprint was taken before reading the note, so any later change is caught by the next refresh
+        String key = libraryLocation.relativize(location).toString();
+        QuiverNote note = new QuiverNote(location, mapper, readOptions);
+        Map<String, Posting> terms = new HashMap<>();
+        int[] length = new int[1];
+
+        tokenize(note.getTitle(), false, term -> {
+            terms.computeIfAbsent(term, t -> new Posting()).titleFrequency++;
+            length[0]++;
+        });
+        if (null != note.getTags()) {
+            for (String tag : note.getTags()) {
+                tokenize(tag, false, term -> {
+                    terms.computeIfAbsent(term, t -> new Posting()).tagFrequency++;
+                    length[0]++;
+                });
+            }
+        }
+
+        List<QuiverCell> content = note.getContent();
+        for (int i = 0; i < content.size(); i++) {
+            int position = i;
+            QuiverCell cell = content.get(i);
+
+            // Text cells hold HTML, whose markup is not worth indexing; resource references don't need resolving either
+            tokenize(cell.getRawData(), QuiverCellType.TEXT == cell.getCellType(), term -> {
+                terms.computeIfAbsent(term, t -> new Posting()).addCell(position);
+                length[0]++;
+            });
+        }
+
+        IndexedNote indexed = new IndexedNote(key, note.getId(), note.getTitle(), length[0],
+                fingerprints.get(key).withNote(note), terms.keySet().toArray(new String[0]));
+
+        return new IndexedTerms(indexed, terms);
+    }
+
+    private void add(IndexedTerms read) {
+        IndexedNote indexed = read.getNote();
+        String key = indexed.getKey();
+
+        notes.put(key, indexed);
+        totalLength += indexed.getLength();
+        for (Map.Entry<String, Posting> term : read.getPostings().entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(key, term.getValue());
+        }
+    }
+
+    private void remove(String key) {
+        IndexedNote note = notes.remove(key);
+        totalLength -= note.getLength();
+
+        for (String term : note.getTerms()) {
+            Map<String, Posting> matches = postings.get(term);
+            matches.remove(key);
+            if (matches.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Splits a text into lower-cased terms made of letters and digits.
+     *
+     * @param text   The text to split.
+     * @param markup Whether the text holds markup, e.g. HTML, whose tags should be skipped.
+     * @param terms  The consumer of each term.
+     */
+    static void tokenize(String text, boolean markup, Consumer<String> terms) {
+        if (null == text) {
+            return;
+        }
+
+        StringBuilder term = new StringBuilder();
+        boolean inTag = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (inTag) {
+                inTag = '>' != c;
+            } else if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+                continue;
+            } else {
+                inTag = markup && '<' == c;
+            }
+
+            if (term.length() > 0) {
+                terms.accept(term.toString());
+                term.setLength(0);
+            }
+        }
+
+        if (term.length() > 0) {
+            terms.accept(term.toString());
+        }
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+
+        Map<String, Integer> ordinals = new HashMap<>();
+        output.writeInt(notes.size());
+        for (IndexedNote note : notes.values()) {
+            ordinals.put(note.getKey(), ordinals.size());
+            writeString(output, note.getKey());
+            writeString(output, note.getId());
+            writeString(output, note.getTitle());
+            output.writeInt(note.getLength());
+
+            QuiverNoteFingerprint fingerprint = note.getFingerprint();
+            writeString(output, fingerprint.getUpdatedAt());
+            output.writeLong(fingerprint.getMetadataModifiedAt());
+            output.writeLong(fingerprint.getMetadataSize());
+            output.writeLong(fingerprint.getContentModifiedAt());
+            output.writeLong(fingerprint.getContentSize());
+        }
+
+        output.writeInt(postings.size());
+        for (Map.Entry<String, Map<String, Posting>> term : postings.entrySet()) {
+            writeString(output, term.getKey());
+            output.writeInt(term.getValue().size());
+            for (Map.Entry<String, Posting> match : term.getValue().entrySet()) {
+                Posting posting = match.getValue();
+                output.writeInt(ordinals.get(match.getKey()));
+                output.writeInt(posting.getTitleFrequency());
+                output.writeInt(posting.getTagFrequency());
+                output.writeInt(posting.getBodyFrequency());
+                output.writeInt(posting.getNumberOfCells());
+                for (int i = 0; i < posting.getNumberOfCells(); i++) {
+                    output.writeInt(posting.getCells()[i]);
+                }
+            }
+        }
+    }
+
+    private void read(DataInputStream input) throws IOException {
+        if (MAGIC != input.readInt() || VERSION != input.readInt()) {
+            throw new IOException("Unsupported index format");
+        }
+
+        int numberOfNotes = input.readInt();
+        String[] keys = new String[numberOfNotes];
+        String[] ids = new String[numberOfNotes];
+        String[] titles = new String[numberOfNotes];
+        int[] lengths = new int[numberOfNotes];
+        QuiverNoteFingerprint[] fingerprints = new QuiverNoteFingerprint[numberOfNotes];
+        List<List<String>> terms = new ArrayList<>(numberOfNotes);
+        for (int i = 0; i < numberOfNotes; i++) {
+            keys[i] = readString(input);
+            ids[i] = readString(input);
+            titles[i] = readString(input);
+            lengths[i] = input.readInt();
+            fingerprints[i] = new QuiverNoteFingerprint(ids[i], readString(input), input.readLong(),
+                    input.readLong(), input.readLong(), input.readLong());
+            terms.add(new ArrayList<>());
+        }
+
+        int numberOfTerms = input.readInt();
+        for (int i = 0; i < numberOfTerms; i++) {
+            String term = readString(input);
+            int numberOfMatches = input.readInt();
+            Map<String, Posting> matches = new HashMap<>(numberOfMatches * 2);
+            for (int j = 0; j < numberOfMatches; j++) {
+                int ordinal = input.readInt();
+                String key = keys[ordinal];
+                terms.get(ordinal).add(term);
+                Posting posting = new Posting();
+                posting.titleFrequency = input.readInt();
+                posting.tagFrequency = input.readInt();
+                posting.bodyFrequency = input.readInt();
+                posting.numberOfCells = input.readInt();
+                posting.cells = new int[posting.numberOfCells];
+                for (int k = 0; k < posting.numberOfCells; k++) {
+                    posting.cells[k] = input.readInt();
+                }
+                matches.put(key, posting);
+            }
+            postings.put(term, matches);
+        }
+
+        for (int i = 0; i < numberOfNotes; i++) {
+            notes.put(keys[i], new IndexedNote(keys[i], ids[i], titles[i], lengths[i], fingerprints[i],
+                    terms.get(i).toArray(new String[0])));
+            totalLength += lengths[i];
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (null == value) {
+            output.writeInt(-1);
+            return;
+        }
+
+        // Unlike writeUTF, this isn't limited to 64KB, which a single term, e.g. base64 in a cell, may outgrow
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Represents a note known to the index.
+     */
+    @Value
+    private static class IndexedNote {
+        String key;
+        String id;
+        String title;
+        int length;
+        QuiverNoteFingerprint fingerprint;
+        // The distinct terms of the note, to drop its postings when it changes
+        String[] terms;
+    }
+
+    /**
+     * Represents a note that was read and tokenized, before it is added to the index.
+     */
+    @Value
+    private static class IndexedTerms {
+        IndexedNote note;
+        Map<String, Posting> postings;
+    }
+
+    /**
+     * Represents the occurrences of a term in a single note.
+     */
+    @Getter
+    private static class Posting {
+        private int titleFrequency;
+        private int tagFrequency;
+        private int bodyFrequency;
+        private int[] cells = new int[0];
+        private int numberOfCells;
+
+        void addCell(int position) {
+            bodyFrequency++;
+            // Cells are tokenized in order, so a repeated position is always the last one
+            if (numberOfCells > 0 && cells[numberOfCells - 1] == position) {
+                return;
+            }
+            if (numberOfCells == cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(2, cells.length * 2));
+            }
+            cells[numberOfCells++] = position;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent loads of the same key into a single one: the first caller runs the loader, and callers that
+ * ask for the same key while it runs wait for its result instead of loading it again.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the loaded values.
+ */
+final class QuiverSingleFlight<K, V> {
+    private final ConcurrentHashMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the value of a key, or waits for the load that is already running for it.
+     * <p>
+     * Failures of the loader are rethrown to every caller waiting for it. Waiting isn't interruptible, but the
+     * interrupted status of the thread is restored once the value is available.
+     *
+     * @param key    The key.
+     * @param loader The loader of the value.
+     * @return The loaded value.
+     */
+    V load(K key, Function<K, V> loader) {
+        FutureTask<V> task = new FutureTask<>(() -> loader.apply(key));
+        FutureTask<V> running = inFlight.putIfAbsent(key, task);
+        if (null == running) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+
+        return await(running);
+    }
+
+    /**
+     * Detaches the load running for a key, if any. Callers that ask for the key afterwards start a new load instead of
+     * waiting for the detached one, e.g. because what it loads is known to be stale.
+     *
+     * @param key The key.
+     */
+    void detach(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Detaches the loads running for every key.
+     */
+    void detachAll() {
+        inFlight.clear();
+    }
+
+    private static <V> V await(FutureTask<V> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
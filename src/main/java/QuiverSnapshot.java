@@ -0,0 +1,592 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedLibraryException;
+import exceptions.MalformedNotebookException;
+import exceptions.MalformedSnapshotException;
+import lombok.Value;
+
+/**
+ * Represents a compact binary snapshot of the metadata of a library, and optionally of the content of its notes.
+ * <p>
+ * Opening a library from its snapshot reads a single memory-mapped file instead of the {@code meta.json} of every
+ * notebook and note. The snapshot is checked against the library on disk by the modification times and sizes of its
+ * files, without reading them, one notebook at a time: the notes of a notebook whose directory and {@code meta.json}
+ * are unchanged are taken from the snapshot without being listed, checking only the {@code meta.json} of each note.
+ * The notes of the other notebooks are listed and checked one by one. Notes whose files changed since the snapshot
+ * was written are read from their json files instead, and new ones are read as usual. The content of a note is
+ * checked when it is read.
+ * <p>
+ * The snapshot file stays mapped while the library opened from it is in use, so on some platforms it can't be
+ * replaced until then.
+ */
+public final class QuiverSnapshot {
+    private static final String FILE_EXTENSION = ".snapshot";
+    private static final String META_FILE_NAME = "meta.json";
+    private static final String CONTENT_FILE_NAME = "content.json";
+    private static final String NOTEBOOK_GLOB = "*.qvnotebook";
+    private static final String NOTE_GLOB = "*.qvnote";
+    private static final int MAGIC = 0x51565350;
+    private static final int VERSION = 2;
+    private static final int NO_CONTENT = -1;
+    // Directories modified this close to the snapshot may change again within the resolution of their timestamps
+    private static final long RACY_MILLIS = 2_000;
+
+    private QuiverSnapshot() {
+    }
+
+    /**
+     * Resolves the default location of the snapshot of a library: a file next to the library directory.
+     *
+     * @param libraryLocation The location of the library.
+     * @return The location of the snapshot.
+     */
+    public static Path defaultLocation(Path libraryLocation) {
+        return libraryLocation.resolveSibling(libraryLocation.getFileName() + FILE_EXTENSION);
+    }
+
+    /**
+     * Writes the snapshot of a library to its default location, replacing any previous version atomically.
+     *
+     * @param library     The library.
+     * @param withContent Whether to include the content of the notes.
+     * @return The location of the snapshot.
+     */
+    public static Path write(QuiverLibrary library, boolean withContent) {
+        return write(library, defaultLocation(library.getLocation()), withContent);
+    }
+
+    /**
+     * Writes the snapshot of a library, replacing any previous version atomically.
+     * <p>
+     * The library is read again from disk, one note at a time, regardless of what it already loaded.
+     *
+     * @param library     The library.
+     * @param location    The location of the snapshot.
+     * @param withContent Whether to include the content of the notes.
+     * @return The location of the snapshot.
+     */
+    public static Path write(QuiverLibrary library, Path location, boolean withContent) {
+        try {
+            Path temporary = location.resolveSibling(location.getFileName() + ".tmp");
+            try (DataOutputStream output =
+                         new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                write(library.getLocation(), library.getMapper(), withContent, output);
+            }
+            try {
+                Files.move(temporary, location, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, location, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new MalformedSnapshotException(location.toString(), e);
+        }
+
+        return location;
+    }
+
+    /**
+     * Opens a library from the snapshot at its default location, or from its json files if there's no snapshot.
+     *
+     * @param libraryLocation The location of the library.
+     * @param mapper          The mapper used to read the files that changed since the snapshot was written.
+     * @param options         The options of the library.
+     * @return The library, with its notebooks and notes already loaded.
+     */
+    public static QuiverLibrary open(Path libraryLocation, ObjectMapper mapper, QuiverOptions options) {
+        return open(libraryLocation, mapper, options, defaultLocation(libraryLocation));
+    }
+
+    /**
+     * Opens a library from a snapshot, or from its json files if there's no snapshot or it was written by another
+     * version of this library.
+     *
+     * @param libraryLocation The location of the library.
+     * @param mapper          The mapper used to read the files that changed since the snapshot was written.
+     * @param options         The options of the library.
+     * @param location        The location of the snapshot.
+     * @return The library, with its notebooks and notes already loaded if the snapshot was used.
+     */
+    public static QuiverLibrary open(Path libraryLocation, ObjectMapper mapper, QuiverOptions options,
+                                     Path location) {
+        if (!Files.exists(location)) {
+            return new QuiverLibrary(libraryLocation, mapper, options);
+        }
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(location, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new MalformedSnapshotException(location.toString(), e);
+        }
+
+        LibraryRecord record;
+        try {
+            if (MAGIC != buffer.getInt(0)) {
+                throw new MalformedSnapshotException(location.toString(), new IOException("Not a snapshot"));
+            }
+            if (VERSION != buffer.getInt(4)) {
+                return new QuiverLibrary(libraryLocation, mapper, options);
+            }
+
+            buffer.position(buffer.getInt(buffer.limit() - 4));
+            record = LibraryRecord.read(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new MalformedSnapshotException(location.toString(), e);
+        }
+
+        return new Reader(libraryLocation, mapper, options, location, buffer).read(record);
+    }
+
+    private static void write(Path libraryLocation, ObjectMapper mapper, boolean withContent,
+                              DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+
+        // Take the stamps before reading the files, so any later change is caught when the snapshot is opened
+        long racyAfter = System.currentTimeMillis() - RACY_MILLIS;
+        Stamp libraryStamp = Stamp.of(libraryLocation.resolve(META_FILE_NAME), MalformedLibraryException::new);
+        QuiverLibrary library = new QuiverLibrary(libraryLocation, mapper);
+        List<NotebookRecord> notebooks = new ArrayList<>();
+
+        // The content of the notes comes first, so their offsets are known by the time their metadata are written
+        for (Path notebookLocation : QuiverLoader.listSorted(libraryLocation, NOTEBOOK_GLOB,
+                MalformedLibraryException::new)) {
+            Stamp notebookStamp = Stamp.of(notebookLocation.resolve(META_FILE_NAME), MalformedNotebookException::new);
+            Stamp directoryStamp = Stamp.of(notebookLocation, MalformedNotebookException::new);
+            if (directoryStamp.getModifiedAt() > racyAfter) {
+                // A note added right after might not change the timestamp, so the notes are always checked instead
+                directoryStamp = Stamp.RACY;
+            }
+            QuiverNotebook notebook = new QuiverNotebook(notebookLocation, mapper);
+            List<NoteRecord> notes = new ArrayList<>();
+
+            for (Path noteLocation : QuiverLoader.listSorted(notebookLocation, NOTE_GLOB,
+                    MalformedNotebookException::new)) {
+                QuiverNoteFingerprint fingerprint = QuiverNoteFingerprint.of(noteLocation).markRacy(racyAfter);
+                QuiverNote.Metadata metadata =
+                        QuiverNote.readMetadata(noteLocation, mapper, QuiverNote.MetadataField.ALL, null);
+                int contentOffset = NO_CONTENT;
+
+                if (withContent) {
+                    contentOffset = output.size();
+                    QuiverNote note = new QuiverNote(noteLocation, mapper, QuiverOptions.DEFAULT, metadata, null);
+                    writeCells(output, note.getContent());
+                }
+                notes.add(new NoteRecord(noteLocation.getFileName().toString(), metadata, fingerprint,
+                        contentOffset));
+            }
+
+            notebooks.add(new NotebookRecord(notebookLocation.getFileName().toString(), notebook.getId(),
+                    notebook.getName(), notebookStamp, directoryStamp, notes));
+        }
+
+        int metadataOffset = output.size();
+        new LibraryRecord(library.getId(), library.getNumberOfNotebooks(), libraryStamp, notebooks).write(output);
+        output.writeInt(metadataOffset);
+
+        // The size saturates once the snapshot outgrows what a single buffer can map
+        if (Integer.MAX_VALUE == output.size()) {
+            throw new IOException("The snapshot is too large");
+        }
+    }
+
+    private static void writeCells(DataOutputStream output, List<QuiverCell> cells) throws IOException {
+        output.writeInt(cells.size());
+        for (QuiverCell cell : cells) {
+            writeString(output, cell.getType());
+            writeString(output, cell.getRawData());
+            writeString(output, cell.getLanguage());
+            writeString(output, cell.getDiagramType());
+        }
+    }
+
+    private static List<QuiverCell> readCells(ByteBuffer snapshot, int offset) {
+        // Every read gets its own view of the buffer, so notes can be read concurrently
+        ByteBuffer buffer = snapshot.duplicate();
+        buffer.position(offset);
+
+        int size = buffer.getInt();
+        List<QuiverCell> cells = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            QuiverCell cell = new QuiverCell();
+            cell.setType(QuiverStrings.intern(readString(buffer)));
+            cell.setData(readString(buffer));
+            cell.setLanguage(QuiverStrings.intern(readString(buffer)));
+            cell.setDiagramType(QuiverStrings.intern(readString(buffer)));
+            cells.add(cell);
+        }
+
+        return cells;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (null == value) {
+            output.writeInt(-1);
+            return;
+        }
+
+        // Unlike writeUTF, this isn't limited to 64KB, which cells easily outgrow
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens a library from the records of a snapshot, falling back to the json files for whatever changed.
+     */
+    private static class Reader {
+        private final Path libraryLocation;
+        private final ObjectMapper mapper;
+        private final QuiverOptions options;
+        private final Path location;
+        private final ByteBuffer buffer;
+
+        Reader(Path libraryLocation, ObjectMapper mapper, QuiverOptions options, Path location, ByteBuffer buffer) {
+            this.libraryLocation = libraryLocation;
+            this.mapper = mapper;
+            this.options = options;
+            this.location = location;
+            this.buffer = buffer;
+        }
+
+        QuiverLibrary read(LibraryRecord record) {
+            List<Path> notebookLocations =
+                    QuiverLoader.listSorted(libraryLocation, NOTEBOOK_GLOB, MalformedLibraryException::new);
+            // Notebooks are read one at a time, since their notes are already read concurrently
+            List<QuiverNotebook> notebooks = QuiverLoader.load(notebookLocations,
+                    f -> read(record.getNotebooks().get(f.getFileName().toString()), f), null,
+                    options.getErrorHandler());
+
+            if (record.getStamp().equals(stamp(libraryLocation.resolve(META_FILE_NAME)))) {
+                return new QuiverLibrary(libraryLocation, mapper, options, record.getId(),
+                        record.getNumberOfNotebooks(), notebooks);
+            }
+
+            QuiverLibrary library = new QuiverLibrary(libraryLocation, mapper, options);
+            library.setNotebooks(notebooks);
+
+            return library;
+        }
+
+        private QuiverNotebook read(NotebookRecord record, Path notebookLocation) {
+            if (null != record && record.getDirectoryStamp().equals(stamp(notebookLocation))
+                    && record.getStamp().equals(stamp(notebookLocation.resolve(META_FILE_NAME)))) {
+                // No note was added, removed or renamed, so the notes are taken without listing them
+                List<Path> noteLocations = record.getNotes().keySet().stream()
+                        .map(notebookLocation::resolve)
+                        .sorted()
+                        .collect(Collectors.toList());
+                List<QuiverNote> notes = QuiverLoader.load(noteLocations,
+                        f -> readListed(record.getNotes().get(f.getFileName().toString()), f),
+                        options.getExecutor(), options.getErrorHandler());
+
+                return new QuiverNotebook(notebookLocation, mapper, options, record.getId(), record.getName(), notes);
+            }
+
+            List<Path> noteLocations =
+                    QuiverLoader.listSorted(notebookLocation, NOTE_GLOB, MalformedNotebookException::new);
+            List<QuiverNote> notes = QuiverLoader.load(noteLocations,
+                    f -> read(null == record ? null : record.getNotes().get(f.getFileName().toString()), f),
+                    options.getExecutor(), options.getErrorHandler());
+
+            if (null != record && record.getStamp().equals(stamp(notebookLocation.resolve(META_FILE_NAME)))) {
+                return new QuiverNotebook(notebookLocation, mapper, options, record.getId(), record.getName(), notes);
+            }
+
+            QuiverNotebook notebook = new QuiverNotebook(notebookLocation, mapper, options);
+            notebook.setNotes(notes);
+
+            return notebook;
+        }
+
+        private QuiverNote read(NoteRecord record, Path noteLocation) {
+            QuiverNoteFingerprint current = QuiverNoteFingerprint.of(noteLocation);
+            QuiverNoteFingerprint snapshot = null == record ? null : record.getFingerprint();
+
+            if (null == snapshot || snapshot.getMetadataModifiedAt() != current.getMetadataModifiedAt()
+                    || snapshot.getMetadataSize() != current.getMetadataSize()) {
+                return new QuiverNote(noteLocation, mapper, options);
+            }
+
+            int contentOffset = record.getContentOffset();
+            boolean contentUnchanged = NO_CONTENT != contentOffset
+                    && snapshot.getContentModifiedAt() == current.getContentModifiedAt()
+                    && snapshot.getContentSize() == current.getContentSize();
+
+            return new QuiverNote(noteLocation, mapper, options, record.getMetadata(),
+                    contentUnchanged ? () -> readContent(contentOffset) : null);
+        }
+
+        private QuiverNote readListed(NoteRecord record, Path noteLocation) {
+            QuiverNoteFingerprint snapshot = record.getFingerprint();
+            Stamp current = stamp(noteLocation.resolve(META_FILE_NAME));
+
+            if (snapshot.getMetadataModifiedAt() != current.getModifiedAt()
+                    || snapshot.getMetadataSize() != current.getSize()) {
+                // Updated in place since the snapshot, so its metadata are read from the json file instead
+                return new QuiverNote(noteLocation, mapper, options);
+            }
+
+            Supplier<List<QuiverCell>> cellsReader = NO_CONTENT == record.getContentOffset()
+                    ? null
+                    : () -> readContentIfUnchanged(record, noteLocation);
+
+            return new QuiverNote(noteLocation, mapper, options, record.getMetadata(), cellsReader);
+        }
+
+        private List<QuiverCell> readContentIfUnchanged(NoteRecord record, Path noteLocation) {
+            QuiverNoteFingerprint snapshot = record.getFingerprint();
+            Stamp current = stamp(noteLocation.resolve(CONTENT_FILE_NAME));
+
+            if (snapshot.getContentModifiedAt() != current.getModifiedAt()
+                    || snapshot.getContentSize() != current.getSize()) {
+                // Read from the json file instead
+                return null;
+            }
+
+            return readContent(record.getContentOffset());
+        }
+
+        private Stamp stamp(Path file) {
+            return Stamp.of(file, (f, e) -> new MalformedSnapshotException(location.toString(), e));
+        }
+
+        private List<QuiverCell> readContent(int offset) {
+            try {
+                return readCells(buffer, offset);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new MalformedSnapshotException(location.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * Represents the modification time and size of a file, used to tell whether it changed.
+     */
+    @Value
+    private static class Stamp {
+        static final Stamp MISSING = new Stamp(-1, -1);
+        // Never matches the stamp of a file on disk
+        static final Stamp RACY = new Stamp(-2, -2);
+
+        long modifiedAt;
+        long size;
+
+        static Stamp of(Path file, BiFunction<String, Throwable, RuntimeException> failure) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+                return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (NoSuchFileException e) {
+                return MISSING;
+            } catch (IOException e) {
+                throw failure.apply(file.toString(), e);
+            }
+        }
+
+        void write(DataOutputStream output) throws IOException {
+            output.writeLong(modifiedAt);
+            output.writeLong(size);
+        }
+
+        static Stamp read(ByteBuffer buffer) {
+            return new Stamp(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    /**
+     * Represents the metadata of a library in a snapshot.
+     */
+    @Value
+    private static class LibraryRecord {
+        String id;
+        int numberOfNotebooks;
+        Stamp stamp;
+        // The notebooks by the name of their directory
+        Map<String, NotebookRecord> notebooks;
+
+        LibraryRecord(String id, int numberOfNotebooks, Stamp stamp, List<NotebookRecord> notebooks) {
+            this.id = id;
+            this.numberOfNotebooks = numberOfNotebooks;
+            this.stamp = stamp;
+            this.notebooks = new HashMap<>(notebooks.size() * 2);
+            for (NotebookRecord notebook : notebooks) {
+                this.notebooks.put(notebook.getDirectory(), notebook);
+            }
+        }
+
+        void write(DataOutputStream output) throws IOException {
+            writeString(output, id);
+            output.writeInt(numberOfNotebooks);
+            stamp.write(output);
+            output.writeInt(notebooks.size());
+            for (NotebookRecord notebook : notebooks.values()) {
+                notebook.write(output);
+            }
+        }
+
+        static LibraryRecord read(ByteBuffer buffer) {
+            String id = readString(buffer);
+            int numberOfNotebooks = buffer.getInt();
+            Stamp stamp = Stamp.read(buffer);
+
+            int size = buffer.getInt();
+            List<NotebookRecord> notebooks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                notebooks.add(NotebookRecord.read(buffer));
+            }
+
+            return new LibraryRecord(id, numberOfNotebooks, stamp, notebooks);
+        }
+    }
+
+    /**
+     * Represents the metadata of a notebook in a snapshot.
+     */
+    @Value
+    private static class NotebookRecord {
+        String directory;
+        String id;
+        String name;
+        Stamp stamp;
+        Stamp directoryStamp;
+        // The notes by the name of their directory
+        Map<String, NoteRecord> notes;
+
+        NotebookRecord(String directory, String id, String name, Stamp stamp, Stamp directoryStamp,
+                       List<NoteRecord> notes) {
+            this.directory = directory;
+            this.id = id;
+            this.name = name;
+            this.stamp = stamp;
+            this.directoryStamp = directoryStamp;
+            this.notes = new HashMap<>(notes.size() * 2);
+            for (NoteRecord note : notes) {
+                this.notes.put(note.getDirectory(), note);
+            }
+        }
+
+        void write(DataOutputStream output) throws IOException {
+            writeString(output, directory);
+            writeString(output, id);
+            writeString(output, name);
+            stamp.write(output);
+            directoryStamp.write(output);
+            output.writeInt(notes.size());
+            for (NoteRecord note : notes.values()) {
+                note.write(output);
+            }
+        }
+
+        static NotebookRecord read(ByteBuffer buffer) {
+            String directory = readString(buffer);
+            String id = readString(buffer);
+            String name = readString(buffer);
+            Stamp stamp = Stamp.read(buffer);
+            Stamp directoryStamp = Stamp.read(buffer);
+
+            int size = buffer.getInt();
+            List<NoteRecord> notes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                notes.add(NoteRecord.read(buffer));
+            }
+
+            return new NotebookRecord(directory, id, name, stamp, directoryStamp, notes);
+        }
+    }
+
+    /**
+     * Represents the metadata of a note in a snapshot, and where to find its content.
+     */
+    @Value
+    private static class NoteRecord {
+        String directory;
+        QuiverNote.Metadata metadata;
+        QuiverNoteFingerprint fingerprint;
+        int contentOffset;
+
+        void write(DataOutputStream output) throws IOException {
+            writeString(output, directory);
+            writeString(output, metadata.getUuid());
+            writeString(output, metadata.getTitle());
+            writeStrings(output, metadata.getTags());
+            writeString(output, metadata.getCreatedAt());
+            writeString(output, metadata.getUpdatedAt());
+            output.writeLong(fingerprint.getMetadataModifiedAt());
+            output.writeLong(fingerprint.getMetadataSize());
+            output.writeLong(fingerprint.getContentModifiedAt());
+            output.writeLong(fingerprint.getContentSize());
+            output.writeInt(contentOffset);
+        }
+
+        static NoteRecord read(ByteBuffer buffer) {
+            String directory = readString(buffer);
+            QuiverNote.Metadata metadata = new QuiverNote.Metadata();
+            metadata.setUuid(readString(buffer));
+            metadata.setTitle(readString(buffer));
+            metadata.setTags(readInternedStrings(buffer));
+            metadata.setCreatedAt(readString(buffer));
+            metadata.setUpdatedAt(readString(buffer));
+            QuiverNoteFingerprint fingerprint = new QuiverNoteFingerprint(metadata.getUuid(),
+                    metadata.getUpdatedAt(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+
+            return new NoteRecord(directory, metadata, fingerprint, buffer.getInt());
+        }
+
+        private static void writeStrings(DataOutputStream output, List<String> values) throws IOException {
+            output.writeInt(null == values ? -1 : values.size());
+            if (null != values) {
+                for (String value : values) {
+                    writeString(output, value);
+                }
+            }
+        }
+
+        private static List<String> readInternedStrings(ByteBuffer buffer) {
+            int size = buffer.getInt();
+            if (size < 0) {
+                return null;
+            }
+
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(QuiverStrings.intern(readString(buffer)));
+            }
+
+            return values;
+        }
+    }
+}
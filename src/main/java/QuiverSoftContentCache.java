@@ -0,0 +1,136 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Represents a {@link QuiverContentCache} that holds content through soft references.
+ * <p>
+ * The cache is unbounded, but the garbage collector reclaims its content when memory runs low, so it adapts to
+ * whatever heap is available.
+ */
+public class QuiverSoftContentCache implements QuiverContentCache {
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<List<QuiverCell>> reclaimed = new ReferenceQueue<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final QuiverSingleFlight<Path, List<QuiverCell>> loads = new QuiverSingleFlight<>();
+    // The version of every load in flight, dropped when its note is invalidated so its stale content isn't cached
+    private final Map<Path, Object> versions = new HashMap<>();
+    // Guards the versions, so a load is never cached after its note was invalidated
+    private final Object writeLock = new Object();
+
+    @Override
+    public List<QuiverCell> get(Path note, Function<Path, List<QuiverCell>> loader) {
+        purge();
+
+        Entry entry = entries.get(note);
+        List<QuiverCell> content = null == entry ? null : entry.get();
+        if (null != content) {
+            hits.incrementAndGet();
+
+            return content;
+        }
+
+        misses.incrementAndGet();
+
+        // Concurrent misses of the same note share a single load
+        return loads.load(note, n -> {
+            Object version = new Object();
+            synchronized (writeLock) {
+                versions.put(n, version);
+            }
+
+            try {
+                List<QuiverCell> loaded = loader.apply(n);
+                synchronized (writeLock) {
+                    // The note was invalidated while it was loading, so what was loaded may already be stale
+                    if (versions.get(n) == version) {
+                        put(n, loaded);
+                    }
+                }
+
+                return loaded;
+            } finally {
+                synchronized (writeLock) {
+                    versions.remove(n, version);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void invalidate(Path note) {
+        synchronized (writeLock) {
+            remove(note);
+            versions.remove(note);
+            loads.detach(note);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (writeLock) {
+            for (Path note : entries.keySet()) {
+                remove(note);
+            }
+            versions.clear();
+            loads.detachAll();
+        }
+    }
+
+    @Override
+    public QuiverCacheStats getStats() {
+        purge();
+
+        return new QuiverCacheStats(hits.get(), misses.get(), evictions.get(), entries.size(), weight.get());
+    }
+
+    private void put(Path note, List<QuiverCell> content) {
+        Entry added = new Entry(note, content, QuiverContentCache.weigh(content), reclaimed);
+        weight.addAndGet(added.weight);
+        Entry previous = entries.put(note, added);
+        if (null != previous) {
+            weight.addAndGet(-previous.weight);
+        }
+    }
+
+    private void remove(Path note) {
+        Entry entry = entries.remove(note);
+        if (null != entry) {
+            weight.addAndGet(-entry.weight);
+        }
+    }
+
+    private void purge() {
+        Entry entry;
+        while (null != (entry = (Entry) reclaimed.poll())) {
+            // The entry may have been replaced or invalidated already
+            if (entries.remove(entry.note, entry)) {
+                weight.addAndGet(-entry.weight);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Represents the softly referenced content of a note.
+     */
+    private static class Entry extends SoftReference<List<QuiverCell>> {
+        private final Path note;
+        private final long weight;
+
+        Entry(Path note, List<QuiverCell> content, long weight, ReferenceQueue<List<QuiverCell>> queue) {
+            super(content, queue);
+            this.note = note;
+            this.weight = weight;
+        }
+    }
+}
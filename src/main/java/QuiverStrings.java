@@ -0,0 +1,48 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes the strings that repeat across a library, such as the types and languages of cells and the tags of
+ * notes, so every occurrence shares a single instance.
+ * <p>
+ * The interner is shared by every library and bounded, so values that hardly repeat, e.g. from a library with a huge
+ * number of distinct tags, can't make it grow without limit: once it is full, new values are returned as they are.
+ */
+final class QuiverStrings {
+    static final int MAX_SIZE = 16_384;
+
+    private static final Map<String, String> INTERNED = new ConcurrentHashMap<>();
+
+    static {
+        for (QuiverCellType type : QuiverCellType.values()) {
+            INTERNED.put(type.getName(), type.getName());
+        }
+    }
+
+    private QuiverStrings() {
+    }
+
+    /**
+     * Gets the canonical instance of a string.
+     *
+     * @param value The string.
+     * @return The canonical instance equal to the string, or the string itself if it isn't interned and the interner
+     * is full. {@code null} is returned as is.
+     */
+    static String intern(String value) {
+        if (null == value) {
+            return null;
+        }
+
+        String interned = INTERNED.get(value);
+        if (null != interned) {
+            return interned;
+        }
+        if (INTERNED.size() >= MAX_SIZE) {
+            return value;
+        }
+
+        interned = INTERNED.putIfAbsent(value, value);
+        return null == interned ? value : interned;
+    }
+}
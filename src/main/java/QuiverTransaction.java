@@ -0,0 +1,431 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import exceptions.MalformedContentException;
+import exceptions.MalformedLibraryException;
+import exceptions.MalformedMetadataException;
+import lombok.Data;
+
+/**
+ * Represents a batch of writes to a library, started with {@link QuiverLibrary#transaction()}: notebooks to create and
+ * notes to create or update.
+ * <p>
+ * Writes are serialized with the mapper of the library as soon as they are added, but nothing is written until
+ * {@link #commit()}. Committing then writes every file to a temporary location and syncs it to disk, renames all of
+ * them into place, and finally syncs each directory that changed once. Readers never see a half-written file:
+ * <ul>
+ * <li>new notebooks and notes appear at once, with all of their files, since their whole directory is renamed;</li>
+ * <li>notes that already exist have their {@code content.json} and then their {@code meta.json} replaced, each
+ * atomically.</li>
+ * </ul>
+ * The {@code children} of the {@code meta.json} of the library are updated last, along with the notebooks and notes
+ * that the library already loaded.
+ * <p>
+ * A transaction is used once: it can't be changed or committed again after it was committed.
+ */
+public class QuiverTransaction {
+    private static final String META_FILE_NAME = "meta.json";
+    private static final String CONTENT_FILE_NAME = "content.json";
+    private static final String NOTEBOOK_EXTENSION = ".qvnotebook";
+    private static final String NOTE_EXTENSION = ".qvnote";
+
+    private final QuiverLibrary library;
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final QuiverOptions options;
+
+    private final Map<Path, NotebookWrite> notebooks = new LinkedHashMap<>();
+    // Keyed by location, so writing the same note twice keeps the last write
+    private final Map<Path, NoteWrite> notes = new LinkedHashMap<>();
+    private boolean committed;
+
+    QuiverTransaction(QuiverLibrary library) {
+        this.library = library;
+        this.mapper = library.getMapper();
+        // Quiver itself writes indented json
+        this.writer = mapper.writerWithDefaultPrettyPrinter();
+        this.options = library.getOptions();
+    }
+
+    /**
+     * Creates a notebook. Its identifier names its directory, so it must be a plain file name, e.g. without {@code /}.
+     *
+     * @param id   The unique identifier of the notebook, or {@code null} to assign a random one.
+     * @param name The name of the notebook.
+     * @return The location of the notebook, to write notes into.
+     */
+    public Path createNotebook(String id, String name) {
+        checkNotCommitted();
+
+        String uuid = null == id ? randomId() : checkFileName(id);
+        Path location = library.getLocation().resolve(uuid + NOTEBOOK_EXTENSION);
+        if (notebooks.containsKey(location) || Files.exists(location)) {
+            throw new IllegalArgumentException("The notebook already exists: " + location);
+        }
+
+        ObjectNode metadata = mapper.createObjectNode();
+        putIfPresent(metadata, "name", name);
+        metadata.put("uuid", uuid);
+        notebooks.put(location, new NotebookWrite(location, uuid,
+                serialize(metadata, location.resolve(META_FILE_NAME), MalformedMetadataException::new)));
+
+        return location;
+    }
+
+    /**
+     * Creates a note inside a notebook, at {@code <id>.qvnote}, or updates the note already there. The identifier must
+     * be a plain file name.
+     *
+     * @param notebook The notebook.
+     * @param draft    The metadata and content of the note.
+     * @return The location of the note.
+     */
+    public Path writeNote(QuiverNotebook notebook, QuiverNoteDraft draft) {
+        return writeNote(notebook.getLocation(), draft);
+    }
+
+    /**
+     * Creates a note inside a notebook, at {@code <id>.qvnote}, or updates the note already there. The identifier must
+     * be a plain file name.
+     *
+     * @param notebookLocation The location of the notebook, which may be created by this transaction.
+     * @param draft            The metadata and content of the note.
+     * @return The location of the note.
+     */
+    public Path writeNote(Path notebookLocation, QuiverNoteDraft draft) {
+        String id = null == draft.getId() ? randomId() : checkFileName(draft.getId());
+
+        return write(notebookLocation.resolve(id + NOTE_EXTENSION), id, draft);
+    }
+
+    /**
+     * Updates an existing note, wherever it is located.
+     *
+     * @param note  The note.
+     * @param draft The new metadata and content of the note.
+     * @return The location of the note.
+     */
+    public Path updateNote(QuiverNote note, QuiverNoteDraft draft) {
+        return write(note.getLocation(), null == draft.getId() ? note.getId() : draft.getId(), draft);
+    }
+
+    /**
+     * @return The number of notebooks and notes written by this transaction.
+     */
+    public int size() {
+        return notebooks.size() + notes.size();
+    }
+
+    /**
+     * Writes every notebook and note of this transaction to disk, and updates what the library already loaded.
+     * <p>
+     * If writing fails, the temporary files are deleted and an I/O failure is thrown as a
+     * {@link MalformedLibraryException}. The notebooks and notes that were already renamed into place by then stay
+     * written.
+     */
+    public void commit() {
+        checkNotCommitted();
+        committed = true;
+
+        // Transactions rewrite the same meta.json of the library, so they are committed and applied one at a time
+        synchronized (library.getWriteLock()) {
+            List<Move> moves = new ArrayList<>();
+            int moved = 0;
+            try {
+                stage(moves);
+                for (Move move : moves) {
+                    move.run();
+                    moved++;
+                }
+                syncDirectories(moves);
+            } catch (IOException e) {
+                deleteStaged(moves.subList(moved, moves.size()));
+                throw new MalformedLibraryException(library.getLocation().toString(), e);
+            } catch (RuntimeException e) {
+                deleteStaged(moves.subList(moved, moves.size()));
+                throw e;
+            }
+
+            updateLibrary();
+        }
+    }
+
+    private Path write(Path location, String id, QuiverNoteDraft draft) {
+        checkNotCommitted();
+
+        Instant now = Instant.now();
+        Instant createdAt = null == draft.getCreatedAt() ? now : draft.getCreatedAt();
+        Instant updatedAt = null == draft.getUpdatedAt() ? now : draft.getUpdatedAt();
+
+        QuiverNote.Metadata metadata = new QuiverNote.Metadata();
+        metadata.setUuid(id);
+        metadata.setTitle(draft.getTitle());
+        metadata.setTags(null == draft.getTags() ? null : new ArrayList<>(draft.getTags()));
+        metadata.setCreatedAt(Long.toString(createdAt.getEpochSecond()));
+        metadata.setUpdatedAt(Long.toString(updatedAt.getEpochSecond()));
+
+        notes.put(location, new NoteWrite(location, metadata, serializeMetadata(location, metadata),
+                serializeContent(location, draft)));
+
+        return location;
+    }
+
+    private byte[] serializeMetadata(Path location, QuiverNote.Metadata metadata) {
+        // Quiver writes the fields in alphabetical order, and times as whole seconds since Epoch
+        ObjectNode node = mapper.createObjectNode();
+        node.put("created_at", Long.parseLong(metadata.getCreatedAt()));
+        if (null != metadata.getTags()) {
+            ArrayNode tags = node.putArray("tags");
+            for (String tag : metadata.getTags()) {
+                tags.add(tag);
+            }
+        }
+        putIfPresent(node, "title", metadata.getTitle());
+        node.put("updated_at", Long.parseLong(metadata.getUpdatedAt()));
+        node.put("uuid", metadata.getUuid());
+
+        return serialize(node, location.resolve(META_FILE_NAME), MalformedMetadataException::new);
+    }
+
+    private byte[] serializeContent(Path location, QuiverNoteDraft draft) {
+        ObjectNode node = mapper.createObjectNode();
+        putIfPresent(node, "title", draft.getTitle());
+        ArrayNode cells = node.putArray("cells");
+        for (QuiverCell cell : draft.getCells()) {
+            ObjectNode cellNode = cells.addObject();
+            putIfPresent(cellNode, "type", cell.getType());
+            putIfPresent(cellNode, "language", cell.getLanguage());
+            putIfPresent(cellNode, "diagramType", cell.getDiagramType());
+            putIfPresent(cellNode, "data", cell.getRawData());
+        }
+
+        return serialize(node, location.resolve(CONTENT_FILE_NAME), MalformedContentException::new);
+    }
+
+    private byte[] serialize(JsonNode node, Path location, BiFunction<String, Throwable, RuntimeException> failure) {
+        try {
+            return writer.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw failure.apply(location.toString(), e);
+        }
+    }
+
+    private static void putIfPresent(ObjectNode node, String name, String value) {
+        if (null != value) {
+            node.put(name, value);
+        }
+    }
+
+    /**
+     * Writes every file to a temporary location, synced to disk, and lists the renames that put them into place.
+     */
+    private void stage(List<Move> moves) throws IOException {
+        // The notes of new notebooks are written straight into the temporary directory of their notebook
+        Map<Path, Path> stagedNotebooks = new LinkedHashMap<>();
+        for (NotebookWrite notebook : notebooks.values()) {
+            Path staged = Files.createTempDirectory(library.getLocation(), notebook.getLocation().getFileName() + ".");
+            moves.add(new Move(staged, notebook.getLocation()));
+            stagedNotebooks.put(notebook.getLocation(), staged);
+            writeSynced(staged.resolve(META_FILE_NAME), notebook.getMetadata());
+        }
+
+        for (NoteWrite note : notes.values()) {
+            Path location = note.getLocation();
+            Path stagedNotebook = stagedNotebooks.get(location.getParent());
+
+            if (null != stagedNotebook) {
+                Path staged = Files.createDirectory(stagedNotebook.resolve(location.getFileName().toString()));
+                writeSynced(staged.resolve(CONTENT_FILE_NAME), note.getContent());
+                writeSynced(staged.resolve(META_FILE_NAME), note.getMetadata());
+            } else if (!Files.isDirectory(location)) {
+                Path staged = Files.createTempDirectory(location.getParent(), location.getFileName() + ".");
+                moves.add(new Move(staged, location));
+                writeSynced(staged.resolve(CONTENT_FILE_NAME), note.getContent());
+                writeSynced(staged.resolve(META_FILE_NAME), note.getMetadata());
+            } else {
+                // The metadata are replaced last, since they are what readers list notes by
+                Path content = Files.createTempFile(location, CONTENT_FILE_NAME, ".tmp");
+                moves.add(new Move(content, location.resolve(CONTENT_FILE_NAME)));
+                writeSynced(content, note.getContent());
+                Path metadata = Files.createTempFile(location, META_FILE_NAME, ".tmp");
+                moves.add(new Move(metadata, location.resolve(META_FILE_NAME)));
+                writeSynced(metadata, note.getMetadata());
+            }
+        }
+
+        if (!notebooks.isEmpty()) {
+            Path libraryMetadata = library.getLocation().resolve(META_FILE_NAME);
+            Path staged = Files.createTempFile(library.getLocation(), META_FILE_NAME, ".tmp");
+            moves.add(new Move(staged, libraryMetadata));
+            writeSynced(staged,
+                    serialize(addChildren(libraryMetadata), libraryMetadata, MalformedMetadataException::new));
+        }
+    }
+
+    private ObjectNode addChildren(Path libraryMetadata) {
+        JsonNode metadata = QuiverProbe.read(options.getInstrumentation(), QuiverOperation.READ_METADATA,
+                libraryMetadata, mapper::readTree, MalformedMetadataException::new);
+        if (!(metadata instanceof ObjectNode)) {
+            throw new MalformedMetadataException(libraryMetadata.toString(), null);
+        }
+
+        ObjectNode updated = (ObjectNode) metadata;
+        JsonNode children = updated.get("children");
+        ArrayNode childrenArray = children instanceof ArrayNode ? (ArrayNode) children : updated.putArray("children");
+        for (NotebookWrite notebook : notebooks.values()) {
+            childrenArray.addObject().put("uuid", notebook.getId());
+        }
+
+        return updated;
+    }
+
+    private static void writeSynced(Path location, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(location, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void syncDirectories(List<Move> moves) {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Move move : moves) {
+            directories.add(move.getTarget().getParent());
+        }
+
+        for (Path directory : directories) {
+            if (FileSystems.getDefault() != directory.getFileSystem()) {
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException | UnsupportedOperationException e) {
+                // Not every platform can sync a directory, e.g. Windows; the renames are then left to the OS
+            }
+        }
+    }
+
+    private static void deleteStaged(List<Move> moves) {
+        for (Move move : moves) {
+            try (Stream<Path> paths = Files.walk(move.getSource())) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // Best effort: a leftover temporary file never matches what readers list
+            }
+        }
+    }
+
+    private void updateLibrary() {
+        if (!notebooks.isEmpty()) {
+            library.reloadMetadata();
+            for (Path notebook : notebooks.keySet()) {
+                library.reloadNotebook(notebook);
+            }
+        }
+
+        // New notebooks were reloaded with their notes, so only the notes of existing notebooks are left
+        Map<Path, List<QuiverNote>> written = new LinkedHashMap<>();
+        for (NoteWrite note : notes.values()) {
+            Path notebook = note.getLocation().getParent();
+            if (!notebooks.containsKey(notebook)) {
+                written.computeIfAbsent(notebook, n -> new ArrayList<>())
+                        .add(new QuiverNote(note.getLocation(), mapper, options, note.getNoteMetadata(), null));
+            }
+            if (null != options.getContentCache()) {
+                options.getContentCache().invalidate(note.getLocation());
+            }
+        }
+        for (Map.Entry<Path, List<QuiverNote>> entry : written.entrySet()) {
+            library.putNotes(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void checkNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("The transaction was already committed");
+        }
+    }
+
+    private static String randomId() {
+        return UUID.randomUUID().toString().toUpperCase(Locale.ROOT);
+    }
+
+    private static String checkFileName(String id) {
+        // The identifier names a directory of the library, so it must not reach outside of it
+        if (id.isEmpty() || ".".equals(id) || "..".equals(id) || id.indexOf('/') >= 0 || id.indexOf('\\') >= 0
+                || id.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("The identifier must be a plain file name: " + id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Represents a notebook to create.
+     */
+    @Data
+    private static class NotebookWrite {
+        private final Path location;
+        private final String id;
+        private final byte[] metadata;
+    }
+
+    /**
+     * Represents a note to create or update.
+     */
+    @Data
+    private static class NoteWrite {
+        private final Path location;
+        private final QuiverNote.Metadata noteMetadata;
+        private final byte[] metadata;
+        private final byte[] content;
+    }
+
+    /**
+     * Represents a rename of a staged file or directory into place.
+     */
+    @Data
+    private static class Move {
+        private final Path source;
+        private final Path target;
+
+        void run() throws IOException {
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
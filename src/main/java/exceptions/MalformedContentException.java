@@ -3,11 +3,8 @@ package exceptions;
 /**
  * Thrown when the underlying content is malformed.
  */
-public class MalformedContentException extends RuntimeException {
-    private final String content;
-
+public class MalformedContentException extends MalformedException {
     public MalformedContentException(String content, Throwable t) {
-        super(t);
-        this.content = content;
+        super(content, t);
     }
 }
@@ -0,0 +1,20 @@
+package exceptions;
+
+/**
+ * Thrown when part of a library is malformed, e.g. a file that cannot be read or parsed.
+ */
+public class MalformedException extends RuntimeException {
+    private final String location;
+
+    public MalformedException(String location, Throwable t) {
+        super(t);
+        this.location = location;
+    }
+
+    /**
+     * @return The location of the malformed file or directory.
+     */
+    public String getLocation() {
+        return location;
+    }
+}
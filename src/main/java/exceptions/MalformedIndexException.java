@@ -0,0 +1,10 @@
+package exceptions;
+
+/**
+ * Thrown when the underlying index is malformed.
+ */
+public class MalformedIndexException extends MalformedException {
+    public MalformedIndexException(String index, Throwable t) {
+        super(index, t);
+    }
+}
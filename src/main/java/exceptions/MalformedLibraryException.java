@@ -3,11 +3,8 @@ package exceptions;
 /**
  * Thrown when the underlying library is malformed.
  */
-public class MalformedLibraryException extends RuntimeException {
-    private final String library;
-
+public class MalformedLibraryException extends MalformedException {
     public MalformedLibraryException(String library, Throwable t) {
-        super(t);
-        this.library = library;
+        super(library, t);
     }
 }
@@ -3,11 +3,8 @@ package exceptions;
 /**
  * Thrown when the underlying metadata is malformed.
  */
-public class MalformedMetadataException extends RuntimeException {
-    private final String metadata;
-
+public class MalformedMetadataException extends MalformedException {
     public MalformedMetadataException(String metadata, Throwable t) {
-        super(t);
-        this.metadata = metadata;
+        super(metadata, t);
     }
 }
@@ -3,11 +3,8 @@ package exceptions;
 /**
  * Thrown when the underlying notebook is malformed.
  */
-public class MalformedNotebookException extends RuntimeException {
-    private final String notebook;
-
+public class MalformedNotebookException extends MalformedException {
     public MalformedNotebookException(String notebook, Throwable t) {
-        super(t);
-        this.notebook = notebook;
+        super(notebook, t);
     }
 }
@@ -0,0 +1,10 @@
+package exceptions;
+
+/**
+ * Thrown when a resource of a note, e.g. an image, cannot be read.
+ */
+public class MalformedResourceException extends MalformedException {
+    public MalformedResourceException(String resource, Throwable t) {
+        super(resource, t);
+    }
+}
@@ -0,0 +1,10 @@
+package exceptions;
+
+/**
+ * Thrown when the underlying snapshot is malformed.
+ */
+public class MalformedSnapshotException extends MalformedException {
+    public MalformedSnapshotException(String snapshot, Throwable t) {
+        super(snapshot, t);
+    }
+}
@@ -0,0 +1,182 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuiverBoundedContentCacheTest {
+    private AtomicInteger loads;
+    private Function<Path, List<QuiverCell>> loader;
+
+    @Before
+    public void setup() {
+        loads = new AtomicInteger();
+        loader = note -> {
+            loads.incrementAndGet();
+            return content(note.toString());
+        };
+    }
+
+    @Test
+    public void given_concurrent_misses_of_the_same_note_content_is_loaded_once() throws Exception {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().build();
+        Function<Path, List<QuiverCell>> slowLoader = note -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(note);
+        };
+
+        List<List<QuiverCell>> contents =
+                QuiverThreads.runConcurrently(16, () -> cache.get(Paths.get("a"), slowLoader));
+
+        for (List<QuiverCell> content : contents) {
+            assertSame(contents.get(0), content);
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void given_cached_content_when_requested_again_content_is_not_loaded_again() {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().build();
+
+        List<QuiverCell> first = cache.get(Paths.get("a"), loader);
+        List<QuiverCell> second = cache.get(Paths.get("a"), loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(new QuiverCacheStats(1, 1, 0, 1, 2), cache.getStats());
+    }
+
+    @Test
+    public void given_a_maximum_size_least_recently_used_content_is_evicted() {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().maximumSize(2L).build();
+
+        cache.get(Paths.get("a"), loader);
+        cache.get(Paths.get("b"), loader);
+        // Use `a` again so `b` becomes the least recently used
+        cache.get(Paths.get("a"), loader);
+        cache.get(Paths.get("c"), loader);
+
+        assertEquals(3, loads.get());
+        cache.get(Paths.get("a"), loader);
+        assertEquals(3, loads.get());
+        cache.get(Paths.get("b"), loader);
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(2, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void given_a_maximum_weight_content_is_evicted_until_under_the_weight() {
+        // Each character of cell data weighs two bytes
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().maximumWeight(10L).build();
+
+        cache.get(Paths.get("aa"), loader);
+        cache.get(Paths.get("bb"), loader);
+        cache.get(Paths.get("ccc"), loader);
+
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(10, cache.getStats().getWeight());
+        cache.get(Paths.get("aa"), loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void given_content_heavier_than_the_maximum_weight_content_is_not_cached() {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().maximumWeight(4L).build();
+
+        assertEquals("abcdef", cache.get(Paths.get("abcdef"), loader).get(0).getData());
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(0, cache.getStats().getWeight());
+    }
+
+    @Test
+    public void given_an_expiration_content_not_accessed_in_time_is_dropped() throws InterruptedException {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().expireAfterAccess(Duration.ofMillis(20)).build();
+
+        cache.get(Paths.get("a"), loader);
+        Thread.sleep(50);
+        cache.get(Paths.get("a"), loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void given_the_tiny_lfu_policy_rarely_requested_content_does_not_evict_popular_content() {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder()
+                .maximumSize(1L)
+                .policy(QuiverBoundedContentCache.Policy.TINY_LFU)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            cache.get(Paths.get("hot"), loader);
+        }
+        // A one-off request is served, but not cached over the popular content
+        cache.get(Paths.get("cold"), loader);
+        cache.get(Paths.get("hot"), loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStats().getSize());
+    }
+
+    @Test
+    public void when_invalidated_content_is_loaded_again() {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().build();
+
+        cache.get(Paths.get("a"), loader);
+        cache.invalidate(Paths.get("a"));
+        cache.get(Paths.get("a"), loader);
+        cache.invalidateAll();
+
+        assertEquals(2, loads.get());
+        assertEquals(new QuiverCacheStats(0, 2, 0, 0, 0), cache.getStats());
+    }
+
+    @Test
+    public void given_a_note_invalidated_while_loading_stale_content_is_not_cached() throws Exception {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().build();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        CompletableFuture<List<QuiverCell>> stale = CompletableFuture.supplyAsync(() ->
+                cache.get(Paths.get("a"), note -> {
+                    loading.countDown();
+                    try {
+                        changed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return content("stale");
+                }));
+        loading.await();
+        cache.invalidate(Paths.get("a"));
+
+        // Callers that ask after the note was invalidated don't wait for the stale load
+        assertEquals("fresh", cache.get(Paths.get("a"), note -> content("fresh")).get(0).getData());
+        changed.countDown();
+        assertEquals("stale", stale.get().get(0).getData());
+        assertEquals("fresh", cache.get(Paths.get("a"), loader).get(0).getData());
+        assertEquals(0, loads.get());
+    }
+
+    private static List<QuiverCell> content(String data) {
+        QuiverCell cell = new QuiverCell();
+        cell.setType("text");
+        cell.setData(data);
+
+        return Collections.singletonList(cell);
+    }
+}
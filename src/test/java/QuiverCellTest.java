@@ -1,6 +1,13 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
@@ -40,10 +47,19 @@ public class QuiverCellTest {
         QuiverCell cell = mapper.readValue(json, QuiverCell.class);
 
         assertEquals("diagram", cell.getType());
+        assertEquals(QuiverCellType.DIAGRAM, cell.getCellType());
         assertEquals("sequence", cell.getDiagramType());
         assertEquals("Title: Here is a title A->B: Normal line B-->C: Dashed line", cell.getData());
     }
 
+    @Test
+    public void given_an_unknown_type_when_get_cell_type_is_called_null_is_returned() {
+        QuiverCell cell = new QuiverCell();
+        cell.setType("spreadsheet");
+
+        assertNull(cell.getCellType());
+    }
+
     @Test
     public void given_another_instance_quiver_cell_is_copied() throws IOException {
         String json = "{\"type\": \"text\",\"data\": \"<h3>Text Cell</h3>\"}";
@@ -55,4 +71,49 @@ public class QuiverCellTest {
         assertEquals(other.getLanguage(), cell.getLanguage());
         assertEquals(other.getDiagramType(), cell.getDiagramType());
     }
+
+    @Test
+    public void given_resource_references_when_get_data_is_called_references_are_resolved_literally() {
+        QuiverCell cell = new QuiverCell();
+        cell.setData("<img src=\"quiver-image-url/a.png\"><img src='quiver-image-url/b.png'>");
+        cell.linkResources("C:\\notes\\$1\\resources");
+
+        assertEquals(Arrays.asList(new QuiverResourceLink(10, 22, "a.png"), new QuiverResourceLink(44, 22, "b.png")),
+                cell.getResourceLinks());
+        assertEquals("<img src=\"C:\\notes\\$1\\resources/a.png\"><img src='C:\\notes\\$1\\resources/b.png'>",
+                cell.getData());
+        assertEquals("<img src=\"quiver-image-url/a.png\"><img src='quiver-image-url/b.png'>", cell.getRawData());
+    }
+
+    @Test
+    public void given_no_resource_references_when_get_data_is_called_data_is_left_untouched() {
+        String data = "<div>No images here</div>";
+        QuiverCell cell = new QuiverCell();
+        cell.setData(data);
+        cell.linkResources("/notes/resources");
+
+        assertTrue(cell.getResourceLinks().isEmpty());
+        assertSame(data, cell.getData());
+    }
+
+    @Test
+    public void given_note_links_when_get_note_links_is_called_linked_notes_are_found() {
+        QuiverCell cell = new QuiverCell();
+        cell.setData("<a href=\"quiver-note-url/A\">x</a> [y](quiver-note-url/B)");
+
+        assertEquals(Arrays.asList(new QuiverNoteLink(9, 17, "A"), new QuiverNoteLink(38, 17, "B")),
+                cell.getNoteLinks());
+    }
+
+    @Test
+    public void given_a_cell_with_resources_when_serialized_only_its_json_properties_are_written() throws IOException {
+        String json = "{\"type\": \"text\",\"data\": \"<img src=\\\"quiver-image-url/cat.png\\\">\"}";
+        QuiverCell cell = mapper.readValue(json, QuiverCell.class);
+
+        List<String> properties = new ArrayList<>();
+        mapper.readTree(mapper.writeValueAsString(cell)).fieldNames().forEachRemaining(properties::add);
+        Collections.sort(properties);
+
+        assertEquals(Arrays.asList("data", "diagramType", "language", "type"), properties);
+    }
 }
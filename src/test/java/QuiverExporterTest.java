@@ -0,0 +1,95 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverExporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ObjectMapper mapper;
+    private QuiverLibrary library;
+
+    @Before
+    public void setup() {
+        mapper = spy(new ObjectMapper());
+        library = new QuiverLibrary(Paths.get(getClass().getResource("notes.qvlibrary").getFile()), mapper);
+    }
+
+    @Test
+    public void given_a_parallel_export_when_exporting_json_lines_then_notes_are_written_in_order() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            QuiverExportStats stats = library.export()
+                    .withExecutor(executor)
+                    .withBufferSize(2)
+                    .withResourcesLocation(note -> "https://example.com/" + note.getId())
+                    .exportJsonLines(output);
+
+            assertEquals(3, stats.getNotes());
+            assertEquals(8, stats.getCells());
+            assertEquals(output.size(), stats.getBytes());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> ids;
+        try (Stream<QuiverNoteEntry> entries = library.streamNotes()) {
+            ids = entries.map(entry -> entry.getNote().getId()).collect(Collectors.toList());
+        }
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            lines.add(mapper.readTree(line));
+        }
+        assertEquals(ids, lines.stream().map(line -> line.get("id").asText()).collect(Collectors.toList()));
+
+        JsonNode java = lines.get(ids.indexOf("JAVA-NOTE"));
+        assertEquals("Programming Languages", java.get("notebookName").asText());
+        assertEquals("java", java.get("cells").get(1).get("language").asText());
+
+        JsonNode pancakes = lines.get(ids.indexOf("PANCAKES-NOTE"));
+        assertEquals("cooking", pancakes.get("tags").get(0).asText());
+        assertEquals("<img src=\"https://example.com/PANCAKES-NOTE/pancakes.png\" alt=\"\">",
+                pancakes.get("cells").get(2).get("data").asText());
+    }
+
+    @Test
+    public void given_a_library_when_exporting_markdown_then_each_note_has_a_file_linking_its_resources()
+            throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("export");
+        QuiverExportStats stats = library.export().withBufferSize(1).exportMarkdown(directory);
+
+        assertEquals(3, stats.getNotes());
+        assertTrue(Files.exists(directory.resolve("languages").resolve("java.md")));
+        assertTrue(Files.exists(directory.resolve("languages").resolve("kotlin.md")));
+
+        Path pancakes = directory.resolve("recipes").resolve("pancakes.md");
+        String markdown = new String(Files.readAllBytes(pancakes), StandardCharsets.UTF_8);
+        assertTrue(markdown.startsWith("# Pancakes\n\n<div>Mix flour"));
+        assertTrue(markdown.contains("\n```sequence\nBowl->Pan: Pour the batter\n```\n"));
+
+        String image = markdown.substring(markdown.indexOf("<img src=\"") + 10, markdown.indexOf("\" alt"));
+        assertTrue(Files.exists(pancakes.getParent().resolve(image)));
+    }
+}
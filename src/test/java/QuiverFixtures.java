@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Copies the fixtures under {@code src/test/resources} so tests can modify them freely, or zips them.
+ */
+final class QuiverFixtures {
+    private QuiverFixtures() {
+    }
+
+    static Path copy(String fixture, Path target) throws IOException {
+        Path source = Paths.get(QuiverFixtures.class.getResource(fixture).getFile());
+        Path destination = target.resolve(fixture);
+
+        try (Stream<Path> paths = Files.walk(source)) {
+            paths.forEach(path -> {
+                try {
+                    Files.copy(path, destination.resolve(source.relativize(path).toString()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        return destination;
+    }
+
+    static Path zip(String fixture, Path archive) throws IOException {
+        Path source = Paths.get(QuiverFixtures.class.getResource(fixture).getFile());
+
+        try (FileSystem zip = FileSystems.newFileSystem(URI.create("jar:" + archive.toUri()),
+                Collections.singletonMap("create", "true"));
+             Stream<Path> paths = Files.walk(source)) {
+            Path destination = zip.getPath("/", fixture);
+            paths.forEach(path -> {
+                try {
+                    Files.copy(path, destination.resolve(source.relativize(path).toString()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        return archive;
+    }
+
+    static Path age(Path location) throws IOException {
+        // Files modified right before a scan are taken as racy, and always read again
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        try (Stream<Path> paths = Files.walk(location)) {
+            paths.forEach(path -> {
+                try {
+                    Files.setLastModifiedTime(path, past);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        return location;
+    }
+
+    static void delete(Path location) throws IOException {
+        try (Stream<Path> paths = Files.walk(location)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuiverJsonReaderTest {
+    private ObjectMapper mapper;
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper();
+    }
+
+    @Test
+    public void given_a_cell_with_unknown_fields_cell_is_read_and_unknown_fields_are_skipped() throws IOException {
+        String json = "{\"type\": \"code\",\"extra\": {\"nested\": [1, {\"a\": \"b\"}]},\"language\": \"java\"," +
+                "\"data\": \"int x;\"}";
+        QuiverCell cell = QuiverJsonReader.readCell(parser(json));
+
+        assertEquals("code", cell.getType());
+        assertEquals("java", cell.getLanguage());
+        assertEquals("int x;", cell.getData());
+        assertNull(cell.getDiagramType());
+    }
+
+    @Test
+    public void given_a_list_of_cells_every_cell_is_read_in_order() throws IOException {
+        JsonParser parser = parser("[{\"type\": \"text\",\"data\": \"a\"},{\"type\": \"markdown\",\"data\": \"b\"}]");
+        parser.nextToken();
+        List<QuiverCell> cells = QuiverJsonReader.readCells(parser);
+
+        assertEquals(2, cells.size());
+        assertEquals("text", cells.get(0).getType());
+        assertEquals("b", cells.get(1).getData());
+    }
+
+    @Test
+    public void given_a_number_of_wanted_fields_reading_stops_once_they_are_read() throws IOException {
+        // Everything after the wanted fields is invalid, so it would fail if it was read
+        String json = "{\"title\": \"Title\",\"other\": true,\"tags\": [\"a\", \"b\"],\"broken\": }";
+        List<String> read = new ArrayList<>();
+
+        QuiverJsonReader.readObject(parser(json), 2, (field, p) -> {
+            if ("other".equals(field)) {
+                return false;
+            }
+
+            read.add(field);
+            return true;
+        });
+
+        assertEquals(Arrays.asList("title", "tags"), read);
+    }
+
+    @Test
+    public void given_cells_with_empty_data_in_a_buffer_when_read_lazily_every_data_is_read() throws IOException {
+        byte[] json = "[{\"type\": \"text\",\"data\": \"\"},{\"type\": \"code\",\"data\": \"int x;\"}]"
+                .getBytes(StandardCharsets.UTF_8);
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(json);
+        parser.nextToken();
+        List<QuiverCell> cells = QuiverJsonReader.readCells(parser, ByteBuffer.wrap(json));
+
+        assertEquals("", cells.get(0).getData());
+        assertEquals("int x;", cells.get(1).getData());
+    }
+
+    @Test
+    public void given_a_string_located_at_or_right_after_its_opening_quote_the_same_string_is_found() {
+        ByteBuffer json = ByteBuffer.wrap("{\"data\": \"\", \"x\":\"abc\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("", QuiverJsonReader.findFieldValue(json, 9).decode());
+        assertEquals("", QuiverJsonReader.findFieldValue(json, 10).decode());
+        assertEquals("abc", QuiverJsonReader.findFieldValue(json, 17).decode());
+        assertEquals("abc", QuiverJsonReader.findFieldValue(json, 18).decode());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void given_a_value_that_is_not_an_object_throws_JsonParseException() throws IOException {
+        QuiverJsonReader.readCell(parser("[\"text\"]"));
+    }
+
+    private JsonParser parser(String json) throws IOException {
+        return mapper.getJsonFactory().createJsonParser(json);
+    }
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverLibraryChangesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void when_a_library_is_scanned_every_note_is_fingerprinted() {
+        Map<String, QuiverNoteFingerprint> fingerprints = QuiverNoteFingerprint.scan(library());
+
+        assertEquals(3, fingerprints.size());
+        QuiverNoteFingerprint pancakes = fingerprints.get(Paths.get("recipes.qvnotebook", "pancakes.qvnote").toString());
+        assertTrue(pancakes.getMetadataSize() > 0);
+        assertTrue(pancakes.getContentSize() > 0);
+    }
+
+    @Test
+    public void given_two_identical_scans_there_are_no_changes() throws IOException {
+        Path library = QuiverFixtures.age(QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath()));
+        QuiverLibraryChanges changes =
+                QuiverLibraryChanges.between(QuiverNoteFingerprint.scan(library), QuiverNoteFingerprint.scan(library));
+
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void given_notes_modified_right_before_a_scan_they_are_changed_until_their_files_settle()
+            throws IOException {
+        Path library = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Map<String, QuiverNoteFingerprint> previous = QuiverNoteFingerprint.scan(library);
+
+        // The same files may still be modified without changing their time nor their size
+        Map<String, QuiverNoteFingerprint> current = QuiverNoteFingerprint.scan(library);
+        assertEquals(3, QuiverLibraryChanges.between(previous, current).getChanged().size());
+        assertTrue(previous.values().stream().allMatch(QuiverNoteFingerprint::isRacy));
+
+        QuiverFixtures.age(library);
+        Map<String, QuiverNoteFingerprint> settled = QuiverNoteFingerprint.scan(library);
+        assertEquals(3, QuiverLibraryChanges.between(previous, settled).getChanged().size());
+        assertTrue(QuiverLibraryChanges.between(settled, QuiverNoteFingerprint.scan(library)).isEmpty());
+    }
+
+    @Test
+    public void given_two_different_scans_added_changed_and_deleted_notes_are_found() {
+        QuiverNoteFingerprint fingerprint = new QuiverNoteFingerprint("A", "1", 10, 100, 20, 200);
+        Map<String, QuiverNoteFingerprint> previous = new HashMap<>();
+        previous.put("unchanged", fingerprint);
+        previous.put("changed", fingerprint);
+        previous.put("deleted", fingerprint);
+        Map<String, QuiverNoteFingerprint> current = new HashMap<>();
+        // Only the files matter, the identifier and update time are not known before reading the note
+        current.put("unchanged", new QuiverNoteFingerprint(null, null, 10, 100, 20, 200));
+        current.put("changed", new QuiverNoteFingerprint(null, null, 10, 100, 30, 200));
+        current.put("added", fingerprint);
+
+        QuiverLibraryChanges changes = QuiverLibraryChanges.between(previous, current);
+
+        assertFalse(changes.isEmpty());
+        assertEquals(Collections.singletonList("added"), changes.getAdded());
+        assertEquals(Collections.singletonList("changed"), changes.getChanged());
+        assertEquals(Collections.singletonList("deleted"), changes.getDeleted());
+    }
+
+    private Path library() {
+        return Paths.get(getClass().getResource("notes.qvlibrary").getFile());
+    }
+}
@@ -1,21 +1,43 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedContentException;
 import exceptions.MalformedMetadataException;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class QuiverLibraryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private ObjectMapper mapper;
 
     @Before
@@ -58,7 +80,63 @@ public class QuiverLibraryTest {
         // 2. For the first call to `getNotebooks`
         //   2.1 loading the metadata of the first notebook
         //   2.2 loading the metadata of the second notebook
-        verify(mapper, times(3)).readValue(any(File.class), (Class<?>) any(Class.class));
+        verify(mapper, times(3)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_concurrent_callers_when_get_notebooks_is_called_notebooks_are_loaded_once() throws Exception {
+        QuiverLibrary library =
+                new QuiverLibrary(Paths.get(getClass().getResource("library.qvlibrary").getFile()), mapper);
+        // Slow down reading, so every caller asks while the notebooks are being loaded
+        doAnswer(invocation -> {
+            Thread.sleep(50);
+            return invocation.callRealMethod();
+        }).when(mapper).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+
+        List<List<QuiverNotebook>> notebooks = QuiverThreads.runConcurrently(16, library::getNotebooks);
+
+        for (List<QuiverNotebook> loaded : notebooks) {
+            assertSame(notebooks.get(0), loaded);
+        }
+        assertEquals(2, notebooks.get(0).size());
+        // Once for the metadata of the library and once for each notebook
+        verify(mapper, times(3)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void when_load_notebooks_async_is_called_notebooks_are_loaded_on_the_executor() throws Exception {
+        QuiverLibrary library =
+                new QuiverLibrary(Paths.get(getClass().getResource("library.qvlibrary").getFile()), mapper);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            List<QuiverNotebook> notebooks = library.loadNotebooksAsync(executor).get();
+
+            assertEquals(2, notebooks.size());
+            assertSame(library.getNotebooks(), notebooks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void given_a_zipped_library_when_opened_from_its_file_system_it_is_read_without_extraction()
+            throws IOException {
+        Path archive = QuiverFixtures.zip("notes.qvlibrary", folder.getRoot().toPath().resolve("notes.zip"));
+
+        try (FileSystem zip = FileSystems.newFileSystem(archive, (ClassLoader) null)) {
+            QuiverLibrary library = new QuiverLibrary(zip.getPath("/notes.qvlibrary"), mapper);
+            List<QuiverNotebook> notebooks = library.getNotebooks();
+            QuiverNote note = notebooks.get(0).getNotes().get(0);
+
+            assertEquals(2, notebooks.size());
+            assertEquals("JAVA-NOTE", note.getId());
+            assertFalse(note.getContent().isEmpty());
+            assertEquals(Collections.singletonList(note.getLocation()),
+                    library.query().withLanguage("java").list().stream()
+                            .map(QuiverNote::getLocation)
+                            .collect(Collectors.toList()));
+        }
     }
 
     @Test
@@ -69,4 +147,161 @@ public class QuiverLibraryTest {
         assertEquals(0, library.getNumberOfNotebooks());
         assertEquals(Collections.emptyList(), library.getNotebooks());
     }
+
+    @Test
+    public void given_an_executor_when_get_notebooks_is_called_notebooks_are_loaded_in_order() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            QuiverLibrary library = new QuiverLibrary(Paths.get(getClass().getResource("library.qvlibrary").getFile()),
+                    mapper, QuiverOptions.builder().executor(executor).build());
+            List<QuiverNotebook> notebooks = library.getNotebooks();
+
+            assertEquals(2, notebooks.size());
+            assertEquals("Tutorial", notebooks.get(0).getId());
+            assertEquals(2, notebooks.get(0).getNotes().size());
+            assertEquals("D2A1CC36-CC97-4701-A895-EFC98EF47026", notebooks.get(0).getNotes().get(0).getId());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = MalformedMetadataException.class)
+    public void given_an_executor_and_an_invalid_notebook_when_get_notebooks_is_called_throws_MalformedMetadataException() {
+        try (QuiverOptions options = QuiverOptions.parallel(4)) {
+            QuiverLibrary library = new QuiverLibrary(
+                    Paths.get(getClass().getResource("invalid-notebook.qvlibrary").getFile()), mapper, options);
+            library.getNotebooks();
+        }
+    }
+
+    @Test
+    public void given_an_error_handler_and_an_invalid_notebook_when_get_notebooks_is_called_it_is_skipped() {
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+        Path location = Paths.get(getClass().getResource("invalid-notebook.qvlibrary").getFile());
+        QuiverOptions options = QuiverOptions.parallel(4).toBuilder().errorHandler(errors).build();
+        List<QuiverNotebook> notebooks;
+        try (QuiverOptions owner = options) {
+            notebooks = new QuiverLibrary(location, mapper, owner).getNotebooks();
+        }
+
+        // The options own the pool they created, so closing them shuts it down
+        assertTrue(((ForkJoinPool) options.getExecutor()).isShutdown());
+
+        assertEquals(1, notebooks.size());
+        assertEquals(location.resolve("notebook-1.qvnotebook"), notebooks.get(0).getLocation());
+        assertEquals(1, errors.getErrors().size());
+        QuiverLoadError error = errors.getErrors().get(0);
+        assertEquals(location.resolve("notebook-2.qvnotebook"), error.getLocation());
+        assertEquals(MalformedMetadataException.class, error.getType());
+        assertTrue(error.getFile().endsWith("meta.json"));
+        assertTrue(error.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void given_an_error_handler_and_invalid_content_when_stream_cells_is_called_the_note_is_skipped()
+            throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Path kotlin = location.resolve("languages.qvnotebook").resolve("kotlin.qvnote");
+        Files.write(kotlin.resolve("content.json"), "{\"cells\": [".getBytes(StandardCharsets.UTF_8));
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+        QuiverLibrary library =
+                new QuiverLibrary(location, mapper, QuiverOptions.builder().errorHandler(errors).build());
+
+        try (Stream<QuiverCellEntry> cells = library.streamCells()) {
+            assertEquals(Arrays.asList("JAVA-NOTE", "PANCAKES-NOTE"), cells.map(c -> c.getNote().getId())
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+        assertEquals(Collections.singletonList(kotlin),
+                errors.getErrors().stream().map(QuiverLoadError::getLocation).collect(Collectors.toList()));
+        assertEquals(MalformedContentException.class, errors.getErrors().get(0).getType());
+    }
+
+    @Test
+    public void when_stream_notes_is_called_every_note_is_streamed_with_its_notebook() {
+        QuiverLibrary library =
+                new QuiverLibrary(Paths.get(getClass().getResource("library.qvlibrary").getFile()), mapper);
+
+        try (Stream<QuiverNoteEntry> notes = library.streamNotes()) {
+            List<QuiverNoteEntry> entries = notes.collect(Collectors.toList());
+
+            assertEquals(4, entries.size());
+            for (QuiverNoteEntry entry : entries) {
+                assertEquals("Tutorial", entry.getNotebook().getId());
+                assertEquals("D2A1CC36-CC97-4701-A895-EFC98EF47026", entry.getNote().getId());
+                assertTrue(entry.getNote().getLocation().startsWith(entry.getNotebook().getLocation()));
+            }
+        }
+    }
+
+    @Test
+    public void when_stream_cells_is_called_every_cell_is_streamed() {
+        QuiverLibrary library =
+                new QuiverLibrary(Paths.get(getClass().getResource("library.qvlibrary").getFile()), mapper);
+
+        try (Stream<QuiverCellEntry> cells = library.streamCells()) {
+            assertEquals(20, cells.count());
+        }
+    }
+
+    @Test
+    public void given_an_empty_library_when_stream_notes_is_called_no_notes_are_streamed() {
+        QuiverLibrary library =
+                new QuiverLibrary(Paths.get(getClass().getResource("empty.qvlibrary").getFile()), mapper);
+
+        try (Stream<QuiverNoteEntry> notes = library.streamNotes()) {
+            assertFalse(notes.findAny().isPresent());
+        }
+    }
+
+    @Test
+    public void when_notes_are_looked_up_by_id_or_tag_the_loaded_notes_are_returned() {
+        QuiverLibrary library = new QuiverLibrary(Paths.get(getClass().getResource("notes.qvlibrary").getFile()), mapper);
+
+        QuiverNote java = library.findNoteById("JAVA-NOTE");
+
+        assertSame(library.getNotebooks().get(0).getNotes().get(0), java);
+        assertSame(library.getNotebooks().get(1), library.findNotebookById("Recipes"));
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"),
+                library.notesByTag("cooking").stream().map(QuiverNote::getId).collect(Collectors.toList()));
+        assertEquals(2, library.notesByTag("streams").size());
+        assertNull(library.findNoteById("MISSING-NOTE"));
+        assertEquals(Collections.emptyList(), library.notesByTag("missing"));
+    }
+
+    @Test
+    public void when_libraries_are_hashed_and_compared_nothing_is_loaded() throws IOException {
+        Path location = Paths.get(getClass().getResource("library.qvlibrary").getFile());
+        QuiverLibrary library = new QuiverLibrary(location, mapper);
+        QuiverLibrary same = new QuiverLibrary(location, mapper);
+
+        assertEquals(library, same);
+        assertEquals(library.hashCode(), same.hashCode());
+        assertEquals(library.getHandle(), same.getHandle());
+        assertTrue(library.toString().contains("Notebooks"));
+        // Only the metadata of both libraries were read
+        verify(mapper, times(2)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+
+        // Comparing their content is explicit, and loads everything
+        assertTrue(library.contentEquals(same));
+        assertEquals(library.getNotebooks().get(0).getHandle(), same.getNotebooks().get(0).getHandle());
+        QuiverLibrary emptied = new QuiverLibrary(location, mapper, QuiverOptions.DEFAULT, "Notebooks", 0,
+                Collections.emptyList());
+        assertEquals(library, emptied);
+        assertFalse(library.contentEquals(emptied));
+    }
+
+    @Test
+    public void given_two_copies_of_a_library_their_content_is_equal() throws IOException {
+        QuiverLibrary library = new QuiverLibrary(
+                QuiverFixtures.copy("notes.qvlibrary", folder.newFolder("first").toPath()), new ObjectMapper());
+        QuiverLibrary copy = new QuiverLibrary(
+                QuiverFixtures.copy("notes.qvlibrary", folder.newFolder("second").toPath()), new ObjectMapper());
+
+        // The cells referring to resources resolve them to their own copy, but hold the same data
+        assertTrue(library.contentEquals(copy));
+        QuiverCell image = library.getNotebooks().get(1).getNotes().get(0).getContent().get(1);
+        assertFalse(image.toString().contains(folder.getRoot().toString()));
+    }
 }
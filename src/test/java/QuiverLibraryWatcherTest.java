@@ -0,0 +1,162 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverLibraryWatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path location;
+    private QuiverLibrary library;
+    private QuiverLibraryWatcher watcher;
+    private BlockingQueue<QuiverLibraryEvent> events;
+
+    @Before
+    public void setup() throws IOException {
+        location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        library = new QuiverLibrary(location, new ObjectMapper());
+        events = new LinkedBlockingQueue<>();
+
+        watcher = new QuiverLibraryWatcher(library, 50);
+        watcher.addListener(events::add);
+        watcher.start();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void when_content_changes_only_the_content_of_that_note_is_invalidated() throws Exception {
+        QuiverNotebook recipes = library.getNotebooks().get(1);
+        QuiverNote pancakes = recipes.getNotes().get(0);
+        List<QuiverCell> before = pancakes.getContent();
+        QuiverNotebook languages = library.getNotebooks().get(0);
+        List<QuiverCell> java = languages.getNotes().get(0).getContent();
+
+        Path content = pancakes.getLocation().resolve("content.json");
+        Files.write(content, new String(Files.readAllBytes(content), "UTF-8").replace("flour", "buckwheat")
+                .getBytes("UTF-8"));
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.CONTENT_CHANGED, pancakes.getLocation()), next());
+        assertSame(pancakes, recipes.getNotes().get(0));
+        assertNotSame(before, pancakes.getContent());
+        assertEquals("<div>Mix buckwheat, eggs and milk, then rest the batter.</div>",
+                pancakes.getContent().get(0).getData());
+        // Nothing else was reloaded
+        assertSame(java, languages.getNotes().get(0).getContent());
+    }
+
+    @Test
+    public void when_a_note_is_added_and_removed_the_loaded_notes_are_updated() throws Exception {
+        QuiverNotebook recipes = library.getNotebooks().get(1);
+        List<QuiverNote> before = recipes.getNotes();
+
+        Path added = QuiverFixtures.copy("note.qvnote", recipes.getLocation());
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTE_ADDED, added), next());
+        assertEquals(2, recipes.getNotes().size());
+        assertEquals(2, recipes.getNumberOfNotes());
+        assertEquals("1 - Getting Started", recipes.getNotes().get(0).getTitle());
+        // Previously returned lists are left untouched
+        assertEquals(1, before.size());
+
+        QuiverFixtures.delete(added);
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTE_REMOVED, added), next());
+        assertEquals(1, recipes.getNotes().size());
+        assertEquals("Pancakes", recipes.getNotes().get(0).getTitle());
+    }
+
+    @Test
+    public void when_notes_change_the_lookups_by_id_and_tag_are_updated() throws Exception {
+        assertEquals(2, library.notesByTag("streams").size());
+        QuiverNotebook languages = library.getNotebooks().get(0);
+
+        Path added = QuiverFixtures.copy("note.qvnote", languages.getLocation());
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTE_ADDED, added), next());
+        assertSame(languages.getNotes().get(2), library.findNoteById("D2A1CC36-CC97-4701-A895-EFC98EF47026"));
+
+        Path kotlin = languages.getLocation().resolve("kotlin.qvnote");
+        QuiverFixtures.delete(kotlin);
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTE_REMOVED, kotlin), next());
+        assertNull(library.findNoteById("KOTLIN-NOTE"));
+        assertEquals(1, library.notesByTag("streams").size());
+    }
+
+    @Test
+    public void when_a_note_metadata_changes_only_that_note_is_reloaded() throws Exception {
+        QuiverNotebook languages = library.getNotebooks().get(0);
+        QuiverNote java = languages.getNotes().get(0);
+        QuiverNote kotlin = languages.getNotes().get(1);
+
+        Path metadata = java.getLocation().resolve("meta.json");
+        Files.write(metadata, new String(Files.readAllBytes(metadata), "UTF-8").replace("Java Streams", "Streams")
+                .getBytes("UTF-8"));
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTE_CHANGED, java.getLocation()), next());
+        assertEquals("Streams", languages.getNotes().get(0).getTitle());
+        assertSame(kotlin, languages.getNotes().get(1));
+    }
+
+    @Test
+    public void when_a_notebook_is_removed_the_loaded_notebooks_are_updated() throws Exception {
+        QuiverNotebook recipes = library.getNotebooks().get(1);
+
+        QuiverFixtures.delete(recipes.getLocation());
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTEBOOK_REMOVED, recipes.getLocation()), next());
+        assertEquals(1, library.getNotebooks().size());
+    }
+
+    @Test
+    public void given_a_change_that_cannot_be_applied_the_error_is_reported_and_watching_goes_on() throws Exception {
+        BlockingQueue<Path> errors = new LinkedBlockingQueue<>();
+        watcher.addListener(new QuiverLibraryListener() {
+            @Override
+            public void onChange(QuiverLibraryEvent event) {
+            }
+
+            @Override
+            public void onError(Path location, RuntimeException e) {
+                errors.add(location);
+            }
+        });
+        QuiverNotebook recipes = library.getNotebooks().get(1);
+        recipes.getNotes();
+
+        // The note is moved in as a whole, so it is malformed by the time it is seen
+        Path staged = folder.newFolder("malformed.qvnote").toPath();
+        Files.write(staged.resolve("meta.json"), "{".getBytes("UTF-8"));
+        Path malformed = Files.move(staged, recipes.getLocation().resolve("malformed.qvnote"));
+
+        assertEquals(malformed, errors.poll(10, TimeUnit.SECONDS));
+
+        Path added = QuiverFixtures.copy("note.qvnote", recipes.getLocation());
+
+        assertEquals(new QuiverLibraryEvent(QuiverLibraryEvent.Type.NOTE_ADDED, added), next());
+    }
+
+    private QuiverLibraryEvent next() throws InterruptedException {
+        return events.poll(10, TimeUnit.SECONDS);
+    }
+}
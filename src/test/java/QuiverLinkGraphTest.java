@@ -0,0 +1,115 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverLinkGraphTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path location;
+    private QuiverLinkGraph graph;
+
+    @Before
+    public void setup() throws IOException {
+        location = QuiverFixtures.age(QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath()));
+        graph = QuiverLinkGraph.build(new QuiverLibrary(location, new ObjectMapper()));
+    }
+
+    @Test
+    public void when_built_links_and_backlinks_are_found() {
+        // The Java and Kotlin notes link to each other, the pancakes don't link to anything
+        assertEquals(3, graph.getNumberOfNotes());
+        assertEquals(2, graph.getNumberOfLinks());
+        assertEquals(Collections.singletonList("KOTLIN-NOTE"), graph.getLinks("JAVA-NOTE"));
+        assertEquals(Collections.singletonList("KOTLIN-NOTE"), graph.getBacklinks("JAVA-NOTE"));
+        assertEquals(Collections.singletonList("JAVA-NOTE"), graph.getNeighborhood("KOTLIN-NOTE", 2));
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), graph.getOrphans());
+        assertEquals(Collections.emptyList(), graph.getBacklinks("MISSING-NOTE"));
+    }
+
+    @Test
+    public void given_changed_and_deleted_notes_when_refreshed_only_their_links_are_updated() throws IOException {
+        Path pancakes = location.resolve("recipes.qvnotebook").resolve("pancakes.qvnote");
+        String content = "{\"title\": \"Pancakes\", \"cells\": [{\"type\": \"markdown\", \"data\": "
+                + "\"Pairs well with [Java](quiver-note-url/JAVA-NOTE) and [waffles](quiver-note-url/WAFFLES).\"}]}";
+        Files.write(pancakes.resolve("content.json"), content.getBytes(StandardCharsets.UTF_8));
+        QuiverFixtures.delete(location.resolve("languages.qvnotebook").resolve("kotlin.qvnote"));
+
+        QuiverLibraryChanges changes = graph.refresh();
+
+        assertEquals(Collections.singletonList("recipes.qvnotebook/pancakes.qvnote"), changes.getChanged());
+        assertEquals(Collections.singletonList("languages.qvnotebook/kotlin.qvnote"), changes.getDeleted());
+        assertEquals(2, graph.getNumberOfNotes());
+        assertEquals(3, graph.getNumberOfLinks());
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), graph.getBacklinks("JAVA-NOTE"));
+        // Links to notes that aren't in the library are kept
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), graph.getBacklinks("WAFFLES"));
+        assertEquals(Collections.singletonList("JAVA-NOTE"), graph.getBacklinks("KOTLIN-NOTE"));
+        assertEquals(Collections.emptyList(), graph.getLinks("KOTLIN-NOTE"));
+        assertEquals(Arrays.asList("JAVA-NOTE", "WAFFLES"), graph.getLinks("PANCAKES-NOTE"));
+        assertEquals(Arrays.asList("KOTLIN-NOTE", "PANCAKES-NOTE", "WAFFLES"), graph.getNeighborhood("JAVA-NOTE", 2));
+        assertEquals(Collections.emptyList(), graph.getOrphans());
+    }
+
+    @Test
+    public void given_an_identifier_without_notes_or_links_when_refreshed_then_it_is_dropped() throws IOException {
+        assertEquals(3, graph.getNumberOfIdentifiers());
+
+        // Nothing refers to the Kotlin note anymore once it is deleted and the Java note stops linking to it
+        Path java = location.resolve("languages.qvnotebook").resolve("java.qvnote");
+        String content = "{\"title\": \"Java Streams\", \"cells\": [{\"type\": \"markdown\", \"data\": "
+                + "\"Compare with [Scala views](quiver-note-url/SCALA-NOTE).\"}]}";
+        Files.write(java.resolve("content.json"), content.getBytes(StandardCharsets.UTF_8));
+        QuiverFixtures.delete(location.resolve("languages.qvnotebook").resolve("kotlin.qvnote"));
+
+        graph.refresh();
+
+        assertEquals(3, graph.getNumberOfIdentifiers());
+        assertEquals(Collections.emptyList(), graph.getLinks("KOTLIN-NOTE"));
+        assertEquals(Collections.singletonList("SCALA-NOTE"), graph.getLinks("JAVA-NOTE"));
+        assertEquals(Collections.singletonList("JAVA-NOTE"), graph.getBacklinks("SCALA-NOTE"));
+        assertEquals(Collections.singletonList("SCALA-NOTE"), graph.getNeighborhood("JAVA-NOTE", 3));
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), graph.getOrphans());
+
+        QuiverFixtures.delete(java);
+        graph.refresh();
+
+        assertEquals(1, graph.getNumberOfIdentifiers());
+        assertEquals(0, graph.getNumberOfLinks());
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), graph.getOrphans());
+    }
+
+    @Test
+    public void given_an_error_handler_and_a_malformed_note_when_built_then_it_is_left_out_until_fixed()
+            throws IOException {
+        Path kotlin = location.resolve("languages.qvnotebook").resolve("kotlin.qvnote").resolve("content.json");
+        byte[] original = Files.readAllBytes(kotlin);
+        Files.write(kotlin, "{\"cells\": [".getBytes(StandardCharsets.UTF_8));
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+
+        QuiverLinkGraph lenient = QuiverLinkGraph.build(
+                new QuiverLibrary(location, new ObjectMapper(), QuiverOptions.builder().errorHandler(errors).build()));
+
+        assertEquals(2, lenient.getNumberOfNotes());
+        assertEquals(Collections.emptyList(), lenient.getLinks("KOTLIN-NOTE"));
+        assertEquals(1, errors.getErrors().size());
+        assertEquals(kotlin.getParent(), errors.getErrors().get(0).getLocation());
+
+        Files.write(kotlin, original);
+        lenient.refresh();
+
+        assertEquals(3, lenient.getNumberOfNotes());
+        assertEquals(Collections.singletonList("JAVA-NOTE"), lenient.getLinks("KOTLIN-NOTE"));
+    }
+}
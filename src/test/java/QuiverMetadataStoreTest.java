@@ -0,0 +1,98 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverMetadataStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ObjectMapper mapper;
+    private QuiverMetadataStore store;
+
+    @Before
+    public void setup() {
+        mapper = spy(new ObjectMapper());
+        store = QuiverMetadataStore.build(
+                new QuiverLibrary(Paths.get(getClass().getResource("notes.qvlibrary").getFile()), mapper));
+    }
+
+    @Test
+    public void given_a_library_when_building_its_store_then_notes_are_held_in_directory_order() {
+        assertEquals(3, store.size());
+        assertEquals(2, store.getNumberOfNotebooks());
+        assertEquals("JAVA-NOTE", store.getId(0));
+        assertEquals("Kotlin Sequences", store.getTitle(1));
+        assertEquals(1500000000L, store.getCreatedAt(0));
+        assertEquals(Arrays.asList("kotlin", "streams"), store.getTags(1));
+        assertEquals("Recipes", store.getNotebookName(store.getNotebook(2)));
+    }
+
+    @Test
+    public void given_a_store_when_finding_notes_by_tag_or_time_then_their_ordinals_are_returned() {
+        assertArrayEquals(new int[]{0, 1}, store.notesByTag("streams"));
+        assertArrayEquals(new int[0], store.notesByTag("unknown"));
+        assertArrayEquals(new int[]{2, 0, 1}, store.updatedBetween(null, null));
+        assertArrayEquals(new int[]{1}, store.updatedBetween(Instant.ofEpochSecond(1555000000), null));
+        assertArrayEquals(new int[]{2, 0}, store.createdBetween(null, Instant.ofEpochSecond(1500000000, 1)));
+    }
+
+    @Test
+    public void given_a_store_when_getting_a_note_then_no_file_is_read() {
+        reset(mapper);
+        QuiverNote note = store.getNote(1);
+
+        verifyZeroInteractions(mapper);
+        assertEquals("KOTLIN-NOTE", note.getId());
+        assertEquals("Kotlin Sequences", note.getTitle());
+        assertEquals(Arrays.asList("kotlin", "streams"), note.getTags());
+        assertEquals("1560000000", note.getUpdatedAt());
+    }
+
+    @Test
+    public void given_an_error_handler_and_an_invalid_notebook_when_building_the_store_then_it_is_left_out() {
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+        Path location = Paths.get(getClass().getResource("invalid-notebook.qvlibrary").getFile());
+
+        QuiverMetadataStore lenient = QuiverMetadataStore.build(
+                new QuiverLibrary(location, mapper, QuiverOptions.builder().errorHandler(errors).build()));
+
+        assertEquals(1, lenient.getNumberOfNotebooks());
+        assertEquals(1, errors.getErrors().size());
+        assertEquals(location.resolve("notebook-2.qvnotebook"), errors.getErrors().get(0).getLocation());
+    }
+
+    @Test
+    public void given_fractional_timestamps_and_repeated_tags_when_getting_a_note_then_its_metadata_match_the_disk()
+            throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Path meta = location.resolve("recipes.qvnotebook").resolve("pancakes.qvnote").resolve("meta.json");
+        Files.write(meta, ("{\"uuid\": \"PANCAKES-NOTE\", \"title\": \"Pancakes\", "
+                + "\"tags\": [\"cooking\", \"cooking\"], \"created_at\": 1400000000.5, \"updated_at\": \"soon\"}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        QuiverMetadataStore modified = QuiverMetadataStore.build(new QuiverLibrary(location, new ObjectMapper()));
+        QuiverNote note = modified.getNote(2);
+
+        assertEquals(1400000000L, modified.getCreatedAt(2));
+        assertEquals("1400000000.5", note.getCreatedAt());
+        assertEquals("soon", note.getUpdatedAt());
+        assertEquals("1500000000", modified.getNote(0).getCreatedAt());
+        assertArrayEquals(new int[]{2}, modified.notesByTag("cooking"));
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedContentException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuiverMetricsTest {
+    private QuiverMetrics metrics;
+    private QuiverOptions options;
+
+    @Before
+    public void setup() {
+        metrics = new QuiverMetrics();
+        options = QuiverOptions.builder().instrumentation(metrics).build();
+    }
+
+    @Test
+    public void given_steps_when_recorded_counters_and_latencies_are_kept() {
+        Path location = Paths.get("meta.json");
+        metrics.record(QuiverOperation.READ_METADATA, location, 100, 1_000, null);
+        metrics.record(QuiverOperation.READ_METADATA, location, 50, 3_000, null);
+        metrics.record(QuiverOperation.READ_METADATA, location, 0, 1_000_000, new MalformedContentException("", null));
+
+        QuiverOperationStats stats = metrics.getStats(QuiverOperation.READ_METADATA);
+
+        assertEquals(3, stats.getCount());
+        assertEquals(1, stats.getFailures());
+        assertEquals(150, stats.getBytes());
+        assertEquals(1_004_000, stats.getTotalNanos());
+        // 3000 falls in the bucket [2048, 4095] and 1000000 in [524288, 1048575]
+        assertEquals(4_095, stats.getLatencyPercentileNanos(50));
+        assertEquals(1_048_575, stats.getLatencyPercentileNanos(99));
+        assertEquals(0, metrics.getStats(QuiverOperation.READ_CONTENT).getCount());
+    }
+
+    @Test
+    public void given_instrumentation_when_a_library_is_loaded_every_step_is_reported() {
+        Path location = Paths.get(getClass().getResource("library.qvlibrary").getFile());
+        QuiverLibrary library = new QuiverLibrary(location, new ObjectMapper(), options);
+
+        for (QuiverNotebook notebook : library.getNotebooks()) {
+            for (QuiverNote note : notebook.getNotes()) {
+                note.getContent();
+            }
+        }
+
+        // The library, 2 notebooks and 4 notes
+        assertEquals(7, metrics.getStats(QuiverOperation.READ_METADATA).getCount());
+        assertEquals(4, metrics.getStats(QuiverOperation.READ_CONTENT).getCount());
+        assertEquals(4, metrics.getStats(QuiverOperation.SANITIZE_RESOURCES).getCount());
+        // The library once, and each notebook to count and then to load its notes
+        assertEquals(5, metrics.getStats(QuiverOperation.LIST_DIRECTORY).getCount());
+        assertTrue(metrics.getStats(QuiverOperation.READ_CONTENT).getBytes() > 0);
+        assertTrue(metrics.getStats(QuiverOperation.READ_CONTENT).getTotalNanos() > 0);
+    }
+
+    @Test
+    public void given_instrumentation_when_a_step_fails_the_failure_is_reported() {
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("invalid-content.qvnote").getFile()),
+                new ObjectMapper(), options);
+
+        try {
+            note.getContent();
+            fail();
+        } catch (MalformedContentException e) {
+            assertEquals(1, metrics.getStats(QuiverOperation.READ_CONTENT).getCount());
+        }
+
+        assertEquals(1, metrics.getStats(QuiverOperation.READ_CONTENT).getFailures());
+    }
+}
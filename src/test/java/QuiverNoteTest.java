@@ -1,15 +1,25 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import exceptions.MalformedContentException;
@@ -56,7 +66,7 @@ public class QuiverNoteTest {
         assertEquals("Welcome to Quiver!", content.get(0).getData());
         // Make sure the content was loaded only once
         // The `mapper` should only be called two times: for the metadata, and for the first call to `getContent`
-        verify(mapper, times(2)).readValue(any(File.class), (Class<?>) any(Class.class));
+        verify(mapper, times(2)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
     }
 
     @Test(expected = MalformedContentException.class)
@@ -65,11 +75,134 @@ public class QuiverNoteTest {
         note.getContent();
     }
 
+    @Test
+    public void when_load_content_async_is_called_content_is_loaded_on_the_executor() throws Exception {
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
+        List<Runnable> tasks = new ArrayList<>();
+
+        CompletableFuture<List<QuiverCell>> content = note.loadContentAsync(tasks::add);
+
+        assertFalse(content.isDone());
+        tasks.forEach(Runnable::run);
+        assertSame(note.getContent(), content.get());
+    }
+
+    @Test
+    public void given_invalid_content_when_load_content_async_is_called_completes_with_MalformedContentException() {
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("invalid-content.qvnote").getFile()), mapper);
+
+        CompletableFuture<List<QuiverCell>> content = note.loadContentAsync(Runnable::run);
+
+        assertTrue(content.isCompletedExceptionally());
+        try {
+            content.get();
+            fail();
+        } catch (InterruptedException | ExecutionException e) {
+            assertTrue(e.getCause() instanceof MalformedContentException);
+        }
+    }
+
+    @Test
+    public void given_a_cancelled_load_when_the_executor_runs_it_content_is_not_loaded() throws IOException {
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
+        List<Runnable> tasks = new ArrayList<>();
+
+        CompletableFuture<List<QuiverCell>> content = note.loadContentAsync(tasks::add);
+        content.cancel(false);
+        tasks.forEach(Runnable::run);
+
+        assertTrue(content.isCancelled());
+        // The mapper is only called for the metadata
+        verify(mapper, times(1)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
     @Test
     public void given_cells_with_images_when_get_content_is_called_resources_are_sanitized() {
         QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
 
         // The last cell has an image the URI of the image should be sanitized to the local resources folder
         assertFalse(note.getContent().get(4).getData().contains("quiver-image-url"));
+        assertEquals(1, note.getContent().get(4).getResourceLinks().size());
+    }
+
+    @Test
+    public void given_lazy_content_when_get_content_is_called_data_is_only_decoded_when_read() {
+        QuiverOptions options = QuiverOptions.builder().lazyContent(true).build();
+        QuiverNote lazy = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper, options);
+        QuiverNote eager = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
+        List<QuiverCell> content = lazy.getContent();
+
+        // The type of the cells is read right away, their data is left in the file
+        assertEquals(5, content.size());
+        assertEquals("text", content.get(0).getType());
+        assertFalse(content.get(0).isDecoded());
+        assertEquals("Welcome", content.get(0).getRawDataPrefix(7));
+        assertEquals("Welcome to Quiver!", content.get(0).getRawDataSequence().toString());
+        assertFalse(content.get(0).isDecoded());
+
+        // Escape sequences, multi-byte characters and resource links are decoded as they would be eagerly
+        for (int i = 0; i < content.size(); i++) {
+            assertEquals(eager.getContent().get(i).getData(), content.get(i).getData());
+            assertEquals(eager.getContent().get(i).getResourceLinks(), content.get(i).getResourceLinks());
+            assertTrue(content.get(i).isDecoded());
+        }
+        assertEquals(eager.getContent(), content);
+    }
+
+    @Test
+    public void given_some_fields_when_metadata_are_read_only_those_fields_are_read() throws IOException {
+        QuiverNote.Metadata metadata =
+                QuiverNote.readMetadata(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper,
+                        EnumSet.of(QuiverNote.MetadataField.TITLE, QuiverNote.MetadataField.TAGS), null);
+
+        assertEquals("1 - Getting Started", metadata.getTitle());
+        assertEquals(Collections.singletonList("tutorial"), metadata.getTags());
+        assertNull(metadata.getUuid());
+        assertNull(metadata.getCreatedAt());
+        // The metadata are read straight from the parser, without binding them through the `mapper`
+        verify(mapper, never()).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_a_content_cache_when_get_content_is_called_content_is_kept_by_the_cache() throws IOException {
+        QuiverContentCache cache = QuiverBoundedContentCache.builder().maximumSize(1L).build();
+        QuiverOptions options = QuiverOptions.builder().contentCache(cache).build();
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper, options);
+        QuiverNote same = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper, options);
+
+        assertEquals(5, note.getContent().size());
+        assertSame(note.getContent(), same.getContent());
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(2, cache.getStats().getHits());
+        // The mapper is called for the metadata of both notes and a single time for the content
+        verify(mapper, times(3)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_the_same_note_read_twice_repeated_strings_are_shared() {
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
+        QuiverNote same = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
+
+        assertSame(note.getTags().get(0), same.getTags().get(0));
+        assertSame(QuiverCellType.TEXT.getName(), note.getContent().get(0).getType());
+        assertSame(note.getContent().get(1).getType(), same.getContent().get(1).getType());
+    }
+
+    @Test
+    public void given_concurrent_callers_when_get_content_is_called_content_is_read_once() throws Exception {
+        QuiverNote note = new QuiverNote(Paths.get(getClass().getResource("note.qvnote").getFile()), mapper);
+        // Slow down reading, so every caller asks while the content is being read
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return invocation.callRealMethod();
+        }).when(mapper).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+
+        List<List<QuiverCell>> contents = QuiverThreads.runConcurrently(16, note::getContent);
+
+        for (List<QuiverCell> content : contents) {
+            assertSame(contents.get(0), content);
+        }
+        // The mapper is called once for the metadata and once for the content
+        verify(mapper, times(2)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
     }
 }
@@ -4,11 +4,12 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import exceptions.MalformedMetadataException;
@@ -59,7 +60,7 @@ public class QuiverNotebookTest {
         // 2. For the first call to `getNotes`
         //   2.1 loading the metadata of the first note
         //   2.2 loading the metadata of the second note
-        verify(mapper, times(3)).readValue(any(File.class), (Class<?>) any(Class.class));
+        verify(mapper, times(3)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
     }
 
     @Test
@@ -70,4 +71,17 @@ public class QuiverNotebookTest {
         assertEquals(0, notebook.getNumberOfNotes());
         assertEquals(Collections.emptyList(), notebook.getNotes());
     }
+
+    @Test
+    public void when_stream_notes_is_called_notes_are_streamed_without_being_kept() throws IOException {
+        QuiverNotebook notebook =
+                new QuiverNotebook(Paths.get(getClass().getResource("notebook.qvnotebook").getFile()), mapper);
+
+        try (Stream<QuiverNote> notes = notebook.streamNotes()) {
+            assertEquals(2, notes.count());
+        }
+        // Streaming doesn't fill the lazily loaded notes, so they are loaded in full on the first call to `getNotes`
+        assertEquals(2, notebook.getNotes().size());
+        verify(mapper, times(5)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
 }
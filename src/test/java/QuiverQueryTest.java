@@ -0,0 +1,137 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverQueryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private QuiverLibrary library;
+
+    @Before
+    public void setup() {
+        library = new QuiverLibrary(Paths.get(getClass().getResource("notes.qvlibrary").getFile()), new ObjectMapper());
+    }
+
+    @Test
+    public void given_no_filter_every_note_matches() {
+        assertEquals(Arrays.asList("JAVA-NOTE", "KOTLIN-NOTE", "PANCAKES-NOTE"), ids(library.query().list()));
+    }
+
+    @Test
+    public void given_a_notebook_filter_only_its_notes_match() {
+        assertEquals(Arrays.asList("JAVA-NOTE", "KOTLIN-NOTE"), ids(library.query().inNotebook("Languages").list()));
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), ids(library.query().inNotebookNamed("Recipes").list()));
+    }
+
+    @Test
+    public void given_metadata_filters_only_notes_matching_all_of_them_match() {
+        List<QuiverNote> notes = library.query()
+                .taggedWith("streams")
+                .updatedBetween(Instant.ofEpochSecond(1555000000), null)
+                .list();
+
+        assertEquals(Collections.singletonList("KOTLIN-NOTE"), ids(notes));
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"),
+                ids(library.query().createdBetween(null, Instant.ofEpochSecond(1500000000)).list()));
+    }
+
+    @Test
+    public void given_cell_filters_only_notes_with_a_cell_matching_all_of_them_match() {
+        assertEquals(Collections.singletonList("JAVA-NOTE"),
+                ids(library.query().withCellType("code").withLanguage("java").list()));
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"),
+                ids(library.query().withDiagramType("sequence").list()));
+        assertEquals(Collections.emptyList(), ids(library.query().withCellType("text").withLanguage("java").list()));
+    }
+
+    @Test
+    public void given_notes_excluded_by_metadata_their_content_is_never_read() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Files.write(location.resolve("recipes.qvnotebook/pancakes.qvnote/content.json"), "{".getBytes());
+        QuiverLibrary copy = new QuiverLibrary(location, new ObjectMapper());
+
+        List<QuiverNote> notes = copy.query().taggedWith("streams").withCellType("code").list();
+
+        assertEquals(Arrays.asList("JAVA-NOTE", "KOTLIN-NOTE"), ids(notes));
+    }
+
+    @Test
+    public void given_notebooks_excluded_by_their_metadata_their_notes_are_never_read() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Files.write(location.resolve("recipes.qvnotebook/pancakes.qvnote/meta.json"), "{".getBytes());
+        QuiverLibrary copy = new QuiverLibrary(location, new ObjectMapper());
+
+        List<QuiverNote> notes = copy.query().inNotebook("Languages").taggedWith("java").list();
+
+        assertEquals(Collections.singletonList("JAVA-NOTE"), ids(notes));
+    }
+
+    @Test
+    public void given_an_error_handler_and_a_malformed_note_when_queried_it_is_skipped() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Path kotlin = location.resolve("languages.qvnotebook/kotlin.qvnote");
+        Files.write(kotlin.resolve("meta.json"), "{".getBytes());
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+        QuiverLibrary copy =
+                new QuiverLibrary(location, new ObjectMapper(), QuiverOptions.builder().errorHandler(errors).build());
+
+        List<QuiverNote> notes = copy.query().taggedWith("streams").list();
+
+        assertEquals(Collections.singletonList("JAVA-NOTE"), ids(notes));
+        assertEquals(Collections.singletonList(kotlin),
+                errors.getErrors().stream().map(QuiverLoadError::getLocation).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void given_matching_notebooks_when_queried_their_notes_are_listed_once() {
+        QuiverMetrics metrics = new QuiverMetrics();
+        QuiverLibrary measured = new QuiverLibrary(library.getLocation(), new ObjectMapper(),
+                QuiverOptions.builder().instrumentation(metrics).build());
+
+        List<QuiverNoteEntry> entries;
+        try (Stream<QuiverNoteEntry> stream = measured.query().inNotebook("Languages").stream()) {
+            entries = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(0, metrics.getStats(QuiverOperation.LIST_DIRECTORY).getCount());
+        // Counted only when asked for
+        assertEquals(2, entries.get(0).getNotebook().getNumberOfNotes());
+        assertEquals(2, entries.get(1).getNotebook().getNumberOfNotes());
+        assertEquals(1, metrics.getStats(QuiverOperation.LIST_DIRECTORY).getCount());
+    }
+
+    @Test
+    public void given_a_note_created_beyond_the_range_of_an_instant_when_filtered_by_time_it_does_not_match()
+            throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Path java = location.resolve("languages.qvnotebook/java.qvnote/meta.json");
+        Files.write(java, new String(Files.readAllBytes(java), "UTF-8")
+                .replaceFirst("\"created_at\"\\s*:\\s*\\d+", "\"created_at\": 99999999999999999")
+                .getBytes("UTF-8"));
+        QuiverLibrary copy = new QuiverLibrary(location, new ObjectMapper());
+
+        List<QuiverNote> notes = copy.query().createdBetween(Instant.ofEpochSecond(0), null).list();
+
+        assertEquals(Arrays.asList("KOTLIN-NOTE", "PANCAKES-NOTE"), ids(notes));
+    }
+
+    private static List<String> ids(List<QuiverNote> notes) {
+        return notes.stream().map(QuiverNote::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedResourceException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverResourceIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path pancakes;
+    private Path kotlin;
+    private QuiverLibrary library;
+    private QuiverResourceIndex index;
+
+    @Before
+    public void setup() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        pancakes = location.resolve("recipes.qvnotebook").resolve("pancakes.qvnote");
+        kotlin = location.resolve("languages.qvnotebook").resolve("kotlin.qvnote");
+
+        // The same image is copied into another note, next to an image of its own
+        Path resources = Files.createDirectory(kotlin.resolve("resources"));
+        Files.copy(pancakes.resolve("resources").resolve("pancakes.png"), resources.resolve("copy.png"));
+        Files.write(resources.resolve("logo.png"), "kotlin".getBytes(StandardCharsets.UTF_8));
+
+        library = new QuiverLibrary(location, new ObjectMapper());
+        index = QuiverResourceIndex.build(library);
+    }
+
+    @Test
+    public void given_a_library_when_indexing_its_resources_then_identical_ones_share_a_blob() throws IOException {
+        long size = Files.size(pancakes.resolve("resources").resolve("pancakes.png"));
+
+        assertEquals(3, index.getNumberOfResources());
+        assertEquals(2, index.getNumberOfBlobs());
+        assertEquals(2 * size + 6, index.getTotalBytes());
+        assertEquals(size + 6, index.getUniqueBytes());
+
+        QuiverNote kotlinNote = new QuiverNote(kotlin, new ObjectMapper());
+        assertEquals(Arrays.asList("copy.png", "logo.png"),
+                index.getResources(kotlinNote).stream().map(QuiverResource::getName).collect(Collectors.toList()));
+        assertNull(index.find(kotlinNote, "pancakes.png"));
+
+        QuiverResource copy = index.find(kotlinNote, "copy.png");
+        QuiverResource original = index.find(new QuiverNote(pancakes, new ObjectMapper()), "pancakes.png");
+        assertEquals(original.getHash(), copy.getHash());
+        // Blobs are picked in location order, so the copy in "languages" is served for both
+        assertSame(copy, index.findBlob(original.getHash()));
+    }
+
+    @Test
+    public void given_a_resource_when_served_then_its_content_is_transferred_or_mapped() throws IOException {
+        QuiverResource logo = index.find(new QuiverNote(kotlin, new ObjectMapper()), "logo.png");
+        byte[] expected = "kotlin".getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(6, index.transferTo(logo, Channels.newChannel(output)));
+        assertArrayEquals(expected, output.toByteArray());
+
+        output.reset();
+        assertEquals(3, index.transferTo(logo, 2, 3, Channels.newChannel(output)));
+        assertEquals("tli", new String(output.toByteArray(), StandardCharsets.UTF_8));
+
+        ByteBuffer mapped = index.map(logo);
+        byte[] bytes = new byte[mapped.remaining()];
+        mapped.get(bytes);
+        assertArrayEquals(expected, bytes);
+    }
+
+    @Test(timeout = 10_000)
+    public void given_a_target_that_takes_nothing_when_transferring_then_it_stops_without_writing() {
+        QuiverResource logo = index.find(new QuiverNote(kotlin, new ObjectMapper()), "logo.png");
+        // Like a non-blocking socket whose buffer is full
+        WritableByteChannel full = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                return 0;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertEquals(0, index.transferTo(logo, full));
+    }
+
+    @Test(expected = MalformedResourceException.class)
+    public void given_a_deleted_resource_when_mapped_throws_MalformedResourceException() throws IOException {
+        QuiverResource logo = index.find(new QuiverNote(kotlin, new ObjectMapper()), "logo.png");
+        Files.delete(kotlin.resolve("resources").resolve("logo.png"));
+
+        index.map(logo);
+    }
+}
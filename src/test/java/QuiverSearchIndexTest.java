@@ -0,0 +1,189 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedIndexException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverSearchIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private QuiverLibrary library;
+
+    @Before
+    public void setup() {
+        library = new QuiverLibrary(Paths.get(getClass().getResource("notes.qvlibrary").getFile()), new ObjectMapper());
+    }
+
+    @Test
+    public void when_built_every_note_is_indexed() throws IOException {
+        QuiverSearchIndex index = QuiverSearchIndex.build(library, folder.getRoot().toPath().resolve("index"));
+
+        assertEquals(3, index.getNumberOfNotes());
+    }
+
+    @Test
+    public void given_a_query_notes_are_ranked_by_relevance() throws IOException {
+        QuiverSearchIndex index = QuiverSearchIndex.build(library, folder.getRoot().toPath().resolve("index"));
+        List<QuiverSearchHit> hits = index.search("Kotlin sequences", 10);
+
+        // The Kotlin note has both terms in its title, the Java note mentions them in a single cell
+        assertEquals(Arrays.asList("KOTLIN-NOTE", "JAVA-NOTE"), ids(hits));
+        assertEquals(Collections.singletonList(2), hits.get(1).getCells());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    public void given_a_query_matching_a_tag_the_tagged_notes_are_found() throws IOException {
+        QuiverSearchIndex index = QuiverSearchIndex.build(library, folder.getRoot().toPath().resolve("index"));
+        List<QuiverSearchHit> hits = index.search("cooking", 10);
+
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), ids(hits));
+        assertEquals(Collections.emptyList(), hits.get(0).getCells());
+    }
+
+    @Test
+    public void given_a_query_matching_html_markup_no_notes_are_found() throws IOException {
+        QuiverSearchIndex index = QuiverSearchIndex.build(library, folder.getRoot().toPath().resolve("index"));
+
+        assertEquals(Collections.emptyList(), index.search("div", 10));
+    }
+
+    @Test
+    public void given_a_limit_at_most_that_many_hits_are_returned() throws IOException {
+        QuiverSearchIndex index = QuiverSearchIndex.build(library, folder.getRoot().toPath().resolve("index"));
+
+        assertEquals(1, index.search("lazy streams", 1).size());
+    }
+
+    @Test
+    public void when_a_hit_note_is_requested_the_note_is_lazily_loaded() throws IOException {
+        QuiverSearchIndex index = QuiverSearchIndex.build(library, folder.getRoot().toPath().resolve("index"));
+        QuiverSearchHit hit = index.search("pancakes", 1).get(0);
+
+        assertEquals("Pancakes", hit.getNote().getTitle());
+        assertEquals(3, hit.getNote().getContent().size());
+    }
+
+    @Test
+    public void when_saved_and_opened_the_same_hits_are_returned() throws IOException {
+        Path location = folder.getRoot().toPath().resolve("index");
+        QuiverSearchIndex built = QuiverSearchIndex.build(library, location).save();
+        QuiverSearchIndex opened = QuiverSearchIndex.open(library, location);
+
+        assertEquals(built.getNumberOfTerms(), opened.getNumberOfTerms());
+        assertEquals(built.search("lazy streams java", 10), opened.search("lazy streams java", 10));
+    }
+
+    @Test
+    public void given_a_term_longer_than_64KB_when_saved_and_opened_it_is_kept() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        char[] letters = new char[70_000];
+        Arrays.fill(letters, 'a');
+        String term = new String(letters);
+        Files.write(location.resolve("recipes.qvnotebook/pancakes.qvnote/content.json"),
+                ("{\"cells\": [{\"type\": \"text\", \"data\": \"" + term + "\"}]}").getBytes("UTF-8"));
+        QuiverLibrary copy = new QuiverLibrary(location, new ObjectMapper());
+        Path index = folder.getRoot().toPath().resolve("index");
+
+        QuiverSearchIndex.build(copy, index).save();
+        QuiverSearchIndex opened = QuiverSearchIndex.open(copy, index);
+
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), ids(opened.search(term, 10)));
+    }
+
+    @Test(expected = MalformedIndexException.class)
+    public void given_an_invalid_index_when_opened_throws_MalformedIndexException() throws IOException {
+        Path location = folder.newFile("index").toPath();
+        Files.write(location, "not an index".getBytes());
+
+        QuiverSearchIndex.open(library, location);
+    }
+
+    @Test
+    public void when_library_is_searched_the_index_is_persisted_next_to_the_library() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        QuiverLibrary copy = new QuiverLibrary(location, new ObjectMapper());
+
+        assertEquals(Collections.singletonList("JAVA-NOTE"), ids(copy.search("terminal", 10)));
+        assertTrue(Files.exists(folder.getRoot().toPath().resolve("notes.qvlibrary.searchindex")));
+    }
+
+    @Test
+    public void when_refreshed_only_the_changed_notes_are_read() throws IOException {
+        Path location = QuiverFixtures.age(QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath()));
+        QuiverLibrary copy = new QuiverLibrary(location, new ObjectMapper());
+        QuiverSearchIndex index = QuiverSearchIndex.build(copy, folder.getRoot().toPath().resolve("index"));
+
+        // Change a note, delete another one, and add a new one
+        Path pancakes = location.resolve("recipes.qvnotebook/pancakes.qvnote/content.json");
+        Files.write(pancakes, new String(Files.readAllBytes(pancakes), "UTF-8").replace("flour", "buckwheat")
+                .getBytes("UTF-8"));
+        Files.setLastModifiedTime(pancakes, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        QuiverFixtures.delete(location.resolve("languages.qvnotebook/kotlin.qvnote"));
+        QuiverFixtures.copy("note.qvnote", location.resolve("recipes.qvnotebook"));
+
+        QuiverLibraryChanges changes = index.refresh();
+
+        assertEquals(Collections.singletonList("recipes.qvnotebook/note.qvnote"), changes.getAdded());
+        assertEquals(Collections.singletonList("recipes.qvnotebook/pancakes.qvnote"), changes.getChanged());
+        assertEquals(Collections.singletonList("languages.qvnotebook/kotlin.qvnote"), changes.getDeleted());
+        assertEquals(3, index.getNumberOfNotes());
+        assertEquals(Collections.singletonList("PANCAKES-NOTE"), ids(index.search("buckwheat", 10)));
+        assertEquals(Collections.emptyList(), index.search("flour", 10));
+        assertEquals(Collections.singletonList("JAVA-NOTE"), ids(index.search("kotlin", 10)));
+        assertEquals(Collections.singletonList("D2A1CC36-CC97-4701-A895-EFC98EF47026"), ids(index.search("getting started", 10)));
+    }
+
+    @Test
+    public void given_an_unchanged_library_when_refreshed_nothing_changes() throws IOException {
+        // The files of the library must be old enough not to be taken as racy
+        Path copied = QuiverFixtures.age(QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath()));
+        QuiverLibrary copy = new QuiverLibrary(copied, new ObjectMapper());
+        Path location = folder.getRoot().toPath().resolve("index");
+        QuiverSearchIndex.build(copy, location).save();
+        QuiverSearchIndex index = QuiverSearchIndex.open(copy, location);
+
+        assertTrue(index.refresh().isEmpty());
+        assertEquals(3, index.getNumberOfNotes());
+    }
+
+    @Test
+    public void given_an_error_handler_and_invalid_content_when_built_the_note_is_left_out() throws IOException {
+        Path location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        Path kotlin = location.resolve("languages.qvnotebook/kotlin.qvnote");
+        byte[] content = Files.readAllBytes(kotlin.resolve("content.json"));
+        Files.write(kotlin.resolve("content.json"), "{\"cells\": [".getBytes("UTF-8"));
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+        QuiverLibrary copy =
+                new QuiverLibrary(location, new ObjectMapper(), QuiverOptions.builder().errorHandler(errors).build());
+
+        QuiverSearchIndex index = QuiverSearchIndex.build(copy, folder.getRoot().toPath().resolve("index"));
+
+        assertEquals(2, index.getNumberOfNotes());
+        assertEquals(Collections.singletonList(kotlin),
+                errors.getErrors().stream().map(QuiverLoadError::getLocation).collect(Collectors.toList()));
+        // The note is read again once it is fixed
+        Files.write(kotlin.resolve("content.json"), content);
+        assertEquals(Collections.singletonList("languages.qvnotebook/kotlin.qvnote"), index.refresh().getAdded());
+        assertEquals(3, index.getNumberOfNotes());
+    }
+
+    private static List<String> ids(List<QuiverSearchHit> hits) {
+        return hits.stream().map(QuiverSearchHit::getNoteId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,174 @@
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedSnapshotException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path location;
+    private ObjectMapper mapper;
+
+    @Before
+    public void setup() throws IOException {
+        // Files modified right before the snapshot are always checked again, so make them older
+        location = QuiverFixtures.age(QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath()));
+        mapper = spy(new ObjectMapper());
+    }
+
+    @Test
+    public void given_an_unchanged_library_when_opened_from_its_snapshot_no_json_file_is_read() throws IOException {
+        QuiverLibrary expected = new QuiverLibrary(location, new ObjectMapper());
+        QuiverSnapshot.write(expected, true);
+
+        QuiverLibrary library = QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+
+        assertEquals(expected.getId(), library.getId());
+        assertEquals(expected.getNumberOfNotebooks(), library.getNumberOfNotebooks());
+        assertEquals(Arrays.asList("Programming Languages", "Recipes"),
+                library.getNotebooks().stream().map(QuiverNotebook::getName).collect(Collectors.toList()));
+        QuiverNote pancakes = library.getNotebooks().get(1).getNotes().get(0);
+        QuiverNote expectedPancakes = expected.getNotebooks().get(1).getNotes().get(0);
+        assertEquals(expectedPancakes.getTags(), pancakes.getTags());
+        assertEquals(expectedPancakes.getUpdatedAt(), pancakes.getUpdatedAt());
+        assertEquals(expectedPancakes.getContent().get(2).getData(), pancakes.getContent().get(2).getData());
+        verify(mapper, never()).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_a_snapshot_without_content_when_content_is_requested_content_is_read_from_json()
+            throws IOException {
+        QuiverSnapshot.write(new QuiverLibrary(location, new ObjectMapper()), false);
+
+        QuiverLibrary library = QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+
+        assertEquals(3, library.getNotebooks().get(1).getNotes().get(0).getContent().size());
+        verify(mapper, times(1)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_a_library_changed_after_its_snapshot_when_opened_changes_are_read_from_json()
+            throws IOException {
+        QuiverSnapshot.write(new QuiverLibrary(location, new ObjectMapper()), true);
+
+        // Retitle a note, delete another one, and add a new one
+        Path java = location.resolve("languages.qvnotebook/java.qvnote/meta.json");
+        Files.write(java, new String(Files.readAllBytes(java), "UTF-8").replace("Java Streams", "Java Collectors")
+                .getBytes("UTF-8"));
+        Files.setLastModifiedTime(java, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        QuiverFixtures.delete(location.resolve("languages.qvnotebook/kotlin.qvnote"));
+        QuiverFixtures.copy("note.qvnote", location.resolve("recipes.qvnotebook"));
+
+        QuiverLibrary library = QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+
+        assertEquals(Arrays.asList("Java Collectors"), titles(library.getNotebooks().get(0)));
+        assertEquals(2, library.getNotebooks().get(1).getNumberOfNotes());
+        assertEquals("Pancakes", library.getNotebooks().get(1).getNotes().get(1).getTitle());
+        // Only the metadata of the two notes that changed are read
+        verify(mapper, times(2)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_unchanged_notebooks_when_opened_their_notes_are_only_checked_when_their_content_is_read()
+            throws IOException {
+        Path languages = location.resolve("languages.qvnotebook");
+        Path recipes = location.resolve("recipes.qvnotebook");
+        QuiverSnapshot.write(new QuiverLibrary(location, new ObjectMapper()), true);
+
+        // Change the content of a note in place, and add a note to the other notebook
+        Path java = languages.resolve("java.qvnote/content.json");
+        Files.write(java, new String(Files.readAllBytes(java), "UTF-8").replace("Streams", "Collectors")
+                .getBytes("UTF-8"));
+        QuiverFixtures.copy("note.qvnote", recipes);
+
+        QuiverLibrary library = QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+
+        assertEquals(Arrays.asList("Java Streams", "Kotlin Sequences"), titles(library.getNotebooks().get(0)));
+        assertEquals(2, library.getNotebooks().get(1).getNumberOfNotes());
+        // Only the metadata of the new note were read
+        verify(mapper, times(1)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+
+        // The changed content is read from json, the unchanged one from the snapshot
+        QuiverNote changed = library.getNotebooks().get(0).getNotes().get(0);
+        assertEquals(new QuiverNote(changed.getLocation(), new ObjectMapper()).getContent(), changed.getContent());
+        library.getNotebooks().get(0).getNotes().get(1).getContent();
+        verify(mapper, times(2)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_a_note_updated_in_place_after_the_snapshot_when_opened_its_metadata_are_read_from_json()
+            throws IOException {
+        QuiverLibrary library = new QuiverLibrary(location, new ObjectMapper());
+        QuiverSnapshot.write(library, true);
+
+        // Rewrites the files of the note, leaving its notebook directory untouched
+        QuiverNote java = library.getNotebooks().get(0).getNotes().get(0);
+        QuiverTransaction transaction = library.transaction();
+        transaction.updateNote(java, QuiverNoteDraft.from(java).toBuilder().title("Java Collectors").build());
+        transaction.commit();
+
+        QuiverLibrary reopened = QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+
+        assertEquals(Arrays.asList("Java Collectors", "Kotlin Sequences"), titles(reopened.getNotebooks().get(0)));
+        // Only the metadata of the updated note are read
+        verify(mapper, times(1)).readValue(any(InputStream.class), (Class<?>) any(Class.class));
+    }
+
+    @Test
+    public void given_an_error_handler_and_a_note_malformed_after_the_snapshot_when_opened_it_is_skipped()
+            throws IOException {
+        QuiverSnapshot.write(new QuiverLibrary(location, new ObjectMapper()), true);
+
+        Path kotlin = location.resolve("languages.qvnotebook/kotlin.qvnote");
+        Path meta = kotlin.resolve("meta.json");
+        Files.write(meta, "{".getBytes("UTF-8"));
+        Files.setLastModifiedTime(meta, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        QuiverErrorCollector errors = new QuiverErrorCollector();
+
+        QuiverLibrary library =
+                QuiverSnapshot.open(location, mapper, QuiverOptions.builder().errorHandler(errors).build());
+
+        assertEquals(Arrays.asList("Java Streams"), titles(library.getNotebooks().get(0)));
+        assertEquals(1, library.getNotebooks().get(1).getNumberOfNotes());
+        assertEquals(Arrays.asList(kotlin),
+                errors.getErrors().stream().map(QuiverLoadError::getLocation).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void given_no_snapshot_when_opened_the_library_is_read_from_json() {
+        QuiverLibrary library = QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+
+        assertEquals("Library", library.getId());
+        assertEquals(2, library.getNotebooks().size());
+    }
+
+    @Test(expected = MalformedSnapshotException.class)
+    public void given_an_invalid_snapshot_when_opened_throws_MalformedSnapshotException() throws IOException {
+        Files.write(QuiverSnapshot.defaultLocation(location), "not a snapshot".getBytes());
+
+        QuiverSnapshot.open(location, mapper, QuiverOptions.DEFAULT);
+    }
+
+    private static List<String> titles(QuiverNotebook notebook) {
+        return notebook.getNotes().stream().map(QuiverNote::getTitle).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,57 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class QuiverSoftContentCacheTest {
+    private final Function<Path, List<QuiverCell>> loader = note -> {
+        QuiverCell cell = new QuiverCell();
+        cell.setData(note.toString());
+
+        return Collections.singletonList(cell);
+    };
+
+    @Test
+    public void given_cached_content_when_requested_again_content_is_not_loaded_again() {
+        QuiverContentCache cache = new QuiverSoftContentCache();
+
+        List<QuiverCell> first = cache.get(Paths.get("ab"), loader);
+        List<QuiverCell> second = cache.get(Paths.get("ab"), loader);
+
+        assertSame(first, second);
+        assertEquals(new QuiverCacheStats(1, 1, 0, 1, 4), cache.getStats());
+    }
+
+    @Test
+    public void when_invalidated_content_is_loaded_again() {
+        QuiverContentCache cache = new QuiverSoftContentCache();
+
+        cache.get(Paths.get("ab"), loader);
+        cache.invalidate(Paths.get("ab"));
+        cache.get(Paths.get("ab"), loader);
+
+        assertEquals(2, cache.getStats().getMisses());
+        assertEquals(4, cache.getStats().getWeight());
+    }
+
+    @Test
+    public void given_a_note_invalidated_while_loading_stale_content_is_not_cached() {
+        QuiverContentCache cache = new QuiverSoftContentCache();
+
+        // e.g. the note changes on disk and a watcher invalidates it while it is being read
+        cache.get(Paths.get("ab"), note -> {
+            List<QuiverCell> content = loader.apply(note);
+            cache.invalidate(note);
+            return content;
+        });
+        cache.get(Paths.get("ab"), loader);
+
+        assertEquals(new QuiverCacheStats(0, 2, 0, 1, 4), cache.getStats());
+    }
+}
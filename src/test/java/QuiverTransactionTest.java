@@ -0,0 +1,163 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.spy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.MalformedLibraryException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QuiverTransactionTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ObjectMapper mapper;
+    private Path location;
+    private QuiverLibrary library;
+
+    @Before
+    public void setup() throws IOException {
+        mapper = spy(new ObjectMapper());
+        location = QuiverFixtures.copy("notes.qvlibrary", folder.getRoot().toPath());
+        library = new QuiverLibrary(location, mapper);
+    }
+
+    @Test
+    public void given_a_transaction_when_committed_then_notebooks_and_notes_are_written_and_loaded()
+            throws IOException {
+        Instant before = Instant.now();
+        library.getNotebooks();
+        QuiverNote java = library.findNoteById("JAVA-NOTE");
+        QuiverCell cell = new QuiverCell();
+        cell.setType("code");
+        cell.setLanguage("python");
+        cell.setData("print('quiver')");
+
+        QuiverTransaction transaction = library.transaction();
+        Path notebook = transaction.createNotebook("INGESTED", "Ingested");
+        Path python = transaction.writeNote(notebook, QuiverNoteDraft.builder()
+                .id("PYTHON-NOTE")
+                .title("Python")
+                .tags(Collections.singletonList("python"))
+                .createdAt(Instant.ofEpochSecond(1600000000))
+                .cells(Collections.singletonList(cell))
+                .build());
+        transaction.updateNote(java, QuiverNoteDraft.from(java).toBuilder().title("Java Streams, revised").build());
+        transaction.commit();
+
+        // What the library already loaded is kept current
+        assertEquals(3, library.getNumberOfNotebooks());
+        assertEquals(3, library.getNotebooks().size());
+        assertEquals("Java Streams, revised", library.findNoteById("JAVA-NOTE").getTitle());
+        assertEquals("Ingested", library.findNotebookById("INGESTED").getName());
+        assertEquals(python, library.findNoteById("PYTHON-NOTE").getLocation());
+
+        // And so is what a new library reads from disk
+        JsonNode children = mapper.readTree(location.resolve("meta.json").toFile()).get("children");
+        assertEquals("INGESTED", children.get(2).get("uuid").asText());
+
+        QuiverLibrary reopened = new QuiverLibrary(location, new ObjectMapper());
+        QuiverNote written = reopened.findNoteById("PYTHON-NOTE");
+        assertEquals("1600000000", written.getCreatedAt());
+        assertEquals(Collections.singletonList("python"), written.getTags());
+        assertEquals("print('quiver')", written.getContent().get(0).getData());
+        assertEquals("python", written.getContent().get(0).getLanguage());
+
+        QuiverNote revised = reopened.findNoteById("JAVA-NOTE");
+        assertEquals("Java Streams, revised", revised.getTitle());
+        assertEquals("1500000000", revised.getCreatedAt());
+        // A draft made from a note doesn't carry its update time, so the update is stamped
+        assertTrue(Long.parseLong(revised.getUpdatedAt()) >= before.getEpochSecond());
+        assertEquals(Arrays.asList("java", "streams"), revised.getTags());
+        assertEquals(3, revised.getContent().size());
+
+        // No temporary file is left behind
+        try (Stream<Path> paths = Files.walk(location)) {
+            List<Path> leftovers = paths.filter(p -> p.getFileName().toString().matches(".*\\.(tmp|qvnote\\.\\d+)$"))
+                    .collect(Collectors.toList());
+            assertEquals(Collections.emptyList(), leftovers);
+        }
+    }
+
+    @Test
+    public void given_a_transaction_when_not_committed_then_nothing_is_written() throws IOException {
+        QuiverTransaction transaction = library.transaction();
+        transaction.createNotebook("INGESTED", "Ingested");
+        transaction.writeNote(location.resolve("recipes.qvnotebook"),
+                QuiverNoteDraft.builder().title("Waffles").build());
+
+        assertEquals(2, transaction.size());
+        assertFalse(Files.exists(location.resolve("INGESTED.qvnotebook")));
+        try (Stream<Path> notes = Files.list(location.resolve("recipes.qvnotebook"))) {
+            assertEquals(2, notes.count());
+        }
+        assertNull(library.findNotebookById("INGESTED"));
+    }
+
+    @Test
+    public void given_a_write_that_fails_when_committed_then_throws_MalformedLibraryException_and_writes_nothing()
+            throws IOException {
+        QuiverTransaction transaction = library.transaction();
+        transaction.writeNote(location.resolve("recipes.qvnotebook"),
+                QuiverNoteDraft.builder().title("Waffles").build());
+        transaction.writeNote(location.resolve("missing.qvnotebook"),
+                QuiverNoteDraft.builder().title("Crepes").build());
+
+        try {
+            transaction.commit();
+            fail("Committed");
+        } catch (MalformedLibraryException e) {
+            assertEquals(location.toString(), e.getLocation());
+        }
+        try (Stream<Path> notes = Files.list(location.resolve("recipes.qvnotebook"))) {
+            assertEquals(2, notes.count());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void given_a_committed_transaction_when_committed_again_throws_IllegalStateException() {
+        QuiverTransaction transaction = library.transaction();
+        transaction.createNotebook(null, "Ingested");
+        transaction.commit();
+
+        assertTrue(library.getNotebooks().stream().anyMatch(n -> "Ingested".equals(n.getName())));
+        transaction.commit();
+    }
+
+    @Test
+    public void given_ids_that_are_not_plain_file_names_when_written_then_they_are_rejected() {
+        QuiverTransaction transaction = library.transaction();
+
+        for (String id : Arrays.asList("", ".", "..", "../escaped", "nested/note", "nested\\note")) {
+            try {
+                transaction.createNotebook(id, "Escaped");
+                fail("Notebook " + id);
+            } catch (IllegalArgumentException expected) {
+                // Rejected
+            }
+            try {
+                transaction.writeNote(location.resolve("recipes.qvnotebook"), QuiverNoteDraft.builder().id(id).build());
+                fail("Note " + id);
+            } catch (IllegalArgumentException expected) {
+                // Rejected
+            }
+        }
+        assertEquals(0, transaction.size());
+    }
+}